@@ -0,0 +1,102 @@
+package jp.co.axa.apidemo.benchmark;
+
+import jp.co.axa.apidemo.security.CachingAuthenticationProvider;
+import jp.co.axa.apidemo.security.Role;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.provisioning.JdbcUserDetailsManager;
+import org.springframework.security.provisioning.UserDetailsManager;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the HTTP Basic authentication path: bcrypt verification of a password loaded by
+ * {@link JdbcUserDetailsManager}, with and without the caches of {@link CachingAuthenticationProvider}.
+ * <p>
+ * A dedicated user is created with the same bcrypt cost as the sample users.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationBenchmark {
+
+    private static final String USERNAME = "benchmark";
+
+    private static final String PASSWORD = "benchmark-password";
+
+    // Cost factor of the bcrypt hashes of the sample users.
+    private static final int BCRYPT_COST = 12;
+
+    // Number of employees seeded in addition to the sample data.
+    @Param("10000")
+    public int rowCount;
+
+    private ConfigurableApplicationContext context;
+
+    private AuthenticationProvider uncachedProvider;
+
+    private AuthenticationProvider cachedProvider;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(rowCount);
+        UserDetailsManager userDetailsManager = context.getBean(UserDetailsManager.class);
+        userDetailsManager.createUser(User.withUsername(USERNAME)
+                .password("{bcrypt}" + new BCryptPasswordEncoder(BCRYPT_COST).encode(PASSWORD))
+                .roles(Role.EMPLOYEE.toString())
+                .build());
+
+        DaoAuthenticationProvider jdbcProvider = new DaoAuthenticationProvider();
+        jdbcProvider.setUserDetailsService(new JdbcUserDetailsManager(context.getBean(DataSource.class)));
+        uncachedProvider = jdbcProvider;
+
+        DaoAuthenticationProvider applicationProvider = new DaoAuthenticationProvider();
+        applicationProvider.setUserDetailsService(userDetailsManager);
+        cachedProvider = new CachingAuthenticationProvider(applicationProvider, context.getBean(CacheManager.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Loads the user and its authorities with JDBC and verifies the password with bcrypt, on every call.
+     */
+    @Benchmark
+    public Authentication bcryptWithJdbcUserDetailsManager() {
+        return uncachedProvider.authenticate(new UsernamePasswordAuthenticationToken(USERNAME, PASSWORD));
+    }
+
+    /**
+     * Authenticates through the caching provider used by the application; after the first call,
+     * the cached verification is reused.
+     */
+    @Benchmark
+    public Authentication cachedAuthentication() {
+        return cachedProvider.authenticate(new UsernamePasswordAuthenticationToken(USERNAME, PASSWORD));
+    }
+}
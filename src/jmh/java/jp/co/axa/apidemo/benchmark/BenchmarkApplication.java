@@ -0,0 +1,74 @@
+package jp.co.axa.apidemo.benchmark;
+
+import jp.co.axa.apidemo.ApiDemoApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the application against a private embedded H2 database seeded with a given number of employees,
+ * for the benchmarks of this package.
+ * <p>
+ * Seeded employees get the IDs following the sample data, and EMPLOYEE_SEQ is restarted past them so that
+ * IDs generated by Hibernate during a benchmark never collide with seeded rows.
+ */
+final class BenchmarkApplication {
+
+    // Number of rows inserted per JDBC batch while seeding.
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    // Must match the allocationSize of the employee_seq generator.
+    private static final int SEQUENCE_INCREMENT = 50;
+
+    private static final String[] DEPARTMENTS = {
+            "Engineering", "Marketing", "Human Resources", "Public Relations", "Sales", "Administration"};
+
+    private BenchmarkApplication() {
+    }
+
+    /**
+     * Starts the application on a random port with a fresh in-memory database.
+     *
+     * @param rowCount The number of employees to add to the sample data.
+     * @return The running application context, to be closed by the caller.
+     */
+    static ConfigurableApplicationContext start(int rowCount) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ApiDemoApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark-" + System.nanoTime(),
+                        "spring.h2.console.enabled=false",
+                        "spring.devtools.restart.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+        seed(context.getBean(JdbcTemplate.class), rowCount);
+        return context;
+    }
+
+    /**
+     * Inserts the given number of employees after the highest existing ID, and moves EMPLOYEE_SEQ past them.
+     *
+     * @param jdbcTemplate The JdbcTemplate of the application.
+     * @param rowCount     The number of employees to insert.
+     */
+    private static void seed(JdbcTemplate jdbcTemplate, int rowCount) {
+        long firstId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(ID), 0) + 1 FROM EMPLOYEE", Long.class);
+
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < rowCount; i++) {
+            long id = firstId + i;
+            batch.add(new Object[]{id, "Employee " + id, 30000 + (int) (id * 7919 % 70000), DEPARTMENTS[i % DEPARTMENTS.length]});
+            if (batch.size() == SEED_BATCH_SIZE || i == rowCount - 1) {
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO EMPLOYEE (ID, EMPLOYEE_NAME, EMPLOYEE_SALARY, DEPARTMENT) VALUES (?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+
+        long lastId = firstId + rowCount - 1;
+        jdbcTemplate.execute("ALTER SEQUENCE EMPLOYEE_SEQ RESTART WITH " + (lastId + 2 * SEQUENCE_INCREMENT));
+    }
+}
@@ -0,0 +1,131 @@
+package jp.co.axa.apidemo.benchmark;
+
+import jp.co.axa.apidemo.config.CacheConfig;
+import jp.co.axa.apidemo.config.SecondLevelCacheConfig;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeService;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link EmployeeService#getEmployee(Long)} when served from the "employee" cache, from the Hibernate
+ * second-level cache and when it has to query the database, and {@link EmployeeService#retrieveEmployees(int, int)}
+ * at increasing page depths, cold and from the query cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeServiceBenchmark {
+
+    // Number of employees seeded in addition to the sample data.
+    @Param("10000")
+    public int rowCount;
+
+    // Number of employees per page.
+    @Param({"10", "100"})
+    public int pageSize;
+
+    // Position of the page within the table, as a fraction of the last page number.
+    @Param({"0.0", "0.5", "1.0"})
+    public double pageDepth;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    private Cache employeeCache;
+
+    private org.hibernate.Cache secondLevelCache;
+
+    private long employeeCount;
+
+    private int page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(rowCount);
+        employeeService = context.getBean(EmployeeService.class);
+        employeeCache = context.getBean(CacheManager.class).getCache(CacheConfig.EMPLOYEE_CACHE);
+        secondLevelCache = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getCache();
+        employeeCount = employeeService.retrieveEmployees(0, 1).getTotalElements();
+        page = (int) (pageDepth * ((employeeCount - 1) / pageSize));
+
+        // Warms the entry read by the cache hit benchmark.
+        employeeService.getEmployee(1L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Employee getEmployeeCacheHit() {
+        return employeeService.getEmployee(1L);
+    }
+
+    /**
+     * Reads an employee after evicting it from the "employee" cache only, so that every call is served by the
+     * entity region of the second-level cache, warmed by the previous call.
+     */
+    @Benchmark
+    public Employee getEmployeeSecondLevelCacheHit() {
+        employeeCache.evict(1L);
+        return employeeService.getEmployee(1L);
+    }
+
+    /**
+     * Reads a random employee after evicting it from both the "employee" cache and the entity region, so that
+     * every call queries the database. The evictions themselves are cheap in-memory operations included in the
+     * measure.
+     */
+    @Benchmark
+    public Employee getEmployeeCacheMiss() {
+        Long employeeId = 1 + ThreadLocalRandom.current().nextLong(employeeCount);
+        employeeCache.evict(employeeId);
+        secondLevelCache.evictEntityData(Employee.class, employeeId);
+        return employeeService.getEmployee(employeeId);
+    }
+
+    /**
+     * Reads a page after clearing the query region and the entity region, so that every call runs the page and
+     * count queries. Each clear only drops the employees of the previous page.
+     */
+    @Benchmark
+    public Object retrieveEmployees() {
+        secondLevelCache.evictQueryRegion(SecondLevelCacheConfig.EMPLOYEE_QUERY_REGION);
+        secondLevelCache.evictEntityData(Employee.class);
+        return employeeService.retrieveEmployees(page, pageSize);
+    }
+
+    /**
+     * Reads a page whose IDs and count are served by the query region, and whose employees by the entity region,
+     * both warmed by the previous call.
+     */
+    @Benchmark
+    public Object retrieveEmployeesCached() {
+        return employeeService.retrieveEmployees(page, pageSize);
+    }
+}
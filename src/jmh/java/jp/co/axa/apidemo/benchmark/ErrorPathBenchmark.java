@@ -0,0 +1,113 @@
+package jp.co.axa.apidemo.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jp.co.axa.apidemo.exception.AsyncErrorLogger;
+import jp.co.axa.apidemo.exception.EmployeeNotFoundException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+import org.springframework.http.HttpStatus;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the not-found error path before and after making the domain exceptions
+ * stackless and logging them asynchronously.
+ * <p>
+ * Both paths throw the exception from {@code depth} frames down, roughly the depth of a Tomcat, Spring
+ * Security and Spring MVC call stack, and catch it at the top as {@code GlobalRestExceptionHandler} does.
+ * <ul>
+ * <li>{@code printedStackTrace} fills in the stack trace and prints it, as the handler did before. The
+ * trace is printed to a discarding stream, which still takes the {@link PrintStream} lock but skips the
+ * console write, so this is a lower bound of the former cost.</li>
+ * <li>{@code stacklessAsyncLogged} throws the current {@link EmployeeNotFoundException} and hands it to the
+ * {@link AsyncErrorLogger}, whose logging thread discards the entries.</li>
+ * </ul>
+ * Runs with 4 threads so that the contention on the print stream shows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class ErrorPathBenchmark {
+
+    // Number of frames between the handler and the throwing method.
+    @Param({"20", "150"})
+    public int depth;
+
+    private PrintStream console;
+
+    private AsyncErrorLogger errorLogger;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        console = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+        errorLogger = new AsyncErrorLogger(NOPLogger.NOP_LOGGER, 1024, 100, new SimpleMeterRegistry());
+        errorLogger.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        errorLogger.stop();
+    }
+
+    @Benchmark
+    public Object printedStackTrace() {
+        try {
+            return throwWithStackTrace(depth);
+        } catch (RuntimeException ex) {
+            ex.printStackTrace(console);
+            return ex;
+        }
+    }
+
+    @Benchmark
+    public Object stacklessAsyncLogged() {
+        try {
+            return throwStackless(depth);
+        } catch (EmployeeNotFoundException ex) {
+            errorLogger.logExpected(HttpStatus.NOT_FOUND, ex);
+            return ex;
+        }
+    }
+
+    private static Object throwWithStackTrace(int depth) {
+        if (depth > 0) {
+            return throwWithStackTrace(depth - 1);
+        }
+        // The former EmployeeNotFoundException, filling in its stack trace
+        throw new RuntimeException("Employee could not be found");
+    }
+
+    private static Object throwStackless(int depth) {
+        if (depth > 0) {
+            return throwStackless(depth - 1);
+        }
+        throw new EmployeeNotFoundException("Employee could not be found");
+    }
+}
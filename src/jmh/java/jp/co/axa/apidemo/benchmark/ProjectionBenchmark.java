@@ -0,0 +1,83 @@
+package jp.co.axa.apidemo.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.co.axa.apidemo.services.EmployeeFields;
+import jp.co.axa.apidemo.services.EmployeeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@code GET /api/v1/employees} returning whole entities with sparse fieldsets, from the query to the
+ * serialized body.
+ * <p>
+ * {@code all} loads managed entities as before; the other fieldsets go through the tuple projection, which
+ * selects only the requested columns and builds no entity. The size of the body is printed when the trial starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    // Number of employees seeded in addition to the sample data.
+    @Param("10000")
+    public int rowCount;
+
+    // Number of employees in the page.
+    @Param({"100", "1000"})
+    public int pageSize;
+
+    // Value of the fields parameter, or "all" to retrieve whole entities.
+    @Param({"all", "id,name", "id,name,department"})
+    public String fields;
+
+    private ConfigurableApplicationContext context;
+
+    private ObjectMapper objectMapper;
+
+    private EmployeeService employeeService;
+
+    private List<String> selected;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        context = BenchmarkApplication.start(rowCount);
+        objectMapper = context.getBean(ObjectMapper.class);
+        employeeService = context.getBean(EmployeeService.class);
+        selected = "all".equals(fields) ? null : EmployeeFields.parse(fields);
+
+        System.out.println();
+        System.out.println("Body size (" + fields + ", " + pageSize + "): " + retrieveAndSerialize().length + " bytes");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] retrieveAndSerialize() throws JsonProcessingException {
+        if (selected == null) {
+            return objectMapper.writeValueAsBytes(employeeService.retrieveEmployees(0, pageSize));
+        }
+        return objectMapper.writeValueAsBytes(employeeService.retrieveEmployeeFields(0, pageSize, selected));
+    }
+}
@@ -0,0 +1,122 @@
+package jp.co.axa.apidemo.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.co.axa.apidemo.services.EmployeeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JSON, CBOR and Smile encodings of the API responses, with the ObjectMappers of the message
+ * converters registered in the application.
+ * <p>
+ * The payloads are a single employee, a {@code Page<Employee>} and the result of a multi-get, as returned by
+ * {@code GET /api/v1/employees/{id}}, {@code GET /api/v1/employees} and {@code GET /api/v1/employees?ids=}.
+ * Serializing measures the server side, parsing into a tree the client side. The size of every payload is
+ * printed when the trial starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseFormatBenchmark {
+
+    // Number of employees seeded in addition to the sample data.
+    @Param("10000")
+    public int rowCount;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"employee", "page", "lookup"})
+    public String payload;
+
+    // Number of employees in the page and in the multi-get.
+    @Param("100")
+    public int size;
+
+    private ConfigurableApplicationContext context;
+
+    private ObjectMapper objectMapper;
+
+    private Object response;
+
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkApplication.start(rowCount);
+        objectMapper = objectMapper(format);
+
+        EmployeeService employeeService = context.getBean(EmployeeService.class);
+        List<Long> ids = new ArrayList<>();
+        employeeService.retrieveEmployees(0, size).forEach(employee -> ids.add(employee.getId()));
+        switch (payload) {
+            case "employee":
+                response = employeeService.getEmployee(ids.get(0));
+                break;
+            case "page":
+                response = employeeService.retrieveEmployees(0, size);
+                break;
+            default:
+                response = employeeService.getEmployees(ids);
+        }
+
+        encoded = objectMapper.writeValueAsBytes(response);
+        System.out.println();
+        System.out.println("Payload size (" + format + ", " + payload + "): " + encoded.length + " bytes");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public JsonNode parse() throws IOException {
+        return objectMapper.readTree(encoded);
+    }
+
+    private ObjectMapper objectMapper(String format) {
+        Class<? extends AbstractJackson2HttpMessageConverter> converterType;
+        switch (format) {
+            case "cbor":
+                converterType = MappingJackson2CborHttpMessageConverter.class;
+                break;
+            case "smile":
+                converterType = MappingJackson2SmileHttpMessageConverter.class;
+                break;
+            default:
+                converterType = MappingJackson2HttpMessageConverter.class;
+        }
+        return context.getBean(converterType).getObjectMapper();
+    }
+}
@@ -0,0 +1,195 @@
+package jp.co.axa.apidemo.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The BroadcastingCache class decorates a local cache so that its evictions also reach the same cache on the
+ * other instances.
+ * <p>
+ * Evicting or clearing acts on the local cache right away, then publishes the invalidation; inside a transaction,
+ * it is published once the transaction commits, since a peer reloading the entry before would read the old row
+ * again. Puts stay local: a peer loads its own copy on its next miss.
+ * <p>
+ * Keys of type Long, Integer or String are sent as they are. Evicting a key of any other type clears the whole
+ * cache on the peers.
+ */
+public class BroadcastingCache implements Cache {
+
+    private static final Logger logger = LoggerFactory.getLogger(BroadcastingCache.class);
+
+    private final Cache delegate;
+
+    private final CacheInvalidationTransport transport;
+
+    private final Counter sentCounter;
+
+    private final Counter receivedCounter;
+
+    /**
+     * Creates a new BroadcastingCache.
+     *
+     * @param delegate      The local cache.
+     * @param transport     The transport the invalidations are published through.
+     * @param meterRegistry The registry the counters of sent and received invalidations are registered with.
+     */
+    public BroadcastingCache(Cache delegate, CacheInvalidationTransport transport, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.transport = transport;
+        this.sentCounter = Counter.builder("cache.invalidations")
+                .description("Cache invalidations exchanged with the other instances")
+                .tag("cache", delegate.getName())
+                .tag("direction", "sent")
+                .register(meterRegistry);
+        this.receivedCounter = Counter.builder("cache.invalidations")
+                .description("Cache invalidations exchanged with the other instances")
+                .tag("cache", delegate.getName())
+                .tag("direction", "received")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the local cache, the one holding the entries.
+     *
+     * @return the local cache
+     */
+    public Cache getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return delegate.get(key, valueLoader);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+        publish(encodeKey(key));
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        publish(null);
+    }
+
+    /**
+     * Applies an invalidation received from another instance to the local cache, without publishing it again.
+     *
+     * @param key The encoded key to evict, or {@code null} to clear the whole cache.
+     */
+    void invalidateLocally(String key) {
+        receivedCounter.increment();
+        if (key == null) {
+            delegate.clear();
+        } else {
+            delegate.evict(decodeKey(key));
+        }
+    }
+
+    /**
+     * Publishes an invalidation of this cache, once the current transaction commits if there is one.
+     *
+     * @param key The encoded key to evict, or {@code null} to clear the whole cache.
+     */
+    private void publish(String key) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    send(key);
+                }
+            });
+        } else {
+            send(key);
+        }
+    }
+
+    private void send(String key) {
+        try {
+            transport.publish(getName(), key);
+            sentCounter.increment();
+        } catch (RuntimeException ex) {
+            // The local cache is already invalidated, the peers keep the entry until it expires
+            logger.error("Failed to publish the invalidation of cache {}", getName(), ex);
+        }
+    }
+
+    /**
+     * Encodes a key with its type, so that the peers evict a key equal to the original one.
+     *
+     * @param key The key of a cache entry.
+     * @return the encoded key, or {@code null} if the key cannot be sent and the whole cache must be cleared
+     */
+    static String encodeKey(Object key) {
+        if (key instanceof Long) {
+            return "L:" + key;
+        }
+        if (key instanceof Integer) {
+            return "I:" + key;
+        }
+        if (key instanceof String) {
+            return "S:" + key;
+        }
+        return null;
+    }
+
+    /**
+     * Decodes a key encoded by {@link #encodeKey(Object)}.
+     *
+     * @param key The encoded key.
+     * @return the original key
+     * @throws IllegalArgumentException if the key is not encoded by {@link #encodeKey(Object)}.
+     */
+    static Object decodeKey(String key) {
+        String value = key.substring(2);
+        switch (key.substring(0, 2)) {
+            case "L:":
+                return Long.valueOf(value);
+            case "I:":
+                return Integer.valueOf(value);
+            case "S:":
+                return value;
+            default:
+                throw new IllegalArgumentException("Unknown cache key encoding: " + key);
+        }
+    }
+}
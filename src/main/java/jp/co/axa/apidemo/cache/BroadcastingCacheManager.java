@@ -0,0 +1,122 @@
+package jp.co.axa.apidemo.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The BroadcastingCacheManager class decorates a cache manager so that the evictions of the chosen caches are
+ * broadcast to the other instances, through a {@link CacheInvalidationTransport}.
+ * <p>
+ * The chosen caches are wrapped in a {@link BroadcastingCache}; the others are returned as they are. The
+ * invalidations received from the other instances are applied to the local caches directly, and never published
+ * again; listeners may be added to invalidate other local state along with them.
+ */
+public class BroadcastingCacheManager implements CacheManager, InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(BroadcastingCacheManager.class);
+
+    private final CacheManager delegate;
+
+    private final Set<String> broadcastCacheNames;
+
+    private final CacheInvalidationTransport transport;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, BroadcastingCache> caches = new ConcurrentHashMap<>();
+
+    private final List<CacheInvalidationTransport.Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a new BroadcastingCacheManager.
+     *
+     * @param delegate            The cache manager holding the local caches.
+     * @param broadcastCacheNames The names of the caches whose evictions are broadcast.
+     * @param transport           The transport the invalidations are exchanged through.
+     * @param meterRegistry       The registry the counters of invalidations are registered with.
+     */
+    public BroadcastingCacheManager(CacheManager delegate, Set<String> broadcastCacheNames,
+                                    CacheInvalidationTransport transport, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.broadcastCacheNames = broadcastCacheNames;
+        this.transport = transport;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Starts receiving the invalidations published by the other instances.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        transport.start(this::invalidate);
+    }
+
+    /**
+     * Stops the transport, after publishing the invalidations still queued.
+     */
+    @Override
+    public void destroy() {
+        transport.stop();
+    }
+
+    /**
+     * Adds a listener notified of every invalidation received from another instance, before it is applied to
+     * the local cache: a read missing the local cache then finds the other local state invalidated too.
+     *
+     * @param listener The listener, called on a thread of the transport.
+     */
+    public void addListener(CacheInvalidationTransport.Listener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = delegate.getCache(name);
+        if (cache == null || !broadcastCacheNames.contains(name)) {
+            return cache;
+        }
+        return caches.computeIfAbsent(name, key -> new BroadcastingCache(cache, transport, meterRegistry));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    /**
+     * Applies an invalidation received from another instance.
+     *
+     * @param cacheName The name of the cache.
+     * @param key       The encoded key to evict, or {@code null} to clear the whole cache.
+     */
+    private void invalidate(String cacheName, String key) {
+        if (!broadcastCacheNames.contains(cacheName)) {
+            return;
+        }
+        Cache cache = getCache(cacheName);
+        if (cache == null) {
+            logger.warn("Ignored the invalidation of unknown cache {}", cacheName);
+            return;
+        }
+        try {
+            for (CacheInvalidationTransport.Listener listener : listeners) {
+                listener.invalidate(cacheName, key);
+            }
+            ((BroadcastingCache) cache).invalidateLocally(key);
+        } catch (RuntimeException ex) {
+            logger.warn("Failed to apply the invalidation of cache {} with key {}", cacheName, key, ex);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package jp.co.axa.apidemo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+/**
+ * The BroadcastingCacheMeterBinderProvider class keeps the {@code cache} metrics of the Caffeine caches wrapped in
+ * a {@link BroadcastingCache}, which Spring Boot would otherwise no longer recognize as Caffeine caches.
+ */
+public class BroadcastingCacheMeterBinderProvider implements CacheMeterBinderProvider<BroadcastingCache> {
+
+    @Override
+    public MeterBinder getMeterBinder(BroadcastingCache cache, Iterable<Tag> tags) {
+        if (!(cache.getDelegate() instanceof CaffeineCache)) {
+            return null;
+        }
+        Cache<Object, Object> nativeCache = ((CaffeineCache) cache.getDelegate()).getNativeCache();
+        return new CaffeineCacheMetrics(nativeCache, cache.getName(), tags);
+    }
+}
@@ -0,0 +1,45 @@
+package jp.co.axa.apidemo.cache;
+
+/**
+ * The CacheInvalidationTransport interface establishes a contract for carrying cache invalidations between the
+ * instances of the application, so that an entry changed on one instance is evicted from the others.
+ * <p>
+ * A transport identifies the instance it runs on, and does not deliver back the invalidations that instance
+ * published. Delivery is best effort: an invalidation lost on the way leaves the entry until it expires.
+ */
+public interface CacheInvalidationTransport {
+
+    /**
+     * Starts delivering the invalidations published by the other instances.
+     *
+     * @param listener The listener the invalidations are delivered to, on a thread of the transport.
+     */
+    public void start(Listener listener);
+
+    /**
+     * Publishes an invalidation to the other instances. Does not wait for them to receive it.
+     *
+     * @param cacheName The name of the cache.
+     * @param key       The encoded key to evict, or {@code null} to clear the whole cache.
+     */
+    public void publish(String cacheName, String key);
+
+    /**
+     * Stops delivering invalidations, after publishing those still queued.
+     */
+    public void stop();
+
+    /**
+     * Receives the invalidations published by the other instances.
+     */
+    public interface Listener {
+
+        /**
+         * Invalidates an entry of a local cache.
+         *
+         * @param cacheName The name of the cache.
+         * @param key       The encoded key to evict, or {@code null} to clear the whole cache.
+         */
+        public void invalidate(String cacheName, String key);
+    }
+}
@@ -0,0 +1,220 @@
+package jp.co.axa.apidemo.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The JdbcCacheInvalidationTransport class exchanges the cache invalidations through the CACHE_INVALIDATION table
+ * of the database shared by the instances.
+ * <p>
+ * Each instance inserts its invalidations and polls for the rows inserted by the others since the last one it
+ * read. A row whose ID was skipped may still be uncommitted, so the skipped IDs are polled again until
+ * {@code cache.invalidation.jdbc.gap-timeout-ms}; rows older than {@code cache.invalidation.jdbc.retention-seconds}
+ * are deleted. Inserts and polls run on a single thread of the transport, outside of any transaction of the
+ * caller, so that an invalidation published once a transaction commits is committed on its own.
+ */
+public class JdbcCacheInvalidationTransport implements CacheInvalidationTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcCacheInvalidationTransport.class);
+
+    // Skipped IDs further than this from the last one read are not polled again.
+    private static final int MAX_GAP = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    private final String origin;
+
+    private final long pollIntervalMillis;
+
+    private final long gapTimeoutNanos;
+
+    private final long retentionMillis;
+
+    private final Queue<String[]> outgoing = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean sendRequested = new AtomicBoolean();
+
+    // Skipped IDs, with the System.nanoTime() after which they are no longer polled
+    private final Map<Long, Long> gaps = new HashMap<>();
+
+    private long lastId;
+
+    private long lastCleanupMillis;
+
+    private Listener listener;
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * Creates a new JdbcCacheInvalidationTransport.
+     *
+     * @param dataSource         The DataSource of the database shared by the instances.
+     * @param origin             The unique identifier of this instance.
+     * @param pollIntervalMillis The delay between two polls of the table.
+     * @param gapTimeoutMillis   The time during which a skipped ID is polled again.
+     * @param retentionSeconds   The age after which the rows are deleted.
+     */
+    public JdbcCacheInvalidationTransport(DataSource dataSource, String origin, long pollIntervalMillis,
+                                          long gapTimeoutMillis, long retentionSeconds) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.origin = origin;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.gapTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(gapTimeoutMillis);
+        this.retentionMillis = TimeUnit.SECONDS.toMillis(retentionSeconds);
+    }
+
+    /**
+     * Starts polling the table, from the last row inserted so far: the caches of this instance are empty,
+     * so older invalidations do not concern them.
+     *
+     * @param listener The listener the invalidations are delivered to.
+     */
+    @Override
+    public void start(Listener listener) {
+        this.listener = listener;
+        this.lastId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(ID), 0) FROM CACHE_INVALIDATION", Long.class);
+        this.lastCleanupMillis = System.currentTimeMillis();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-invalidation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::poll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues an invalidation, inserted by the thread of the transport.
+     *
+     * @param cacheName The name of the cache.
+     * @param key       The encoded key to evict, or {@code null} to clear the whole cache.
+     */
+    @Override
+    public void publish(String cacheName, String key) {
+        outgoing.add(new String[]{cacheName, key});
+        if (executor == null || !sendRequested.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::send);
+        } catch (RejectedExecutionException ex) {
+            // The transport is stopping, stop() inserts the queued invalidations
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        send();
+    }
+
+    /**
+     * Inserts the queued invalidations in a single batch.
+     */
+    private void send() {
+        sendRequested.set(false);
+        List<Object[]> rows = new ArrayList<>();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (String[] invalidation = outgoing.poll(); invalidation != null; invalidation = outgoing.poll()) {
+            rows.add(new Object[]{origin, invalidation[0], invalidation[1], now});
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO CACHE_INVALIDATION (ORIGIN, CACHE_NAME, CACHE_KEY, CREATED_AT) VALUES (?, ?, ?, ?)",
+                    rows);
+        } catch (RuntimeException ex) {
+            logger.error("Failed to publish {} cache invalidations", rows.size(), ex);
+        }
+    }
+
+    /**
+     * Delivers the rows inserted by the other instances since the last poll, and those of the skipped IDs that
+     * have been committed since.
+     */
+    private void poll() {
+        try {
+            send();
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                    "SELECT ID, ORIGIN, CACHE_NAME, CACHE_KEY FROM CACHE_INVALIDATION WHERE ID > ? ORDER BY ID",
+                    lastId);
+            List<Map<String, Object>> filled = gaps.isEmpty() ? Collections.emptyList() : namedJdbcTemplate.queryForList(
+                    "SELECT ID, ORIGIN, CACHE_NAME, CACHE_KEY FROM CACHE_INVALIDATION WHERE ID IN (:ids)",
+                    new MapSqlParameterSource("ids", gaps.keySet()));
+
+            long now = System.nanoTime();
+            for (Map<String, Object> row : rows) {
+                long id = ((Number) row.get("ID")).longValue();
+                if (id - lastId <= MAX_GAP) {
+                    for (long skipped = lastId + 1; skipped < id; skipped++) {
+                        gaps.put(skipped, now + gapTimeoutNanos);
+                    }
+                }
+                lastId = id;
+                deliver(row);
+            }
+            for (Map<String, Object> row : filled) {
+                gaps.remove(((Number) row.get("ID")).longValue());
+                deliver(row);
+            }
+            for (Iterator<Long> deadlines = gaps.values().iterator(); deadlines.hasNext(); ) {
+                if (deadlines.next() - now < 0) {
+                    deadlines.remove();
+                }
+            }
+            cleanup();
+        } catch (RuntimeException ex) {
+            logger.error("Failed to poll the cache invalidations", ex);
+        }
+    }
+
+    private void deliver(Map<String, Object> row) {
+        if (!origin.equals(row.get("ORIGIN"))) {
+            listener.invalidate((String) row.get("CACHE_NAME"), (String) row.get("CACHE_KEY"));
+        }
+    }
+
+    /**
+     * Deletes the rows older than the retention, at most once per retention period.
+     */
+    private void cleanup() {
+        long now = System.currentTimeMillis();
+        if (now - lastCleanupMillis < retentionMillis) {
+            return;
+        }
+        lastCleanupMillis = now;
+        jdbcTemplate.update("DELETE FROM CACHE_INVALIDATION WHERE CREATED_AT < ?",
+                new Timestamp(now - retentionMillis));
+    }
+}
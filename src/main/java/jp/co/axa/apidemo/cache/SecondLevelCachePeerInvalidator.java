@@ -0,0 +1,55 @@
+package jp.co.axa.apidemo.cache;
+
+import jp.co.axa.apidemo.config.CacheConfig;
+import jp.co.axa.apidemo.config.SecondLevelCacheConfig;
+import jp.co.axa.apidemo.entities.Employee;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * The SecondLevelCachePeerInvalidator class extends the invalidations received from the other instances to the
+ * Hibernate second-level cache, which only sees the writes of this instance.
+ * <p>
+ * An employee evicted from the "employee" cache by another instance is also evicted from the entity region, and
+ * any employee eviction, including those of the "employeeMissing" cache that follow a creation, clears the
+ * cached results of the employee queries. Nothing is done when no invalidation transport is configured.
+ */
+@Component
+public class SecondLevelCachePeerInvalidator {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Listens to the invalidations received by the cache manager, if it broadcasts them.
+     */
+    @PostConstruct
+    public void start() {
+        if (cacheManager instanceof BroadcastingCacheManager) {
+            ((BroadcastingCacheManager) cacheManager).addListener(this::invalidate);
+        }
+    }
+
+    private void invalidate(String cacheName, String key) {
+        org.hibernate.Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        if (CacheConfig.EMPLOYEE_CACHE.equals(cacheName)) {
+            Object employeeId = key == null ? null : BroadcastingCache.decodeKey(key);
+            if (employeeId instanceof Long) {
+                cache.evictEntityData(Employee.class, (Long) employeeId);
+            } else {
+                cache.evictEntityData(Employee.class);
+            }
+            cache.evictQueryRegion(SecondLevelCacheConfig.EMPLOYEE_QUERY_REGION);
+        } else if (CacheConfig.EMPLOYEE_MISSING_CACHE.equals(cacheName)) {
+            cache.evictQueryRegion(SecondLevelCacheConfig.EMPLOYEE_QUERY_REGION);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package jp.co.axa.apidemo.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * The UdpCacheInvalidationTransport class exchanges the cache invalidations as UDP datagrams sent to every peer
+ * instance, such as instances sharing a host on the loopback interface.
+ * <p>
+ * A datagram holds the origin, the cache name and the encoded key on three lines, the key line being empty to
+ * clear the whole cache. Nothing is retried: a datagram lost on the way leaves the entry until it expires. The
+ * list of peers may include this instance, whose own datagrams are ignored.
+ */
+public class UdpCacheInvalidationTransport implements CacheInvalidationTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(UdpCacheInvalidationTransport.class);
+
+    private static final int MAX_DATAGRAM_SIZE = 1024;
+
+    private final String origin;
+
+    private final InetSocketAddress bindAddress;
+
+    private final List<InetSocketAddress> peers;
+
+    private DatagramSocket socket;
+
+    private Thread receiver;
+
+    /**
+     * Creates a new UdpCacheInvalidationTransport.
+     *
+     * @param origin      The unique identifier of this instance.
+     * @param bindAddress The address the invalidations of the peers are received on.
+     * @param peers       The addresses of the peers the invalidations are sent to.
+     */
+    public UdpCacheInvalidationTransport(String origin, InetSocketAddress bindAddress, List<InetSocketAddress> peers) {
+        this.origin = origin;
+        this.bindAddress = bindAddress;
+        this.peers = peers;
+    }
+
+    /**
+     * Binds the socket, then starts the thread receiving the invalidations of the peers.
+     *
+     * @param listener The listener the invalidations are delivered to.
+     * @throws UncheckedIOException if the socket cannot be bound.
+     */
+    @Override
+    public void start(Listener listener) {
+        try {
+            socket = new DatagramSocket(bindAddress);
+        } catch (SocketException ex) {
+            throw new UncheckedIOException("Failed to bind the cache invalidation socket to " + bindAddress, ex);
+        }
+        receiver = new Thread(() -> receive(listener), "cache-invalidation");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    @Override
+    public void publish(String cacheName, String key) {
+        byte[] message = (origin + "\n" + cacheName + "\n" + (key == null ? "" : key)).getBytes(StandardCharsets.UTF_8);
+        if (message.length > MAX_DATAGRAM_SIZE) {
+            message = (origin + "\n" + cacheName + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+        for (InetSocketAddress peer : peers) {
+            try {
+                socket.send(new DatagramPacket(message, message.length, peer));
+            } catch (IOException ex) {
+                logger.warn("Failed to send the invalidation of cache {} to {}", cacheName, peer, ex);
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (socket == null) {
+            return;
+        }
+        socket.close();
+        try {
+            receiver.join(5000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void receive(Listener listener) {
+        byte[] buffer = new byte[MAX_DATAGRAM_SIZE];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+            } catch (IOException ex) {
+                if (!socket.isClosed()) {
+                    logger.warn("Failed to receive a cache invalidation", ex);
+                }
+                continue;
+            }
+            String[] lines = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8).split("\n", 3);
+            if (lines.length != 3) {
+                logger.warn("Ignored a malformed cache invalidation from {}", packet.getSocketAddress());
+            } else if (!origin.equals(lines[0])) {
+                listener.invalidate(lines[1], lines[2].isEmpty() ? null : lines[2]);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package jp.co.axa.apidemo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Configuration class for the non-blocking read endpoints under {@code /api/v1/async}.
+ * <p>
+ * Their blocking JDBC work runs on a dedicated executor, bounded both in threads and in queued tasks, while the
+ * servlet thread goes back to the container as soon as the request is dispatched. The number of requests in
+ * flight is then bounded by the connections the container accepts, not by its thread pool.
+ * <p>
+ * There is little point in more threads than connections in the pool: the extra ones would only wait for a
+ * connection. A task submitted to a full queue is rejected, and the request answered with 503 (Service
+ * Unavailable) rather than left waiting. Its usage is exposed under the {@code executor} metrics tagged
+ * {@code name=async.read}.
+ */
+@Configuration
+public class AsyncReadConfig implements WebMvcConfigurer {
+
+    /**
+     * Name of the executor running the blocking work of the asynchronous endpoints.
+     */
+    public static final String READ_EXECUTOR = "readExecutor";
+
+    @Value("${async.read.pool-size:10}")
+    private int poolSize;
+
+    @Value("${async.read.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${async.read.timeout-ms:10000}")
+    private long timeoutMillis;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Creates the executor running the blocking work of the asynchronous endpoints.
+     *
+     * @return the executor
+     */
+    @Bean(READ_EXECUTOR)
+    public ThreadPoolTaskExecutor readExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("async-read-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(5);
+        executor.initialize();
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "async.read", Tags.empty()).bindTo(meterRegistry);
+        return executor;
+    }
+
+    /**
+     * Runs the {@code Callable} return values on the read executor, and times out the asynchronous requests
+     * that do not complete within {@code async.read.timeout-ms}, unless they set their own timeout.
+     *
+     * @param configurer the configurer of the asynchronous request processing
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(readExecutor());
+        configurer.setDefaultTimeout(timeoutMillis);
+    }
+}
@@ -0,0 +1,120 @@
+package jp.co.axa.apidemo.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import jp.co.axa.apidemo.cache.BroadcastingCacheManager;
+import jp.co.axa.apidemo.cache.CacheInvalidationTransport;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration class for the application caches.
+ * <p>
+ * Each cache is a bounded Caffeine cache (W-TinyLFU eviction) with an expire-after-write policy and
+ * hit/miss statistics recording, so heap usage no longer grows with every distinct key ever read.
+ * <p>
+ * The caching advice runs outside of the transactional one, so that {@code @CacheEvict} on a transactional
+ * write evicts after the commit: evicting before would let a concurrent read cache the row being replaced.
+ * <p>
+ * When a transport is configured by {@link CacheInvalidationConfig}, the evictions of the caches listed in
+ * {@code cache.invalidation.caches} are also broadcast to the other instances.
+ */
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+
+    /**
+     * Name of the cache holding employees by their ID.
+     */
+    public static final String EMPLOYEE_CACHE = "employee";
+
+    /**
+     * Name of the cache remembering, for a short time, the IDs that match no employee.
+     */
+    public static final String EMPLOYEE_MISSING_CACHE = "employeeMissing";
+
+    /**
+     * Name of the cache holding users and their authorities by username.
+     */
+    public static final String USER_DETAILS_CACHE = "userDetails";
+
+    /**
+     * Name of the cache holding successful credential verifications by username.
+     */
+    public static final String CREDENTIALS_CACHE = "credentials";
+
+    @Value("${cache.employee.maximum-size:10000}")
+    private long employeeMaximumSize;
+
+    @Value("${cache.employee.expire-after-write-seconds:600}")
+    private long employeeExpireAfterWriteSeconds;
+
+    @Value("${cache.employee-missing.maximum-size:10000}")
+    private long employeeMissingMaximumSize;
+
+    @Value("${cache.employee-missing.expire-after-write-seconds:30}")
+    private long employeeMissingExpireAfterWriteSeconds;
+
+    @Value("${cache.credentials.maximum-size:1000}")
+    private long credentialsMaximumSize;
+
+    @Value("${cache.credentials.expire-after-write-seconds:300}")
+    private long credentialsExpireAfterWriteSeconds;
+
+    @Value("${cache.invalidation.caches:employee,employeeMissing,userDetails,credentials}")
+    private String[] broadcastCacheNames;
+
+    /**
+     * Creates the cache manager holding all application caches.
+     *
+     * @param invalidationTransport the transport of the invalidations between the instances, if one is configured
+     * @param meterRegistry         the registry the counters of invalidations are registered with
+     * @return the cache manager
+     */
+    @Bean
+    public CacheManager cacheManager(ObjectProvider<CacheInvalidationTransport> invalidationTransport,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(Arrays.asList(
+                buildCache(EMPLOYEE_CACHE, employeeMaximumSize, employeeExpireAfterWriteSeconds),
+                buildCache(EMPLOYEE_MISSING_CACHE, employeeMissingMaximumSize, employeeMissingExpireAfterWriteSeconds),
+                buildCache(USER_DETAILS_CACHE, credentialsMaximumSize, credentialsExpireAfterWriteSeconds),
+                buildCache(CREDENTIALS_CACHE, credentialsMaximumSize, credentialsExpireAfterWriteSeconds)));
+
+        CacheInvalidationTransport transport = invalidationTransport.getIfAvailable();
+        if (transport == null) {
+            return cacheManager;
+        }
+        // No longer a bean of its own, so its caches must be initialized here
+        cacheManager.initializeCaches();
+        return new BroadcastingCacheManager(cacheManager, new HashSet<>(Arrays.asList(broadcastCacheNames)),
+                transport, meterRegistry.getObject());
+    }
+
+    /**
+     * Builds a bounded Caffeine cache.
+     *
+     * @param name                     the name of the cache
+     * @param maximumSize              the maximum number of entries kept in the cache
+     * @param expireAfterWriteSeconds  the number of seconds after which an entry expires once written
+     * @return the cache
+     */
+    private CaffeineCache buildCache(String name, long maximumSize, long expireAfterWriteSeconds) {
+        return new CaffeineCache(name, Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build());
+    }
+}
@@ -0,0 +1,92 @@
+package jp.co.axa.apidemo.config;
+
+import jp.co.axa.apidemo.cache.BroadcastingCacheMeterBinderProvider;
+import jp.co.axa.apidemo.cache.CacheInvalidationTransport;
+import jp.co.axa.apidemo.cache.JdbcCacheInvalidationTransport;
+import jp.co.axa.apidemo.cache.UdpCacheInvalidationTransport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Configuration class for the invalidation of the caches across the instances of the application.
+ * <p>
+ * The transport is chosen by {@code cache.invalidation.transport}: {@code jdbc} exchanges the invalidations
+ * through a table of the shared database, {@code udp} sends them as datagrams to a fixed list of peers. By
+ * default no transport is configured, and each instance only evicts its own caches.
+ */
+@Configuration
+public class CacheInvalidationConfig {
+
+    // Identifies this instance in the invalidations it publishes
+    private final String origin = UUID.randomUUID().toString();
+
+    @Value("${cache.invalidation.jdbc.poll-interval-ms:200}")
+    private long pollIntervalMillis;
+
+    @Value("${cache.invalidation.jdbc.gap-timeout-ms:10000}")
+    private long gapTimeoutMillis;
+
+    @Value("${cache.invalidation.jdbc.retention-seconds:60}")
+    private long retentionSeconds;
+
+    @Value("${cache.invalidation.udp.host:127.0.0.1}")
+    private String udpHost;
+
+    @Value("${cache.invalidation.udp.port:7600}")
+    private int udpPort;
+
+    @Value("${cache.invalidation.udp.peers:}")
+    private String[] udpPeers;
+
+    /**
+     * Creates the transport exchanging the invalidations through the CACHE_INVALIDATION table.
+     *
+     * @param dataSource the DataSource of the database shared by the instances
+     * @return the transport, started and stopped by the cache manager
+     */
+    @Bean
+    @ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "jdbc")
+    public CacheInvalidationTransport jdbcCacheInvalidationTransport(DataSource dataSource) {
+        return new JdbcCacheInvalidationTransport(dataSource, origin, pollIntervalMillis, gapTimeoutMillis,
+                retentionSeconds);
+    }
+
+    /**
+     * Creates the transport exchanging the invalidations as UDP datagrams.
+     *
+     * @return the transport, started and stopped by the cache manager
+     * @throws IllegalArgumentException if a peer is not given as {@code host:port}
+     */
+    @Bean
+    @ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "udp")
+    public CacheInvalidationTransport udpCacheInvalidationTransport() {
+        List<InetSocketAddress> peers = new ArrayList<>();
+        for (String peer : udpPeers) {
+            int separator = peer.lastIndexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Cache invalidation peer must be host:port: " + peer);
+            }
+            peers.add(new InetSocketAddress(peer.substring(0, separator).trim(),
+                    Integer.parseInt(peer.substring(separator + 1).trim())));
+        }
+        return new UdpCacheInvalidationTransport(origin, new InetSocketAddress(udpHost, udpPort), peers);
+    }
+
+    /**
+     * Keeps the Caffeine metrics of the caches whose evictions are broadcast.
+     *
+     * @return the provider of the metrics of those caches
+     */
+    @Bean
+    public BroadcastingCacheMeterBinderProvider broadcastingCacheMeterBinderProvider() {
+        return new BroadcastingCacheMeterBinderProvider();
+    }
+}
@@ -0,0 +1,69 @@
+package jp.co.axa.apidemo.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Configuration class for the binary response formats, offered next to JSON for the callers that want
+ * smaller payloads and cheaper parsing: CBOR ({@code application/cbor}) and Smile
+ * ({@code application/x-jackson-smile}), selected through the Accept header.
+ * <p>
+ * Both converters use an ObjectMapper built by Spring Boot's {@link Jackson2ObjectMapperBuilder}, so the
+ * payloads hold the same fields as the JSON ones. Spring Boot puts them in place of the default CBOR and Smile
+ * converters, after the JSON one: JSON stays the format of the requests without an Accept header or
+ * accepting any type.
+ */
+@Configuration
+public class MessageConverterConfig implements WebMvcConfigurer {
+
+    /**
+     * Creates the converter reading and writing CBOR.
+     *
+     * @param builder The ObjectMapper builder configured by Spring Boot.
+     * @return The CBOR converter.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    /**
+     * Creates the converter reading and writing Smile.
+     *
+     * @param builder The ObjectMapper builder configured by Spring Boot.
+     * @return The Smile converter.
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    /**
+     * Adds {@code Vary: Accept} to the API responses, as their format now depends on the Accept header:
+     * a shared cache must not serve a CBOR response to a JSON client.
+     *
+     * @param registry The registry of the interceptors.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                return true;
+            }
+        }).addPathPatterns("/api/**");
+    }
+}
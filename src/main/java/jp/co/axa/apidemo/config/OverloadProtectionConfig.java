@@ -0,0 +1,140 @@
+package jp.co.axa.apidemo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jp.co.axa.apidemo.security.ConcurrencyLimitFilter;
+import jp.co.axa.apidemo.security.FailedAuthenticationRateLimitFilter;
+import jp.co.axa.apidemo.security.PrincipalRateLimitFilter;
+import jp.co.axa.apidemo.security.Role;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Configuration class for the admission control of the API requests.
+ * <p>
+ * The {@link ConcurrencyLimitFilter} sheds the requests over {@code overload.max-concurrent-requests}, and the
+ * event streams over {@code overload.max-concurrent-streams}, before they reach Spring Security. The {@link PrincipalRateLimitFilter} then limits each user to the rate of their
+ * role, {@code rate-limit.<role>.requests-per-second} with bursts of {@code rate-limit.<role>.burst}. It is added
+ * to the security filter chain by {@link SecurityConfig}, after authentication. Before authentication, the
+ * {@link FailedAuthenticationRateLimitFilter} limits the failed authentications of each claimed username to
+ * {@code rate-limit.failed-authentication.requests-per-second} with bursts of
+ * {@code rate-limit.failed-authentication.burst}, so that wrong passwords stop reaching bcrypt. Both can be turned
+ * off with {@code rate-limit.enabled=false}.
+ */
+@Configuration
+public class OverloadProtectionConfig {
+
+    @Value("${overload.max-concurrent-requests:400}")
+    private int maxConcurrentRequests;
+
+    @Value("${overload.max-concurrent-streams:100}")
+    private int maxConcurrentStreams;
+
+    @Value("${rate-limit.employee.requests-per-second:20}")
+    private double employeeRequestsPerSecond;
+
+    @Value("${rate-limit.employee.burst:40}")
+    private int employeeBurst;
+
+    @Value("${rate-limit.manager.requests-per-second:50}")
+    private double managerRequestsPerSecond;
+
+    @Value("${rate-limit.manager.burst:100}")
+    private int managerBurst;
+
+    @Value("${rate-limit.admin.requests-per-second:100}")
+    private double adminRequestsPerSecond;
+
+    @Value("${rate-limit.admin.burst:200}")
+    private int adminBurst;
+
+    @Value("${rate-limit.failed-authentication.requests-per-second:0.2}")
+    private double failedAuthenticationRequestsPerSecond;
+
+    @Value("${rate-limit.failed-authentication.burst:10}")
+    private int failedAuthenticationBurst;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Registers the filter shedding the API requests over the concurrency limit, just ahead of Spring Security.
+     *
+     * @return the registration of the filter
+     */
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter() {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration =
+                new FilterRegistrationBean<>(new ConcurrencyLimitFilter(maxConcurrentRequests, maxConcurrentStreams,
+                        meterRegistry));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+
+    /**
+     * Creates the filter limiting the rate of the API requests of every user.
+     *
+     * @return the filter
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+    public PrincipalRateLimitFilter principalRateLimitFilter() {
+        Map<Role, PrincipalRateLimitFilter.Limit> limits = new EnumMap<>(Role.class);
+        limits.put(Role.EMPLOYEE, new PrincipalRateLimitFilter.Limit(employeeRequestsPerSecond, employeeBurst));
+        limits.put(Role.MANAGER, new PrincipalRateLimitFilter.Limit(managerRequestsPerSecond, managerBurst));
+        limits.put(Role.ADMIN, new PrincipalRateLimitFilter.Limit(adminRequestsPerSecond, adminBurst));
+        return new PrincipalRateLimitFilter(limits, meterRegistry);
+    }
+
+    /**
+     * Keeps the servlet container from running the rate limiting filter on its own, outside of the security
+     * filter chain, where the user is not authenticated yet.
+     *
+     * @param filter the filter limiting the rate of the API requests
+     * @return the disabled registration of the filter
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<PrincipalRateLimitFilter> principalRateLimitFilterRegistration(
+            PrincipalRateLimitFilter filter) {
+        FilterRegistrationBean<PrincipalRateLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    /**
+     * Creates the filter limiting the rate of the failed authentications of every claimed username.
+     *
+     * @return the filter
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+    public FailedAuthenticationRateLimitFilter failedAuthenticationRateLimitFilter() {
+        return new FailedAuthenticationRateLimitFilter(failedAuthenticationRequestsPerSecond,
+                failedAuthenticationBurst, meterRegistry);
+    }
+
+    /**
+     * Keeps the servlet container from running the failed authentication filter on its own, outside of the
+     * security filter chain, where it would not see the outcome of the authentication.
+     *
+     * @param filter the filter limiting the rate of the failed authentications
+     * @return the disabled registration of the filter
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<FailedAuthenticationRateLimitFilter> failedAuthenticationRateLimitFilterRegistration(
+            FailedAuthenticationRateLimitFilter filter) {
+        FilterRegistrationBean<FailedAuthenticationRateLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+}
@@ -0,0 +1,139 @@
+package jp.co.axa.apidemo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jp.co.axa.apidemo.datasource.ReadYourWritesFilter;
+import jp.co.axa.apidemo.datasource.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+
+/**
+ * Configuration class routing read-only transactions to a replica database, enabled by
+ * {@code datasource.replica.enabled=true}.
+ * <p>
+ * The primary pool is configured by the usual {@code spring.datasource} properties and the replica pool by
+ * {@code datasource.replica.url}, {@code username}, {@code password} and {@code datasource.replica.hikari}.
+ * Both are exposed behind a single {@link Primary} DataSource used by JPA and JDBC.
+ * <p>
+ * The replica may lag behind the primary: with {@code datasource.replica.read-your-writes=true}, a request
+ * reads from the primary once it has written. A stale read must not be cached though, or it would be served
+ * until the entry expires, long after the replica has caught up: the lookups by ID that fill the caches read
+ * from the primary, lists and searches read from the replica are not cached, and the Hibernate second-level
+ * cache is turned off (see {@link SecondLevelCacheConfig}).
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Value("${datasource.replica.url}")
+    private String replicaUrl;
+
+    @Value("${datasource.replica.username:}")
+    private String replicaUsername;
+
+    @Value("${datasource.replica.password:}")
+    private String replicaPassword;
+
+    @Value("${datasource.replica.read-your-writes:true}")
+    private boolean readYourWrites;
+
+    @Value("${datasource.replica.initialize:false}")
+    private boolean initializeReplica;
+
+    @Value("${spring.jpa.open-in-view:true}")
+    private boolean openInView;
+
+    /**
+     * Creates the connection pool of the primary database.
+     *
+     * @param properties The {@code spring.datasource} properties.
+     * @return The primary DataSource.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * Creates the connection pool of the replica database. With {@code datasource.replica.initialize=true},
+     * the replica is initialized with the scripts of the primary, so that a second local database can stand
+     * in for a replica.
+     *
+     * @return The replica DataSource.
+     */
+    @Bean
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(replicaUrl);
+        dataSource.setUsername(replicaUsername);
+        dataSource.setPassword(replicaPassword);
+        if (initializeReplica) {
+            DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(
+                    new ClassPathResource("schema.sql"), new ClassPathResource("data.sql")), dataSource);
+        }
+        return dataSource;
+    }
+
+    /**
+     * Creates the DataSource used by the application, routing each transaction to the primary or the replica.
+     * <p>
+     * Open Session in View must be disabled: the session of a request would otherwise hold the connection
+     * of its first transaction, and send the following writes to the replica.
+     * <p>
+     * Both pools are injected lazily, and the proxy is initialized by the container rather than here: Spring Boot
+     * initializes the schema of this DataSource as soon as any DataSource bean is created, which would otherwise
+     * need this bean before it exists, and fail with a circular reference. The scripts run outside of any
+     * read-only transaction, and therefore against the primary.
+     *
+     * @param primaryDataSource The primary DataSource, resolved on first use.
+     * @param replicaDataSource The replica DataSource, resolved on first use.
+     * @return The routing DataSource.
+     * @throws IllegalStateException if {@code spring.jpa.open-in-view} is enabled.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Lazy @Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Lazy @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+        if (openInView) {
+            throw new IllegalStateException("spring.jpa.open-in-view must be false when datasource.replica.enabled is true.");
+        }
+        ReplicaRoutingDataSource routingDataSource =
+                new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, readYourWrites);
+        routingDataSource.afterPropertiesSet();
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy();
+        dataSource.setTargetDataSource(routingDataSource);
+        return dataSource;
+    }
+
+    /**
+     * Registers the filter keeping the reads of a request on the primary once it has written.
+     *
+     * @return The filter registration, disabled when {@code datasource.replica.read-your-writes=false}.
+     */
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter() {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        registration.setEnabled(readYourWrites);
+        return registration;
+    }
+}
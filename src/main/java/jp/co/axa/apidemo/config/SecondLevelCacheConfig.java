@@ -0,0 +1,128 @@
+package jp.co.axa.apidemo.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration class for the Hibernate second-level cache, held in Caffeine caches through JCache.
+ * <p>
+ * Employee entities are cached by ID in the {@value #EMPLOYEE_ENTITY_REGION} region, and the results of the
+ * paging, count and existence queries of employees in the {@value #EMPLOYEE_QUERY_REGION} region. A cached query
+ * result only holds the IDs of the employees, which are then read from the entity region: its entries should
+ * outlive those of the query region.
+ * <p>
+ * A write of an employee only evicts that employee from the entity region, the native writes of
+ * {@code EmployeeRepositoryCustomImpl} included, and invalidates the cached results of the queries reading the
+ * EMPLOYEE table. A bulk statement writing that table would evict the whole entity region, and none is used.
+ * Native statements writing other tables must declare them with {@code addSynchronizedQuerySpace}, or Hibernate
+ * evicts every region. Writes made outside of Hibernate are not seen, and leave stale entries until they expire.
+ * <p>
+ * The cache is turned off when reads are routed to a replica ({@code datasource.replica.enabled=true}): entities
+ * and query results read from a lagging replica would stay cached after it has caught up.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    /**
+     * Name of the region holding employee entities by their ID.
+     */
+    public static final String EMPLOYEE_ENTITY_REGION = "employeeEntity";
+
+    /**
+     * Name of the region holding the results of the employee queries.
+     */
+    public static final String EMPLOYEE_QUERY_REGION = "employeeQuery";
+
+    // Regions Hibernate creates when the query cache is enabled, whether or not a query uses them
+    private static final String DEFAULT_QUERY_RESULTS_REGION = "default-query-results-region";
+
+    private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    @Value("${second-level-cache.employee.maximum-size:10000}")
+    private long employeeMaximumSize;
+
+    @Value("${second-level-cache.employee.expire-after-write-seconds:600}")
+    private long employeeExpireAfterWriteSeconds;
+
+    @Value("${second-level-cache.query.maximum-size:1000}")
+    private long queryMaximumSize;
+
+    @Value("${second-level-cache.query.expire-after-write-seconds:60}")
+    private long queryExpireAfterWriteSeconds;
+
+    @Value("${datasource.replica.enabled:false}")
+    private boolean replicaEnabled;
+
+    /**
+     * Creates the JCache manager holding the regions of the second-level cache.
+     * <p>
+     * Its URI is unique, so that each application context started in the same JVM has its own regions.
+     *
+     * @return the cache manager
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("second-level-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(EMPLOYEE_ENTITY_REGION,
+                buildConfiguration(employeeMaximumSize, employeeExpireAfterWriteSeconds));
+        cacheManager.createCache(EMPLOYEE_QUERY_REGION,
+                buildConfiguration(queryMaximumSize, queryExpireAfterWriteSeconds));
+        cacheManager.createCache(DEFAULT_QUERY_RESULTS_REGION,
+                buildConfiguration(queryMaximumSize, queryExpireAfterWriteSeconds));
+        // Never evicted: a missing timestamp would let a query result cached before a write be read after it
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStatisticsEnabled(true);
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, timestamps);
+        return cacheManager;
+    }
+
+    /**
+     * Hands the JCache manager over to Hibernate, which fails to start if an entity or a query uses a region
+     * not created by {@link #secondLevelCacheManager()}. Turns the second-level and query caches off when a
+     * replica is configured.
+     *
+     * @param secondLevelCacheManager the JCache manager holding the regions of the second-level cache
+     * @return the customizer of the Hibernate properties
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            if (replicaEnabled) {
+                properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, Boolean.FALSE.toString());
+                properties.put(AvailableSettings.USE_QUERY_CACHE, Boolean.FALSE.toString());
+            }
+        };
+    }
+
+    /**
+     * Builds the configuration of a bounded Caffeine region.
+     *
+     * @param maximumSize             the maximum number of entries kept in the region
+     * @param expireAfterWriteSeconds the number of seconds after which an entry expires once written
+     * @return the configuration of the region
+     */
+    private static CaffeineConfiguration<Object, Object> buildConfiguration(long maximumSize,
+                                                                           long expireAfterWriteSeconds) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(expireAfterWriteSeconds)));
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
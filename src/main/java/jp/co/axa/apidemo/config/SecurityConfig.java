@@ -1,14 +1,27 @@
 package jp.co.axa.apidemo.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jp.co.axa.apidemo.security.CachingAuthenticationProvider;
+import jp.co.axa.apidemo.security.CachingUserDetailsManager;
+import jp.co.axa.apidemo.security.FailedAuthenticationRateLimitFilter;
+import jp.co.axa.apidemo.security.PrincipalRateLimitFilter;
 import jp.co.axa.apidemo.security.Role;
+import jp.co.axa.apidemo.security.TimedAuthenticationProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.metrics.export.prometheus.PrometheusScrapeEndpoint;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
-import org.springframework.security.provisioning.JdbcUserDetailsManager;
 import org.springframework.security.provisioning.UserDetailsManager;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
 import javax.sql.DataSource;
 
@@ -25,16 +38,56 @@ import javax.sql.DataSource;
 @EnableWebSecurity
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private PrincipalRateLimitFilter principalRateLimitFilter;
+
+    @Autowired(required = false)
+    private FailedAuthenticationRateLimitFilter failedAuthenticationRateLimitFilter;
+
     /**
      * Returns an instance of UserDetailsManager.
      *
-     * @param dataSource The data source used to create the UserDetailsManager
+     * The returned manager caches the users and authorities rows, and evicts them whenever a user is changed.
+     *
      * @return An instance of UserDetailsManager
      */
     @Bean
-    public UserDetailsManager userDetailsManager(DataSource dataSource) {
+    public UserDetailsManager userDetailsManager() {
 
-        return new JdbcUserDetailsManager(dataSource);
+        return new CachingUserDetailsManager(dataSource, cacheManager);
+    }
+
+    /**
+     * Configures the authentication manager.
+     *
+     * The bcrypt verification performed by the {@link DaoAuthenticationProvider} is wrapped by a
+     * {@link CachingAuthenticationProvider}, so repeated requests with the same credentials skip both the
+     * JDBC lookups and bcrypt for as long as the verification stays cached.
+     *
+     * Both layers are timed: {@code security.authentication} covers every authentication, and
+     * {@code security.authentication.verification} only the cache misses, spent in JDBC and bcrypt.
+     *
+     * @param auth The {@link AuthenticationManagerBuilder} used to configure authentication
+     */
+    @Override
+    protected void configure(AuthenticationManagerBuilder auth) {
+        DaoAuthenticationProvider daoAuthenticationProvider = new DaoAuthenticationProvider();
+        daoAuthenticationProvider.setUserDetailsService(userDetailsManager());
+
+        TimedAuthenticationProvider verificationProvider = new TimedAuthenticationProvider(daoAuthenticationProvider,
+                meterRegistry, "security.authentication.verification", "Password verification with JDBC and bcrypt");
+        CachingAuthenticationProvider cachingProvider = new CachingAuthenticationProvider(verificationProvider, cacheManager);
+        auth.authenticationProvider(new TimedAuthenticationProvider(cachingProvider,
+                meterRegistry, "security.authentication", "Authentication of a request, cached or not"));
     }
 
     /**
@@ -57,6 +110,10 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
      * authenticated. It then calls {@link HttpSecurity#httpBasic()} to enable HTTP Basic
      * authentication. Finally, it disables CSRF protection by calling {@link HttpSecurity#csrf()}.
      *
+     * Unless disabled, the {@link PrincipalRateLimitFilter} runs right after the basic authentication,
+     * once the user and their roles are known, and the {@link FailedAuthenticationRateLimitFilter} right before
+     * it, so that the usernames with too many failed authentications are rejected before bcrypt.
+     *
      * @param http The {@link HttpSecurity} object used to configure the security settings
      * @throws Exception If an error occurs while configuring the security settings
      */
@@ -65,15 +122,31 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         http.authorizeRequests()
                 .regexMatchers(HttpMethod.GET, "/api/v1/employees").hasRole(Role.EMPLOYEE.toString())
                 .regexMatchers(HttpMethod.GET, "/api/v1/employees/.*").hasRole(Role.EMPLOYEE.toString())
+                .regexMatchers(HttpMethod.POST, "/api/v1/employees/lookup").hasRole(Role.EMPLOYEE.toString())
+                .regexMatchers(HttpMethod.GET, "/api/v1/async/employees.*").hasRole(Role.EMPLOYEE.toString())
+                .regexMatchers(HttpMethod.POST, "/api/v1/async/employees/lookup").hasRole(Role.EMPLOYEE.toString())
                 .regexMatchers(HttpMethod.POST, "/api/v1/employees").hasRole(Role.MANAGER.toString())
+                .regexMatchers(HttpMethod.POST, "/api/v1/employees/batch").hasRole(Role.MANAGER.toString())
+                .regexMatchers(HttpMethod.POST, "/api/v1/employees/import.*").hasRole(Role.ADMIN.toString())
                 .regexMatchers(HttpMethod.PUT, "/api/v1/employees/.*").hasRole(Role.ADMIN.toString())
+                .regexMatchers(HttpMethod.PATCH, "/api/v1/employees/.*").hasRole(Role.ADMIN.toString())
                 .regexMatchers(HttpMethod.DELETE, "/api/v1/employees/.*").hasRole(Role.ADMIN.toString())
+                .regexMatchers(HttpMethod.GET, "/api/v1/departments/.*").hasRole(Role.MANAGER.toString())
+                .regexMatchers(HttpMethod.POST, "/api/v1/departments/.*").hasRole(Role.ADMIN.toString())
                 .antMatchers("/h2-console/.*").permitAll() // Allow all requests to H2 console for development purposes
+                .requestMatchers(EndpointRequest.to(HealthEndpoint.class, PrometheusScrapeEndpoint.class)).permitAll() // Management port is bound to localhost only
                 .anyRequest().authenticated()
                 .and()
                 .httpBasic()
                 .and()
                 .csrf().disable()
                 .headers().frameOptions().disable(); // Add this line to disable X-Frame-Options for development purposes
+
+        if (principalRateLimitFilter != null) {
+            http.addFilterAfter(principalRateLimitFilter, BasicAuthenticationFilter.class);
+        }
+        if (failedAuthenticationRateLimitFilter != null) {
+            http.addFilterBefore(failedAuthenticationRateLimitFilter, BasicAuthenticationFilter.class);
+        }
     }
 }
@@ -0,0 +1,214 @@
+package jp.co.axa.apidemo.controllers;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import jp.co.axa.apidemo.config.AsyncReadConfig;
+import jp.co.axa.apidemo.dto.EmployeeLookupResult;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.exception.EmployeeBadRequestException;
+import jp.co.axa.apidemo.exception.EmployeeNotFoundException;
+import jp.co.axa.apidemo.services.EmployeeETags;
+import jp.co.axa.apidemo.services.EmployeeExportService;
+import jp.co.axa.apidemo.services.EmployeeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * The AsyncEmployeeController class serves the read endpoints of {@link EmployeeController} without holding a
+ * servlet thread while the database is queried.
+ * <p>
+ * Each request is handed to the read executor configured by {@link AsyncReadConfig} and the servlet thread is
+ * released; the response is written once the returned future completes. Requests and responses are the same
+ * as those of the blocking endpoints, under {@code /api/v1/async}. When the executor queue is full the request
+ * is rejected with 503 (Service Unavailable).
+ */
+@Api(value = "Employees Management System (asynchronous reads)", description = "Read operations on employees that do not hold a servlet thread")
+@RestController
+@RequestMapping("/api/v1/async")
+public class AsyncEmployeeController {
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private EmployeeExportService employeeExportService;
+
+    @Autowired
+    @Qualifier(AsyncReadConfig.READ_EXECUTOR)
+    private AsyncTaskExecutor readExecutor;
+
+    @Value("${async.read.export-timeout-ms:600000}")
+    private long exportTimeoutMillis;
+
+    /**
+     * Retrieves a page of employees, like {@link EmployeeController#getEmployees}.
+     *
+     * @param page The number of the page to retrieve. The default value is 0 if not provided.
+     * @param size The number of employees to retrieve per page. The default value is 10 if not provided.
+     * @param accept The Accept header of the request, which selects the encoding the ETag is computed for.
+     * @return A future of the ResponseEntity containing the employees for the specified page and its ETag
+     * @throws TaskRejectedException if the read executor is saturated
+     */
+    @ApiOperation(
+            value = "Get Employees (asynchronous)",
+            notes = "Retrieves a page of employees, with configurable page number and size, off the servlet thread.")
+    @GetMapping("/employees")
+    public CompletableFuture<ResponseEntity<Page<Employee>>> getEmployees(@RequestParam(defaultValue = "0") int page,
+                                                                          @RequestParam(defaultValue = "10") int size,
+                                                                          @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        return supplyAsync(() -> {
+            Page<Employee> employees = employeeService.retrieveEmployees(page, size);
+            return ResponseEntity.ok().eTag(EmployeeETags.encoded(EmployeeETags.of(employees), accept)).body(employees);
+        });
+    }
+
+    /**
+     * Retrieves many employees by ID in a single call, like {@link EmployeeController#getEmployeesByIds}.
+     *
+     * @param ids the comma-separated IDs of the employees to retrieve
+     * @return a future of the ResponseEntity containing one item per requested ID, in request order
+     * @throws EmployeeBadRequestException if an ID is malformed, or if no ID or too many IDs are given
+     * @throws TaskRejectedException if the read executor is saturated
+     */
+    @ApiOperation(
+            value = "Get Employees By IDs (asynchronous)",
+            notes = "Retrieves many employees by their comma-separated IDs, off the servlet thread.")
+    @GetMapping(value = "/employees", params = "ids")
+    public CompletableFuture<ResponseEntity<EmployeeLookupResult>> getEmployeesByIds(@RequestParam String ids) {
+
+        List<Long> employeeIds = EmployeeController.parseIds(ids);
+
+        return supplyAsync(() -> new ResponseEntity<>(employeeService.getEmployees(employeeIds), HttpStatus.OK));
+    }
+
+    /**
+     * Retrieves many employees by ID in a single call, like {@link EmployeeController#lookupEmployees}.
+     *
+     * @param ids the IDs of the employees to retrieve
+     * @return a future of the ResponseEntity containing one item per requested ID, in request order
+     * @throws EmployeeBadRequestException if no ID, too many IDs or a null ID is given
+     * @throws TaskRejectedException if the read executor is saturated
+     */
+    @ApiOperation(
+            value = "Lookup Employees (asynchronous)",
+            notes = "Retrieves many employees by the IDs given in the request body, off the servlet thread.")
+    @PostMapping("/employees/lookup")
+    public CompletableFuture<ResponseEntity<EmployeeLookupResult>> lookupEmployees(@RequestBody List<Long> ids) {
+
+        return supplyAsync(() -> new ResponseEntity<>(employeeService.getEmployees(ids), HttpStatus.OK));
+    }
+
+    /**
+     * Streams every employee as NDJSON or CSV, like {@link EmployeeController#exportEmployees}.
+     *
+     * The export runs on the read executor and may take up to {@code async.read.export-timeout-ms}.
+     *
+     * @param accept   the Accept header of the request
+     * @param response the response the employees are written to
+     * @return the task writing the employees to the response
+     * @throws TaskRejectedException if the read executor is saturated
+     */
+    @ApiOperation(
+            value = "Export Employees (asynchronous)",
+            notes = "Streams every employee as NDJSON or CSV, chosen through the Accept header, off the servlet thread.")
+    @GetMapping(value = "/employees/export",
+            produces = {EmployeeController.NDJSON_VALUE, EmployeeController.CSV_VALUE})
+    public WebAsyncTask<Void> exportEmployees(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                              HttpServletResponse response) {
+
+        boolean csv = EmployeeController.prefersCsv(accept);
+        if (csv) {
+            response.setContentType(EmployeeController.CSV_VALUE + ";charset=UTF-8");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=employees.csv");
+        } else {
+            response.setContentType(EmployeeController.NDJSON_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=employees.ndjson");
+        }
+
+        return new WebAsyncTask<>(exportTimeoutMillis, readExecutor, () -> {
+            if (csv) {
+                employeeExportService.exportAsCsv(response.getOutputStream());
+            } else {
+                employeeExportService.exportAsNdjson(response.getOutputStream());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Retrieves an employee by their employee ID, like {@link EmployeeController#getEmployee}.
+     *
+     * A request carrying a matching If-None-Match header is answered with 304 (Not Modified) from the version
+     * of the employee alone.
+     *
+     * @param employeeId  the ID of the employee to retrieve
+     * @param ifNoneMatch the If-None-Match header of the request
+     * @param accept      the Accept header of the request, which selects the encoding the ETag is computed for
+     * @return a future of the ResponseEntity containing the employee and its ETag
+     * @throws EmployeeNotFoundException if the employee with the specified ID is not found
+     * @throws TaskRejectedException if the read executor is saturated
+     */
+    @ApiOperation(
+            value = "Get Employee (asynchronous)",
+            notes = "Retrieve a single employee by their employee ID, off the servlet thread.")
+    @GetMapping("/employees/{employeeId}")
+    public CompletableFuture<ResponseEntity<?>> getEmployee(@PathVariable(name = "employeeId") Long employeeId,
+                                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        return supplyAsync(() -> {
+            if (ifNoneMatch != null) {
+                String eTag = EmployeeETags.encoded(
+                        EmployeeETags.of(employeeId, employeeService.getEmployeeVersion(employeeId)), accept);
+                if (EmployeeETags.matches(ifNoneMatch, eTag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+                }
+            }
+            Employee emp = employeeService.getEmployee(employeeId);
+            return ResponseEntity.ok().eTag(EmployeeETags.encoded(EmployeeETags.of(emp), accept)).body(emp);
+        });
+    }
+
+    /**
+     * Runs a read on the read executor. Unlike {@link CompletableFuture#supplyAsync}, the future is completed with
+     * the exception thrown by the read itself rather than a CompletionException wrapping it, so that it reaches
+     * its own handler in {@code GlobalRestExceptionHandler}.
+     *
+     * @param read the read to run
+     * @return the future of the result of the read
+     * @throws TaskRejectedException if the read executor is saturated
+     */
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> read) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        readExecutor.execute(() -> {
+            try {
+                future.complete(read.get());
+            } catch (RuntimeException | Error ex) {
+                future.completeExceptionally(ex);
+            }
+        });
+        return future;
+    }
+}
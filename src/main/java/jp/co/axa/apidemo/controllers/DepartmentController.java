@@ -0,0 +1,73 @@
+package jp.co.axa.apidemo.controllers;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import jp.co.axa.apidemo.dto.DepartmentStats;
+import jp.co.axa.apidemo.dto.DepartmentStatsReconciliation;
+import jp.co.axa.apidemo.exception.EmployeeNotFoundException;
+import jp.co.axa.apidemo.services.DepartmentStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * The DepartmentController class is a RESTful API controller that serves salary statistics per department.
+ * The statistics are served from memory: the EMPLOYEE table is only read to build or reconcile them.
+ */
+@Api(value = "Department Statistics", description = "Salary statistics per department")
+@RestController
+@RequestMapping("/api/v1")
+public class DepartmentController {
+
+    @Autowired
+    private DepartmentStatsService departmentStatsService;
+
+    /**
+     * Retrieves the salary statistics of every department.
+     *
+     * @return The statistics of every department, ordered by department name.
+     */
+    @ApiOperation(
+            value = "Get Department Statistics",
+            notes = "Retrieves headcount, total, min, max and average salary of every department.")
+    @GetMapping("/departments/stats")
+    public List<DepartmentStats> getDepartmentStats() {
+
+        return departmentStatsService.getAllStats();
+    }
+
+    /**
+     * Retrieves the salary statistics of a single department.
+     *
+     * @param department the name of the department
+     * @return The statistics of the department.
+     * @throws EmployeeNotFoundException if no employee belongs to the department
+     */
+    @ApiOperation(
+            value = "Get Department Statistic",
+            notes = "Retrieves headcount, total, min, max and average salary of a single department.")
+    @GetMapping("/departments/{department}/stats")
+    public DepartmentStats getDepartmentStats(@PathVariable(name = "department") String department) {
+
+        return departmentStatsService.getStats(department);
+    }
+
+    /**
+     * Compares the statistics with a GROUP BY query on the EMPLOYEE table, and rebuilds them if they differ.
+     *
+     * @return A DepartmentStatsReconciliation describing the differences found.
+     */
+    @ApiOperation(
+            value = "Reconcile Department Statistics",
+            notes = "Checks the in-memory statistics against the database and rebuilds them if they differ.")
+    @PostMapping("/departments/stats/reconcile")
+    public DepartmentStatsReconciliation reconcileDepartmentStats() {
+
+        return departmentStatsService.reconcile();
+    }
+}
@@ -2,19 +2,44 @@ package jp.co.axa.apidemo.controllers;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import jp.co.axa.apidemo.dto.EmployeeBatchResult;
+import jp.co.axa.apidemo.dto.EmployeeChangePage;
+import jp.co.axa.apidemo.dto.EmployeeCursorPage;
+import jp.co.axa.apidemo.dto.EmployeeImportResult;
+import jp.co.axa.apidemo.dto.EmployeeLookupResult;
+import jp.co.axa.apidemo.dto.EmployeePatch;
 import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.exception.EmployeeBadRequestException;
 import jp.co.axa.apidemo.exception.EmployeeDuplicateException;
 import jp.co.axa.apidemo.exception.EmployeeNotFoundException;
+import jp.co.axa.apidemo.exception.EmployeePreconditionFailedException;
+import jp.co.axa.apidemo.services.EmployeeBatchService;
+import jp.co.axa.apidemo.services.EmployeeChangeService;
+import jp.co.axa.apidemo.services.EmployeeETags;
+import jp.co.axa.apidemo.services.EmployeeExportService;
+import jp.co.axa.apidemo.services.EmployeeFields;
+import jp.co.axa.apidemo.services.EmployeeImportService;
 import jp.co.axa.apidemo.services.EmployeeService;
+import jp.co.axa.apidemo.services.EmployeeWriteBehindService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * The EmployeeController class is a RESTful API controller that handles requests related to employees. It provides
@@ -26,33 +51,251 @@ import javax.validation.Valid;
 @RequestMapping("/api/v1")
 public class EmployeeController {
 
+    // Media type of newline-delimited JSON, one employee object per line.
+    static final String NDJSON_VALUE = "application/x-ndjson";
+
+    // Media type of comma-separated values, one employee per line after a header line.
+    static final String CSV_VALUE = "text/csv";
+
     @Autowired
     private EmployeeService employeeService;
 
+    @Autowired
+    private EmployeeExportService employeeExportService;
+
+    @Autowired
+    private EmployeeImportService employeeImportService;
+
+    @Autowired
+    private EmployeeBatchService employeeBatchService;
+
+    @Autowired
+    private EmployeeChangeService employeeChangeService;
+
+    @Autowired
+    private EmployeeWriteBehindService employeeWriteBehindService;
+
     /**
      * Retrieves a page of employees.
      *
-     * @param page The number of the page to retrieve. The default value is 0 if not provided.
-     * @param size The number of employees to retrieve per page. The default value is 10 if not provided.
-     * @return A Page object containing the employees for the specified page.
+     * When {@code fields} is given, only these fields are selected from the database and returned.
+     *
+     * @param page   The number of the page to retrieve. The default value is 0 if not provided.
+     * @param size   The number of employees to retrieve per page. The default value is 10 if not provided.
+     * @param fields The comma-separated fields to return, among id, name, salary, department and version.
+     *               Every field is returned if not provided.
+     * @param accept The Accept header of the request, which selects the encoding the ETag is computed for.
+     * @return A ResponseEntity containing the employees for the specified page and its ETag,
+     *         or 304 (Not Modified) if the ETag matches the If-None-Match header
+     * @throws EmployeeBadRequestException if a field is unknown
      */
     @ApiOperation(
             value = "Get Employees",
-            notes = "Retrieves a page of employees, with configurable page number and size.")
+            notes = "Retrieves a page of employees, with configurable page number and size, optionally limited to the given fields.")
     @GetMapping("/employees")
-    public Page<Employee> getEmployees(@RequestParam(defaultValue = "0") int page,
-                                       @RequestParam(defaultValue = "10") int size) {
+    public ResponseEntity<? extends Page<?>> getEmployees(@RequestParam(defaultValue = "0") int page,
+                                                          @RequestParam(defaultValue = "10") int size,
+                                                          @RequestParam(required = false) String fields,
+                                                          @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        if (fields != null) {
+            List<String> selected = EmployeeFields.parse(fields);
+            Page<Map<String, Object>> employees = employeeService.retrieveEmployeeFields(page, size, selected);
+            return ResponseEntity.ok()
+                    .eTag(EmployeeETags.encoded(EmployeeETags.ofFields(employees, selected), accept)).body(employees);
+        }
 
         Page<Employee> employees = employeeService.retrieveEmployees(page, size);
 
-        return employees;
+        return ResponseEntity.ok().eTag(EmployeeETags.encoded(EmployeeETags.of(employees), accept)).body(employees);
+    }
+
+    /**
+     * Retrieves a batch of employees using keyset (cursor) pagination.
+     * <p>
+     * This mapping is selected when the {@code limit} parameter is present. Unlike page-based retrieval,
+     * its latency stays flat however deep the client pages, and no total count is returned.
+     *
+     * @param after The opaque cursor returned as {@code nextCursor} by the previous call. Omit it for the first batch.
+     * @param limit The maximum number of employees to retrieve.
+     * @param accept The Accept header of the request, which selects the encoding the ETag is computed for.
+     * @return A ResponseEntity containing the employees, the cursor of the next batch and the ETag of the batch,
+     *         or 304 (Not Modified) if the ETag matches the If-None-Match header
+     * @throws EmployeeBadRequestException if the cursor or the limit is invalid
+     */
+    @ApiOperation(
+            value = "Get Employees After Cursor",
+            notes = "Retrieves a batch of employees after the given cursor, ordered by employee ID.")
+    @GetMapping(value = "/employees", params = "limit")
+    public ResponseEntity<EmployeeCursorPage> getEmployeesAfter(@RequestParam(required = false) String after,
+                                                                @RequestParam int limit,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        EmployeeCursorPage employees = employeeService.retrieveEmployeesAfter(after, limit);
+
+        return ResponseEntity.ok().eTag(EmployeeETags.encoded(EmployeeETags.of(employees), accept)).body(employees);
+    }
+
+    /**
+     * Retrieves many employees by ID in a single call.
+     *
+     * This mapping is selected when the {@code ids} parameter is present. Cached employees are served from the
+     * cache and the others are fetched with one query; IDs matching no employee are reported as not found.
+     *
+     * @param ids the comma-separated IDs of the employees to retrieve
+     * @return a ResponseEntity containing one item per requested ID, in request order
+     * @throws EmployeeBadRequestException if an ID is malformed, or if no ID or too many IDs are given
+     */
+    @ApiOperation(
+            value = "Get Employees By IDs",
+            notes = "Retrieves many employees by their comma-separated IDs, marking the IDs that were not found.")
+    @GetMapping(value = "/employees", params = "ids")
+    public ResponseEntity<EmployeeLookupResult> getEmployeesByIds(@RequestParam String ids) {
+
+        return new ResponseEntity<>(employeeService.getEmployees(parseIds(ids)), HttpStatus.OK);
+    }
+
+    /**
+     * Retrieves many employees by ID in a single call, for ID lists too long for a query string.
+     *
+     * @param ids the IDs of the employees to retrieve
+     * @return a ResponseEntity containing one item per requested ID, in request order
+     * @throws EmployeeBadRequestException if no ID, too many IDs or a null ID is given
+     */
+    @ApiOperation(
+            value = "Lookup Employees",
+            notes = "Retrieves many employees by the IDs given in the request body, marking the IDs that were not found.")
+    @PostMapping("/employees/lookup")
+    public ResponseEntity<EmployeeLookupResult> lookupEmployees(@RequestBody List<Long> ids) {
+
+        return new ResponseEntity<>(employeeService.getEmployees(ids), HttpStatus.OK);
+    }
+
+    /**
+     * Searches employees by department, salary range and name prefix.
+     *
+     * Every criterion is optional and the given ones are combined; the matching employees are returned
+     * page by page, ordered by employee ID.
+     *
+     * @param department the exact department of the employees
+     * @param minSalary  the lowest salary, inclusive
+     * @param maxSalary  the highest salary, inclusive
+     * @param namePrefix the case-insensitive beginning of the employee name
+     * @param page       the number of the page to retrieve. The default value is 0 if not provided.
+     * @param size       the number of employees to retrieve per page. The default value is 10 if not provided.
+     * @param fields     the comma-separated fields to return; every field is returned if not provided
+     * @param accept     the Accept header of the request, which selects the encoding the ETag is computed for
+     * @return a ResponseEntity containing the matching employees for the specified page and its ETag,
+     *         or 304 (Not Modified) if the ETag matches the If-None-Match header
+     * @throws EmployeeBadRequestException if minSalary is greater than maxSalary, or if a field is unknown
+     */
+    @ApiOperation(
+            value = "Search Employees",
+            notes = "Retrieves a page of employees filtered by department, salary range and name prefix, optionally limited to the given fields.")
+    @GetMapping("/employees/search")
+    public ResponseEntity<? extends Page<?>> searchEmployees(@RequestParam(required = false) String department,
+                                                             @RequestParam(required = false) Integer minSalary,
+                                                             @RequestParam(required = false) Integer maxSalary,
+                                                             @RequestParam(required = false) String namePrefix,
+                                                             @RequestParam(defaultValue = "0") int page,
+                                                             @RequestParam(defaultValue = "10") int size,
+                                                             @RequestParam(required = false) String fields,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        if (fields != null) {
+            List<String> selected = EmployeeFields.parse(fields);
+            Page<Map<String, Object>> employees = employeeService.searchEmployeeFields(department, minSalary,
+                    maxSalary, namePrefix, page, size, selected);
+            return ResponseEntity.ok()
+                    .eTag(EmployeeETags.encoded(EmployeeETags.ofFields(employees, selected), accept)).body(employees);
+        }
+
+        Page<Employee> employees =
+                employeeService.searchEmployees(department, minSalary, maxSalary, namePrefix, page, size);
+
+        return ResponseEntity.ok().eTag(EmployeeETags.encoded(EmployeeETags.of(employees), accept)).body(employees);
+    }
+
+    /**
+     * Retrieves a batch of the employee change log, so that mirrors only transfer what changed since they last synced.
+     *
+     * @param since the sequence number of the last change already applied, 0 to read the whole log
+     * @param limit the maximum number of changes to retrieve. The default value is 100 if not provided.
+     * @return a ResponseEntity containing the changes in sequence order and the sequence number to pass next
+     * @throws EmployeeBadRequestException if since is negative or the limit is invalid
+     */
+    @ApiOperation(
+            value = "Get Employee Changes",
+            notes = "Retrieves the employee creations, updates and deletions recorded after the given sequence number.")
+    @GetMapping("/employees/changes")
+    public ResponseEntity<EmployeeChangePage> getEmployeeChanges(@RequestParam(defaultValue = "0") long since,
+                                                                 @RequestParam(defaultValue = "100") int limit) {
+
+        return new ResponseEntity<>(employeeChangeService.getChanges(since, limit), HttpStatus.OK);
+    }
+
+    /**
+     * Streams the employee change log as Server-Sent Events, whose IDs are the sequence numbers of the changes.
+     *
+     * A reconnecting client resumes after the Last-Event-ID header it sends. Without it nor {@code since},
+     * only the changes recorded from now on are streamed.
+     *
+     * @param since       the sequence number of the last change already applied
+     * @param lastEventId the ID of the last event received, sent by reconnecting clients, taking precedence over since
+     * @return the SseEmitter streaming the changes
+     * @throws EmployeeBadRequestException if since is negative
+     */
+    @ApiOperation(
+            value = "Stream Employee Changes",
+            notes = "Streams the employee changes as Server-Sent Events, from the given sequence number or from now on.")
+    @GetMapping(value = "/employees/changes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEmployeeChanges(@RequestParam(required = false) Long since,
+                                            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+
+        return employeeChangeService.streamChanges(lastEventId != null ? lastEventId : since);
+    }
+
+    /**
+     * Streams every employee, as NDJSON (the default) or CSV depending on the Accept header.
+     *
+     * Rows are written to the response as they are read from the database, so memory use stays flat
+     * regardless of the number of employees.
+     *
+     * @param accept   the Accept header of the request
+     * @param response the response the employees are written to
+     * @throws IOException if writing the response fails
+     */
+    @ApiOperation(
+            value = "Export Employees",
+            notes = "Streams every employee as NDJSON or CSV, chosen through the Accept header.")
+    @GetMapping(value = "/employees/export", produces = {NDJSON_VALUE, CSV_VALUE})
+    public void exportEmployees(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                HttpServletResponse response) throws IOException {
+
+        if (prefersCsv(accept)) {
+            response.setContentType(CSV_VALUE + ";charset=UTF-8");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=employees.csv");
+            employeeExportService.exportAsCsv(response.getOutputStream());
+        } else {
+            response.setContentType(NDJSON_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=employees.ndjson");
+            employeeExportService.exportAsNdjson(response.getOutputStream());
+        }
     }
 
     /**
      * Retrieves an employee by their employee ID.
      *
-     * @param employeeId the ID of the employee to retrieve
-     * @return a ResponseEntity representing the response containing the employee
+     * When the request carries an If-None-Match header, the current ETag is computed from the version of the
+     * employee alone, so a 304 (Not Modified) response is returned without loading or serializing the employee.
+     * A sparse fieldset carries the ETag of its values instead, which does not change when other fields do.
+     *
+     * @param employeeId  the ID of the employee to retrieve
+     * @param fields      the comma-separated fields to return; every field is returned if not provided
+     * @param ifNoneMatch the If-None-Match header of the request
+     * @param accept      the Accept header of the request, which selects the encoding the ETag is computed for
+     * @return a ResponseEntity representing the response containing the employee and its ETag
+     * @throws EmployeeBadRequestException if a field is unknown
      * @throws EmployeeNotFoundException if the employee with the specified ID is not found
      * @throws DataAccessException       if there is a database error
      * @throws Exception                 if an unexpected error occurs
@@ -61,12 +304,29 @@ public class EmployeeController {
             value = "Get Employee",
             notes = "Retrieve a single employee by their employee ID.")
     @GetMapping("/employees/{employeeId}")
-    public ResponseEntity<?> getEmployee(@PathVariable(name = "employeeId") Long employeeId) {
+    public ResponseEntity<?> getEmployee(@PathVariable(name = "employeeId") Long employeeId,
+                                         @RequestParam(required = false) String fields,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        if (fields != null) {
+            Map<String, Object> values = employeeService.getEmployeeFields(employeeId, EmployeeFields.parse(fields));
+            return ResponseEntity.ok().eTag(EmployeeETags.encoded(EmployeeETags.ofFields(values), accept)).body(values);
+        }
+
+        // Answers conditional requests from the version alone.
+        if (ifNoneMatch != null) {
+            String eTag = EmployeeETags.encoded(
+                    EmployeeETags.of(employeeId, employeeService.getEmployeeVersion(employeeId)), accept);
+            if (EmployeeETags.matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+        }
 
         // Retrieves an employee by their employee ID.
         Employee emp = employeeService.getEmployee(employeeId);
 
-        return new ResponseEntity<>(emp, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(EmployeeETags.encoded(EmployeeETags.of(emp), accept)).body(emp);
     }
 
     /**
@@ -74,6 +334,7 @@ public class EmployeeController {
      *
      * @param employee the employee to be saved
      * @return a ResponseEntity representing the response containing the saved employee
+     * @throws EmployeeDuplicateException if the employee carries the ID of an existing employee
      */
     @ApiOperation(
             value = "Save Employee",
@@ -81,68 +342,202 @@ public class EmployeeController {
     @PostMapping("/employees")
     public ResponseEntity<?> saveEmployee(@Valid @RequestBody Employee employee) {
 
-        if (employee.getId() != null && checkEmployeeExists(employee.getId())) {
-            throw new EmployeeDuplicateException("Employee with this ID already exists.");
+        return employeeService.saveEmployee(employee);
+    }
+
+    /**
+     * Saves many employees at once.
+     *
+     * Each item is validated on its own and reported in the result; valid items are inserted in chunked
+     * transactions using JDBC batching.
+     *
+     * @param employees the employees to be saved, without IDs
+     * @return a ResponseEntity containing the outcome of every item, in request order
+     * @throws EmployeeBadRequestException if the batch is empty or too large
+     */
+    @ApiOperation(
+            value = "Save Employees",
+            notes = "Saves many new employees to the database in batches, reporting the outcome of each item.")
+    @PostMapping("/employees/batch")
+    public ResponseEntity<EmployeeBatchResult> saveEmployees(@RequestBody List<Employee> employees) {
+
+        return new ResponseEntity<>(employeeBatchService.createEmployees(employees), HttpStatus.OK);
+    }
+
+    /**
+     * Updates many employees at once.
+     *
+     * Each item is validated on its own and reported in the result; valid items are updated in chunked
+     * transactions using JDBC batching.
+     *
+     * @param employees the updated employees, with their IDs
+     * @return a ResponseEntity containing the outcome of every item, in request order
+     * @throws EmployeeBadRequestException if the batch is empty or too large
+     */
+    @ApiOperation(
+            value = "Update Employees",
+            notes = "Updates many existing employees in batches, reporting the outcome of each item.")
+    @PutMapping("/employees/batch")
+    public ResponseEntity<EmployeeBatchResult> updateEmployees(@RequestBody List<Employee> employees) {
+
+        return new ResponseEntity<>(employeeBatchService.updateEmployees(employees), HttpStatus.OK);
+    }
+
+    /**
+     * Imports employees from an uploaded NDJSON or CSV file, chosen by the Content-Type header.
+     *
+     * The body is parsed incrementally and written in chunks, each chunk in its own transaction: rows without
+     * an ID are inserted and rows with an ID update the existing employee. A failed chunk does not roll back
+     * the chunks committed before it.
+     *
+     * @param contentType the Content-Type header of the request
+     * @param chunkSize   the number of rows per transaction; the configured default applies when omitted
+     * @param request     the request whose body holds the file
+     * @return a ResponseEntity containing the counters, throughput and row errors of the import
+     * @throws IOException if reading the request body fails
+     * @throws EmployeeBadRequestException if the chunk size or the CSV header is invalid
+     */
+    @ApiOperation(
+            value = "Import Employees",
+            notes = "Imports employees from an NDJSON or CSV upload, committing in chunks and reporting row errors.")
+    @PostMapping(value = "/employees/import", consumes = {NDJSON_VALUE, CSV_VALUE})
+    public ResponseEntity<EmployeeImportResult> importEmployees(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @RequestParam(required = false) Integer chunkSize,
+            HttpServletRequest request) throws IOException {
+
+        EmployeeImportResult result;
+        if (MediaType.valueOf(CSV_VALUE).includes(MediaType.parseMediaType(contentType))) {
+            result = employeeImportService.importCsv(request.getInputStream(), chunkSize);
+        } else {
+            result = employeeImportService.importNdjson(request.getInputStream(), chunkSize);
         }
 
-        return employeeService.saveEmployee(employee);
+        return new ResponseEntity<>(result, HttpStatus.OK);
     }
 
     /**
      * Deletes an employee by their employee ID.
      *
      * @param employeeId the ID of the employee to delete
+     * @param ifMatch    the If-Match header of the request, holding the ETag the employee must still have
      * @return a ResponseEntity representing the response indicating the success or failure of the deletion
      * @throws EmployeeNotFoundException if the employee with the specified ID is not found
+     * @throws EmployeePreconditionFailedException if the employee no longer matches the If-Match header
      * @throws DataAccessException if there is a database error
      * @throws Exception if an unexpected error occurs
      */
     @ApiOperation(
             value = "Delete Employee",
-            notes = "Deletes an employee from the database using their Employee ID.")
+            notes = "Deletes an employee from the database using their Employee ID, optionally conditioned on If-Match.")
     @DeleteMapping("/employees/{employeeId}")
-    public ResponseEntity<?> deleteEmployee(@PathVariable(name = "employeeId") Long employeeId) {
+    public ResponseEntity<?> deleteEmployee(@PathVariable(name = "employeeId") Long employeeId,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
-        // Exists check
-        checkEmployeeExists(employeeId);
-
-        return employeeService.deleteEmployee(employeeId);
+        employeeWriteBehindService.flush(Collections.singleton(employeeId));
+        return employeeService.deleteEmployee(employeeId, EmployeeETags.expectedVersion(employeeId, ifMatch));
     }
 
     /**
      * Updates an employee with the given employee data.
      *
+     * In write-behind mode, an unconditional update is queued and acknowledged with 202 (Accepted) and the ETag
+     * the employee will have once written. A conditional update writes the pending update of the employee first.
+     *
      * @param employee     the updated employee object
      * @param employeeId   the ID of the employee to be updated
+     * @param ifMatch      the If-Match header of the request, holding the ETag the employee must still have
      * @return a ResponseEntity representing the response indicating the success or failure of the update
      * @throws EmployeeNotFoundException  if the employee with the specified ID is not found
+     * @throws EmployeePreconditionFailedException if the employee no longer matches the If-Match header
+     * @throws RejectedExecutionException if too many updates are pending in write-behind mode
      * @throws DataAccessException        if there is a database error
      * @throws Exception                  if an unexpected error occurs
      */
     @ApiOperation(
             value = "Update Employee",
-            notes = "Updates an existing employee's details using their Employee ID.")
+            notes = "Updates an existing employee's details using their Employee ID, optionally conditioned on If-Match.")
     @PutMapping("/employees/{employeeId}")
     public ResponseEntity<?> updateEmployee(@Valid @RequestBody Employee employee,
-                                            @PathVariable(name = "employeeId") Long employeeId) {
-        // Exists check
-        checkEmployeeExists(employeeId);
-
+                                            @PathVariable(name = "employeeId") Long employeeId,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         employee.setId(employeeId);
-        return employeeService.updateEmployee(employee);
+        if (ifMatch == null && employeeWriteBehindService.isEnabled()) {
+            return employeeWriteBehindService.queueUpdate(employee);
+        }
+        employeeWriteBehindService.flush(Collections.singleton(employeeId));
+        return employeeService.updateEmployee(employee, EmployeeETags.expectedVersion(employeeId, ifMatch));
     }
 
     /**
-     * Checks if an employee with the given employee ID exists in the database.
+     * Partially updates an employee: only the fields present in the request body are written,
+     * and a field explicitly set to null is cleared.
      *
-     * @param employeeId The ID of the employee to check for existence.
-     * @return {@code true} if an employee with the given ID exists, {@code false} otherwise.
-     * @throws ResponseStatusException if the employee with the specified ID is not found
+     * @param patch      the fields to update
+     * @param employeeId the ID of the employee to be updated
+     * @param ifMatch    the If-Match header of the request, holding the ETag the employee must still have
+     * @return a ResponseEntity representing the response indicating the success or failure of the update
+     * @throws EmployeeBadRequestException if the body holds no field or clears the name
+     * @throws EmployeeNotFoundException if the employee with the specified ID is not found
+     * @throws EmployeePreconditionFailedException if the employee no longer matches the If-Match header
      */
-    private boolean checkEmployeeExists(Long employeeId) {
-        if (!employeeService.existsById(employeeId)) {
-            throw new EmployeeNotFoundException("Employee could not be found");
+    @ApiOperation(
+            value = "Patch Employee",
+            notes = "Updates only the given fields of an existing employee, optionally conditioned on If-Match.")
+    @PatchMapping("/employees/{employeeId}")
+    public ResponseEntity<?> patchEmployee(@RequestBody EmployeePatch patch,
+                                           @PathVariable(name = "employeeId") Long employeeId,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+
+        employeeWriteBehindService.flush(Collections.singleton(employeeId));
+        return employeeService.patchEmployee(employeeId, patch, EmployeeETags.expectedVersion(employeeId, ifMatch));
+    }
+
+    /**
+     * Parses a comma-separated list of employee IDs.
+     *
+     * @param ids The comma-separated IDs.
+     * @return The IDs, in the given order.
+     * @throws EmployeeBadRequestException if an ID is not a number
+     */
+    static List<Long> parseIds(String ids) {
+        List<Long> employeeIds = new ArrayList<>();
+        for (String id : ids.split(",")) {
+            if (id.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                employeeIds.add(Long.valueOf(id.trim()));
+            } catch (NumberFormatException ex) {
+                throw new EmployeeBadRequestException("Invalid employee ID: " + id.trim(), ex);
+            }
+        }
+        return employeeIds;
+    }
+
+    /**
+     * Tells whether the client prefers CSV over NDJSON, based on the quality factors of the Accept header.
+     *
+     * @param accept The Accept header of the request, possibly {@code null}.
+     * @return {@code true} if CSV should be returned, {@code false} for NDJSON.
+     */
+    static boolean prefersCsv(String accept) {
+        if (accept == null || accept.isEmpty()) {
+            return false;
+        }
+        MediaType csv = MediaType.valueOf(CSV_VALUE);
+        MediaType ndjson = MediaType.valueOf(NDJSON_VALUE);
+
+        List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.includes(ndjson)) {
+                return false;
+            }
+            if (mediaType.includes(csv)) {
+                return true;
+            }
         }
-        return true;
+        return false;
     }
 }
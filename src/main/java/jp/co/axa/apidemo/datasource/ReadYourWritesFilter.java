@@ -0,0 +1,27 @@
+package jp.co.axa.apidemo.datasource;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * The ReadYourWritesFilter class tracks each request with the {@link ReplicaRoutingContext}, so that its
+ * reads stay on the primary once it has written.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ReplicaRoutingContext.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingContext.end();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package jp.co.axa.apidemo.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * The ReplicaRoutingContext class remembers, for the current request, whether a read-write transaction
+ * has already used the primary, so that the following reads of the request are not routed to a replica
+ * that may not have replicated the write yet (read-your-writes).
+ * <p>
+ * Only threads between {@link #begin()} and {@link #end()} are tracked: threads outside of a request, such
+ * as the batch or statistics threads, always read from the replica.
+ * <p>
+ * It also lets any thread send the reads of an action to the primary with {@link #readFromPrimary(Supplier)},
+ * for reads whose results are cached.
+ */
+public final class ReplicaRoutingContext {
+
+    // Null outside of a request, false until the request used the primary for a read-write transaction.
+    private static final ThreadLocal<Boolean> PRIMARY_USED = new ThreadLocal<>();
+
+    // Set while the current thread runs an action whose reads must go to the primary.
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private ReplicaRoutingContext() {
+    }
+
+    /**
+     * Starts tracking the current thread.
+     */
+    public static void begin() {
+        PRIMARY_USED.set(Boolean.FALSE);
+    }
+
+    /**
+     * Stops tracking the current thread.
+     */
+    public static void end() {
+        PRIMARY_USED.remove();
+    }
+
+    /**
+     * Records that the current thread used the primary for a read-write transaction, if it is tracked.
+     */
+    static void primaryUsed() {
+        if (PRIMARY_USED.get() != null) {
+            PRIMARY_USED.set(Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Tells whether the current thread has used the primary for a read-write transaction since {@link #begin()}.
+     *
+     * @return true if the reads of the current thread must stay on the primary.
+     */
+    static boolean isPrimaryUsed() {
+        return Boolean.TRUE.equals(PRIMARY_USED.get());
+    }
+
+    /**
+     * Runs the given action with its reads routed to the primary, even in read-only transactions.
+     * <p>
+     * Meant for the reads that fill a cache: a row read from a lagging replica would otherwise stay cached after
+     * the replica has caught up. The action must open its own transactions, since a connection already obtained
+     * keeps its route.
+     *
+     * @param action The action to run.
+     * @param <T>    The type of the result of the action.
+     * @return The result of the action.
+     */
+    public static <T> T readFromPrimary(Supplier<T> action) {
+        if (PRIMARY_REQUIRED.get() != null) {
+            return action.get();
+        }
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            PRIMARY_REQUIRED.remove();
+        }
+    }
+
+    /**
+     * Tells whether the current thread runs an action given to {@link #readFromPrimary(Supplier)}.
+     *
+     * @return true if the reads of the current thread must go to the primary.
+     */
+    static boolean isPrimaryRequired() {
+        return PRIMARY_REQUIRED.get() != null;
+    }
+}
@@ -0,0 +1,60 @@
+package jp.co.axa.apidemo.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The ReplicaRoutingDataSource class routes the connections of read-only transactions to the replica, and
+ * every other connection to the primary, as well as those of read-only transactions that must see the latest
+ * writes (see {@link ReplicaRoutingContext}).
+ * <p>
+ * The route is chosen when the connection is obtained, so this DataSource must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction manager then
+ * only obtains the connection once the read-only flag of the transaction is known.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final boolean readYourWrites;
+
+    /**
+     * Creates a new ReplicaRoutingDataSource.
+     *
+     * @param primary        The DataSource receiving the writes, and the reads outside of read-only transactions.
+     * @param replica        The DataSource receiving the reads of read-only transactions.
+     * @param readYourWrites true to keep the reads of a request on the primary once it has written.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, boolean readYourWrites) {
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(Route.PRIMARY, primary);
+        targetDataSources.put(Route.REPLICA, replica);
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primary);
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (readYourWrites && TransactionSynchronizationManager.isActualTransactionActive()) {
+                ReplicaRoutingContext.primaryUsed();
+            }
+            return Route.PRIMARY;
+        }
+        if (ReplicaRoutingContext.isPrimaryRequired()
+                || (readYourWrites && ReplicaRoutingContext.isPrimaryUsed())) {
+            return Route.PRIMARY;
+        }
+        return Route.REPLICA;
+    }
+
+    /**
+     * The targets of the routing.
+     */
+    enum Route {
+        PRIMARY, REPLICA
+    }
+}
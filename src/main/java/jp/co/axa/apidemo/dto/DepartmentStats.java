@@ -0,0 +1,29 @@
+package jp.co.axa.apidemo.dto;
+
+import lombok.Data;
+
+/**
+ * The DepartmentStats class represents the salary statistics of a department.
+ * Salary aggregates ignore employees without a salary, like their SQL counterparts.
+ */
+@Data
+public class DepartmentStats {
+
+    // Name of the department, or null for employees without a department.
+    private String department;
+
+    // Number of employees in the department.
+    private long headcount;
+
+    // Sum of the salaries of the department.
+    private long totalSalary;
+
+    // Lowest salary of the department, or null if no employee has a salary.
+    private Integer minSalary;
+
+    // Highest salary of the department, or null if no employee has a salary.
+    private Integer maxSalary;
+
+    // Average salary of the department, or null if no employee has a salary.
+    private Double averageSalary;
+}
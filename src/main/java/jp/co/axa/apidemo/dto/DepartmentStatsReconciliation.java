@@ -0,0 +1,25 @@
+package jp.co.axa.apidemo.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The DepartmentStatsReconciliation class represents the outcome of comparing the in-memory department
+ * statistics with a GROUP BY query on the EMPLOYEE table.
+ */
+@Data
+public class DepartmentStatsReconciliation {
+
+    // Whether the in-memory statistics matched the database.
+    private boolean consistent;
+
+    // Departments whose statistics differed, or which were missing on either side.
+    private List<String> mismatchedDepartments;
+
+    // Whether the in-memory statistics were rebuilt from the database.
+    private boolean rebuilt;
+
+    // Duration of the reconciliation in milliseconds.
+    private long elapsedMillis;
+}
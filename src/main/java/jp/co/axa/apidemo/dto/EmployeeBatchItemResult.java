@@ -0,0 +1,22 @@
+package jp.co.axa.apidemo.dto;
+
+import lombok.Data;
+
+/**
+ * The EmployeeBatchItemResult class represents the outcome of one item of a bulk create or update request.
+ */
+@Data
+public class EmployeeBatchItemResult {
+
+    // Position of the item in the request array.
+    private int index;
+
+    // ID of the employee, once known.
+    private Long id;
+
+    // HTTP status code describing the outcome of this item.
+    private int status;
+
+    // Error message when the item failed.
+    private String message;
+}
@@ -0,0 +1,22 @@
+package jp.co.axa.apidemo.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The EmployeeBatchResult class represents the outcome of a bulk create or update request.
+ * It contains one {@link EmployeeBatchItemResult} per request item, in request order.
+ */
+@Data
+public class EmployeeBatchResult {
+
+    // Number of items written successfully.
+    private int succeeded;
+
+    // Number of items rejected or not written.
+    private int failed;
+
+    // Outcome of every item, in request order.
+    private List<EmployeeBatchItemResult> items;
+}
@@ -0,0 +1,25 @@
+package jp.co.axa.apidemo.dto;
+
+import jp.co.axa.apidemo.entities.EmployeeChange;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The EmployeeChangePage class represents one batch of the employee change log.
+ * <p>
+ * The client passes {@code nextSince} as {@code since} to get the following batch, immediately while
+ * {@code hasMore} is true, later on otherwise.
+ */
+@Data
+public class EmployeeChangePage {
+
+    // Changes of this batch, in sequence order.
+    private List<EmployeeChange> changes;
+
+    // Sequence number of the last change of this batch, or the requested one when the batch is empty.
+    private long nextSince;
+
+    // Whether more changes were already available when this batch was read.
+    private boolean hasMore;
+}
@@ -0,0 +1,25 @@
+package jp.co.axa.apidemo.dto;
+
+import jp.co.axa.apidemo.entities.Employee;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The EmployeeCursorPage class represents one batch of employees returned by keyset (cursor) pagination.
+ * <p>
+ * Unlike {@link org.springframework.data.domain.Page}, it carries no total count: the client follows
+ * {@code nextCursor} until it is {@code null}.
+ */
+@Data
+public class EmployeeCursorPage {
+
+    // Employees of this batch, ordered by ascending ID.
+    private List<Employee> content;
+
+    // Maximum number of employees requested for this batch.
+    private int limit;
+
+    // Opaque cursor to pass as "after" for the next batch, or null when this is the last batch.
+    private String nextCursor;
+}
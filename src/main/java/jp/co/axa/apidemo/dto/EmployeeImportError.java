@@ -0,0 +1,22 @@
+package jp.co.axa.apidemo.dto;
+
+import lombok.Data;
+
+/**
+ * The EmployeeImportError class represents one row of an import that could not be written.
+ */
+@Data
+public class EmployeeImportError {
+
+    // Line number of the row in the uploaded file, starting at 1.
+    private long line;
+
+    // ID of the employee, when the row carries one.
+    private Long id;
+
+    // HTTP status code describing the failure of this row.
+    private int status;
+
+    // Error message.
+    private String message;
+}
@@ -0,0 +1,41 @@
+package jp.co.axa.apidemo.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The EmployeeImportResult class represents the outcome of a file import.
+ * It contains the row counters, the throughput, and the errors of the rows that could not be written.
+ */
+@Data
+public class EmployeeImportResult {
+
+    // Number of data rows read from the file.
+    private long rowsRead;
+
+    // Number of rows written successfully.
+    private long imported;
+
+    // Number of rows rejected or not written.
+    private long failed;
+
+    // Number of chunks committed.
+    private long chunksCommitted;
+
+    // Number of chunks whose transaction failed.
+    private long chunksFailed;
+
+    // Duration of the import in milliseconds.
+    private long elapsedMillis;
+
+    // Rows read per second over the whole import.
+    private double rowsPerSecond;
+
+    // Errors of the failed rows, up to import.max-reported-errors.
+    private List<EmployeeImportError> errors = new ArrayList<>();
+
+    // Whether some errors were left out of the list.
+    private boolean errorsTruncated;
+}
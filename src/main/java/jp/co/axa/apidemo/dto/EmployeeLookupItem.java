@@ -0,0 +1,20 @@
+package jp.co.axa.apidemo.dto;
+
+import jp.co.axa.apidemo.entities.Employee;
+import lombok.Data;
+
+/**
+ * The EmployeeLookupItem class represents the outcome of looking up one requested employee ID.
+ */
+@Data
+public class EmployeeLookupItem {
+
+    // Requested employee ID.
+    private Long id;
+
+    // Whether an employee exists with this ID.
+    private boolean found;
+
+    // The employee, or null when it was not found.
+    private Employee employee;
+}
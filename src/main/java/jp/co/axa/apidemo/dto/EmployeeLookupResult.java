@@ -0,0 +1,22 @@
+package jp.co.axa.apidemo.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The EmployeeLookupResult class represents the outcome of a multi-get request.
+ * It contains one {@link EmployeeLookupItem} per requested ID, in request order.
+ */
+@Data
+public class EmployeeLookupResult {
+
+    // Number of requested IDs matching an employee.
+    private int found;
+
+    // Number of requested IDs matching no employee.
+    private int missing;
+
+    // Outcome of every requested ID, in request order.
+    private List<EmployeeLookupItem> items;
+}
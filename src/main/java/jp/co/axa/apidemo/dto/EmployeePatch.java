@@ -0,0 +1,60 @@
+package jp.co.axa.apidemo.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The EmployeePatch class represents a partial update of an employee.
+ * <p>
+ * It records which fields were present in the request body, so that a field explicitly set to {@code null}
+ * is cleared while an absent field is left untouched.
+ */
+@Getter
+public class EmployeePatch {
+
+    // New name of the employee, if present.
+    private String name;
+
+    // New salary of the employee, if present.
+    private Integer salary;
+
+    // New department of the employee, if present.
+    private String department;
+
+    // Entity attributes present in the request body, with their new values, in request order.
+    @JsonIgnore
+    private final Map<String, Object> changes = new LinkedHashMap<>();
+
+    public void setName(String name) {
+        this.name = name;
+        changes.put("name", name);
+    }
+
+    public void setSalary(Integer salary) {
+        this.salary = salary;
+        changes.put("salary", salary);
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+        changes.put("department", department);
+    }
+
+    @JsonIgnore
+    public boolean hasName() {
+        return changes.containsKey("name");
+    }
+
+    @JsonIgnore
+    public boolean hasSalary() {
+        return changes.containsKey("salary");
+    }
+
+    @JsonIgnore
+    public boolean hasDepartment() {
+        return changes.containsKey("department");
+    }
+}
@@ -1,31 +1,46 @@
 package jp.co.axa.apidemo.entities;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jp.co.axa.apidemo.config.SecondLevelCacheConfig;
 import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.NotBlank;
 
 /**
  * This class represents an Employee entity in the database.
  * Employee details are fetched and managed via this entity.
  * <p>
- * Each employee has a unique id, a name, salary and associated department.
+ * Each employee has a unique id, a name, salary and associated department, and a version
+ * incremented on every update, used for optimistic locking and HTTP entity tags.
+ * <p>
+ * Employees are kept in the Hibernate second-level cache, see {@link SecondLevelCacheConfig}.
  */
 @Entity
 @Table(name="EMPLOYEE")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.EMPLOYEE_ENTITY_REGION)
 @Data
 public class Employee {
 
     // Unique identifier for the employee.
+    // IDs come from a pooled sequence (50 per round trip) rather than an IDENTITY column,
+    // so that Hibernate can group inserts into JDBC batches.
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employee_seq")
+    @SequenceGenerator(name = "employee_seq", sequenceName = "EMPLOYEE_SEQ", allocationSize = 50)
     private Long id;
 
     // Name of the employee. This field is mandatory.
@@ -41,4 +56,11 @@ public class Employee {
     @Column(name="DEPARTMENT")
     private String department;
 
+    // Version of the employee, incremented by Hibernate on every update.
+    // It is read-only for clients, which send it back through the If-Match header instead.
+    @Version
+    @Column(name="VERSION")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
 }
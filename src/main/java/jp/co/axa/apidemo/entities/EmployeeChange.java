@@ -0,0 +1,66 @@
+package jp.co.axa.apidemo.entities;
+
+import lombok.Data;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.Date;
+
+/**
+ * This class represents one entry of the employee change log.
+ * <p>
+ * Every write of an employee records a change, numbered by a sequence that increases in commit order.
+ * A change carries the new value of the fields it changed, so that a consumer can mirror the employees
+ * without reading them again.
+ */
+@Entity
+@Table(name="EMPLOYEE_CHANGE")
+@Data
+public class EmployeeChange {
+
+    /**
+     * The kinds of change.
+     */
+    public enum Operation {
+        CREATED, UPDATED, DELETED
+    }
+
+    // Position of the change in the log, assigned from EMPLOYEE_CHANGE_COUNTER.
+    @Id
+    @Column(name="SEQ")
+    private Long seq;
+
+    // ID of the changed employee.
+    @Column(name="EMPLOYEE_ID")
+    private Long employeeId;
+
+    @Column(name="OPERATION")
+    @Enumerated(EnumType.STRING)
+    private Operation operation;
+
+    // Version of the employee after the change, or null once deleted.
+    @Column(name="EMPLOYEE_VERSION")
+    private Long version;
+
+    // Comma-separated names of the changed fields, whose new value is given below. Empty once deleted.
+    @Column(name="CHANGED_FIELDS")
+    private String changedFields;
+
+    @Column(name="EMPLOYEE_NAME")
+    private String name;
+
+    @Column(name="EMPLOYEE_SALARY")
+    private Integer salary;
+
+    @Column(name="DEPARTMENT")
+    private String department;
+
+    // Time at which the change was recorded.
+    @Column(name="CHANGED_AT")
+    private Date changedAt;
+
+}
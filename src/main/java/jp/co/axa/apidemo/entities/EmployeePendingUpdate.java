@@ -0,0 +1,44 @@
+package jp.co.axa.apidemo.entities;
+
+import lombok.Data;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.Date;
+
+/**
+ * This class represents an update of an employee that has been acknowledged in write-behind mode, but not
+ * written to the EMPLOYEE table yet.
+ * <p>
+ * There is at most one pending update per employee: a newer update of the same employee replaces it.
+ */
+@Entity
+@Table(name="EMPLOYEE_PENDING_UPDATE")
+@Data
+public class EmployeePendingUpdate {
+
+    // ID of the updated employee.
+    @Id
+    @Column(name="EMPLOYEE_ID")
+    private Long employeeId;
+
+    @Column(name="EMPLOYEE_NAME")
+    private String name;
+
+    @Column(name="EMPLOYEE_SALARY")
+    private Integer salary;
+
+    @Column(name="DEPARTMENT")
+    private String department;
+
+    // Version the employee will have once the update is written, as announced in the ETag of the acknowledgement.
+    @Column(name="EMPLOYEE_VERSION")
+    private Long version;
+
+    // Time at which the update was queued.
+    @Column(name="QUEUED_AT")
+    private Date queuedAt;
+
+}
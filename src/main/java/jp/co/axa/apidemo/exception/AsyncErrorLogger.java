@@ -0,0 +1,237 @@
+package jp.co.axa.apidemo.exception;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The AsyncErrorLogger class logs the exceptions handled by {@link GlobalRestExceptionHandler} from a
+ * background thread, so that request threads never wait on the console.
+ * <p>
+ * Expected errors are rate limited to {@code error.log.max-per-second} entries per second, and every entry
+ * waits in a queue bounded by {@code error.log.queue-capacity}. Entries over either limit are dropped and
+ * counted in the {@code api.errors.log.dropped} counter; the logging thread also reports how many were
+ * dropped. Unexpected errors are not rate limited and keep their full stack trace.
+ */
+@Component
+public class AsyncErrorLogger {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Logger sink;
+
+    private final BlockingQueue<Entry> queue;
+
+    private final int maxPerSecond;
+
+    private final long origin = System.nanoTime();
+
+    // The current second since origin in the upper 32 bits, the number of entries accepted in it in the lower 32 bits.
+    private final AtomicLong window = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Counter rateLimitedCounter;
+
+    private final Counter queueFullCounter;
+
+    private volatile boolean running;
+
+    private Thread thread;
+
+    /**
+     * Creates a new AsyncErrorLogger writing to the logger of {@link GlobalRestExceptionHandler}.
+     *
+     * @param queueCapacity The maximum number of entries waiting to be logged.
+     * @param maxPerSecond  The maximum number of expected errors logged per second.
+     * @param meterRegistry The registry the drop counters are registered with.
+     */
+    @Autowired
+    public AsyncErrorLogger(@Value("${error.log.queue-capacity}") int queueCapacity,
+                            @Value("${error.log.max-per-second}") int maxPerSecond,
+                            MeterRegistry meterRegistry) {
+        this(LoggerFactory.getLogger(GlobalRestExceptionHandler.class), queueCapacity, maxPerSecond, meterRegistry);
+    }
+
+    /**
+     * Creates a new AsyncErrorLogger.
+     *
+     * @param sink          The logger the entries are written to.
+     * @param queueCapacity The maximum number of entries waiting to be logged.
+     * @param maxPerSecond  The maximum number of expected errors logged per second.
+     * @param meterRegistry The registry the drop counters are registered with.
+     */
+    public AsyncErrorLogger(Logger sink, int queueCapacity, int maxPerSecond, MeterRegistry meterRegistry) {
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxPerSecond = maxPerSecond;
+        this.rateLimitedCounter = droppedCounter(meterRegistry, "rate-limited");
+        this.queueFullCounter = droppedCounter(meterRegistry, "queue-full");
+    }
+
+    /**
+     * Starts the logging thread.
+     */
+    @PostConstruct
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "async-error-logger");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the logging thread, after it has logged the entries still queued.
+     *
+     * @throws InterruptedException If interrupted while waiting for the logging thread.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Logs an expected error without its stack trace, unless the rate limit is reached or the queue is full.
+     *
+     * @param status The status answered to the client.
+     * @param ex     The exception handled.
+     */
+    public void logExpected(HttpStatus status, Exception ex) {
+        if (!tryAcquire()) {
+            dropped.incrementAndGet();
+            rateLimitedCounter.increment();
+            return;
+        }
+        enqueue(new Entry(status, ex, false));
+    }
+
+    /**
+     * Logs an unexpected error with its stack trace, unless the queue is full.
+     *
+     * @param status The status answered to the client.
+     * @param ex     The exception handled.
+     */
+    public void logUnexpected(HttpStatus status, Exception ex) {
+        enqueue(new Entry(status, ex, true));
+    }
+
+    /**
+     * Queues an entry, or counts it as dropped when the queue is full.
+     *
+     * @param entry The entry to log.
+     */
+    private void enqueue(Entry entry) {
+        if (!queue.offer(entry)) {
+            dropped.incrementAndGet();
+            queueFullCounter.increment();
+        }
+    }
+
+    /**
+     * Takes one entry from the rate limit of the current second.
+     *
+     * @return true if the entry may be logged, false if the rate limit of the current second is reached.
+     */
+    private boolean tryAcquire() {
+        long second = (System.nanoTime() - origin) / NANOS_PER_SECOND;
+        while (true) {
+            long current = window.get();
+            if (current >>> 32 != second) {
+                if (window.compareAndSet(current, second << 32 | 1)) {
+                    return true;
+                }
+            } else if ((int) current >= maxPerSecond) {
+                return false;
+            } else if (window.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Logs the queued entries until stopped, and reports the dropped entries at most once per second.
+     */
+    private void run() {
+        long reported = 0;
+        long reportedAt = System.nanoTime();
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry entry = queue.poll(1, TimeUnit.SECONDS);
+                if (entry != null) {
+                    write(entry);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                // Never let a failing appender stop the logging thread
+            }
+            long total = dropped.get();
+            long now = System.nanoTime();
+            if (total != reported && now - reportedAt >= NANOS_PER_SECOND) {
+                sink.warn("{} error log entries dropped", total - reported);
+                reported = total;
+                reportedAt = now;
+            }
+        }
+    }
+
+    /**
+     * Writes one entry to the logger.
+     *
+     * @param entry The entry to write.
+     */
+    private void write(Entry entry) {
+        if (entry.withStackTrace) {
+            sink.error("{} {}", entry.status.value(), entry.exception.getClass().getSimpleName(), entry.exception);
+        } else {
+            sink.warn("{} {}: {}", entry.status.value(), entry.exception.getClass().getSimpleName(),
+                    entry.exception.getMessage());
+        }
+    }
+
+    /**
+     * Registers the counter of the entries dropped for one reason.
+     *
+     * @param meterRegistry The registry the counter is registered with.
+     * @param reason        The reason the entries are dropped.
+     * @return The counter.
+     */
+    private static Counter droppedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("api.errors.log.dropped")
+                .description("Error log entries dropped by AsyncErrorLogger")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * An error waiting to be logged.
+     */
+    private static final class Entry {
+
+        private final HttpStatus status;
+
+        private final Exception exception;
+
+        private final boolean withStackTrace;
+
+        private Entry(HttpStatus status, Exception exception, boolean withStackTrace) {
+            this.status = status;
+            this.exception = exception;
+            this.withStackTrace = withStackTrace;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package jp.co.axa.apidemo.exception;
+
+/**
+ * This class represents an exception that is thrown when a request carries invalid parameters,
+ * such as a malformed pagination cursor.
+ * <p>
+ * It is created without a stack trace, as the 400 answered by {@link GlobalRestExceptionHandler} only
+ * needs its message; the cause, if any, keeps its own.
+ */
+public class EmployeeBadRequestException extends RuntimeException {
+
+    /**
+     * Creates a new instance of EmployeeBadRequestException with the specified message.
+     *
+     * @param message the detailed message of the exception
+     */
+    public EmployeeBadRequestException(String message) {
+        super(message, null, false, false);
+    }
+
+    /**
+     * Creates a new instance of EmployeeBadRequestException with the specified message and cause.
+     *
+     * @param message The detailed error message.
+     * @param cause   The cause of the exception.
+     */
+    public EmployeeBadRequestException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+}
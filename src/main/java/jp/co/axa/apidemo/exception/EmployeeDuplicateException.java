@@ -2,6 +2,9 @@ package jp.co.axa.apidemo.exception;
 
 /**
  * The EmployeeDuplicateException class is a custom exception that is thrown when a duplicate employee is encountered.
+ * <p>
+ * It is created without a stack trace, as the 409 answered by {@link GlobalRestExceptionHandler} only
+ * needs its message.
  */
 public class EmployeeDuplicateException extends RuntimeException {
 
@@ -11,7 +14,7 @@ public class EmployeeDuplicateException extends RuntimeException {
      * @param message the detailed message of the exception
      */
     public EmployeeDuplicateException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 
     /**
@@ -21,6 +24,6 @@ public class EmployeeDuplicateException extends RuntimeException {
      * @param cause   The cause of the exception.
      */
     public EmployeeDuplicateException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, false);
     }
 }
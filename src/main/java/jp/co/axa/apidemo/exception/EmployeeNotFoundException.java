@@ -2,6 +2,9 @@ package jp.co.axa.apidemo.exception;
 
 /**
  * This class represents an exception that is thrown when an employee is not found.
+ * <p>
+ * Clients looking up unknown IDs make this exception frequent and expected, so it is created without a
+ * stack trace; {@link GlobalRestExceptionHandler} only reports its message.
  */
 public class EmployeeNotFoundException extends RuntimeException {
 
@@ -11,7 +14,7 @@ public class EmployeeNotFoundException extends RuntimeException {
      * @param message A string that contains the specific details of the exception. This message is constructed and passed by the caller.
      */
     public EmployeeNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 
     /**
@@ -22,6 +25,6 @@ public class EmployeeNotFoundException extends RuntimeException {
      *                EmployeeNotFoundException is a result of different exception thrown in system.
      */
     public EmployeeNotFoundException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, false);
     }
 }
@@ -0,0 +1,29 @@
+package jp.co.axa.apidemo.exception;
+
+/**
+ * This class represents an exception that is thrown when the If-Match header of a request
+ * does not match the current version of the employee.
+ * <p>
+ * Like the other expected client errors, it is created without a stack trace.
+ */
+public class EmployeePreconditionFailedException extends RuntimeException {
+
+    /**
+     * Creates a new instance of EmployeePreconditionFailedException with the specified message.
+     *
+     * @param message the detailed message of the exception
+     */
+    public EmployeePreconditionFailedException(String message) {
+        super(message, null, false, false);
+    }
+
+    /**
+     * Creates a new instance of EmployeePreconditionFailedException with the specified message and cause.
+     *
+     * @param message The detailed error message.
+     * @param cause   The cause of the exception.
+     */
+    public EmployeePreconditionFailedException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+}
@@ -1,20 +1,75 @@
 package jp.co.axa.apidemo.exception;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * The GlobalRestExceptionHandler class provides global exception handling for REST endpoints.
+ * <p>
+ * Every handler increments its own {@code api.errors} counter, tagged with the handled exception and the
+ * returned status. The counters are registered up front, so counting allocates nothing.
+ * <p>
+ * Errors are logged through the {@link AsyncErrorLogger}: the expected ones rate limited and without stack
+ * trace, the unexpected ones with their full stack trace.
  */
 @ControllerAdvice
 public class GlobalRestExceptionHandler {
 
+    // Delay suggested to the clients of an overloaded instance.
+    private static final String RETRY_AFTER_SECONDS = "1";
+
     @Value("${error.message.general}")
     private String generalError;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AsyncErrorLogger errorLogger;
+
+    private Counter notFoundCounter;
+
+    private Counter duplicateCounter;
+
+    private Counter badRequestCounter;
+
+    private Counter preconditionFailedCounter;
+
+    private Counter optimisticLockingFailureCounter;
+
+    private Counter rejectedCounter;
+
+    private Counter asyncTimeoutCounter;
+
+    private Counter generalErrorCounter;
+
+    /**
+     * Registers the counter of every handler.
+     */
+    @PostConstruct
+    public void registerCounters() {
+        notFoundCounter = errorCounter(EmployeeNotFoundException.class, HttpStatus.NOT_FOUND);
+        duplicateCounter = errorCounter(EmployeeDuplicateException.class, HttpStatus.CONFLICT);
+        badRequestCounter = errorCounter(EmployeeBadRequestException.class, HttpStatus.BAD_REQUEST);
+        preconditionFailedCounter = errorCounter(EmployeePreconditionFailedException.class, HttpStatus.PRECONDITION_FAILED);
+        optimisticLockingFailureCounter = errorCounter(OptimisticLockingFailureException.class, HttpStatus.CONFLICT);
+        rejectedCounter = errorCounter(RejectedExecutionException.class, HttpStatus.SERVICE_UNAVAILABLE);
+        asyncTimeoutCounter = errorCounter(AsyncRequestTimeoutException.class, HttpStatus.SERVICE_UNAVAILABLE);
+        generalErrorCounter = errorCounter(Exception.class, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
     /**
      * This method handles the EmployeeNotFoundException and returns a ResponseEntity containing an EmployeeErrorResponse object.
      *
@@ -24,8 +79,10 @@ public class GlobalRestExceptionHandler {
     @ExceptionHandler(EmployeeNotFoundException.class)
     public ResponseEntity<EmployeeErrorResponse> handleException(EmployeeNotFoundException ex) {
 
-        // Print stack trace to console
-        ex.printStackTrace();
+        notFoundCounter.increment();
+
+        // Log the error asynchronously, without stack trace
+        errorLogger.logExpected(HttpStatus.NOT_FOUND, ex);
 
         // create a EmployeeErrorResponse
         EmployeeErrorResponse error = new EmployeeErrorResponse();
@@ -46,8 +103,10 @@ public class GlobalRestExceptionHandler {
     @ExceptionHandler(EmployeeDuplicateException.class)
     public ResponseEntity<EmployeeErrorResponse> handleException(EmployeeDuplicateException ex) {
 
-        // Print stack trace to console
-        ex.printStackTrace();
+        duplicateCounter.increment();
+
+        // Log the error asynchronously, without stack trace
+        errorLogger.logExpected(HttpStatus.CONFLICT, ex);
 
         // create a EmployeeErrorResponse
         EmployeeErrorResponse error = new EmployeeErrorResponse();
@@ -59,6 +118,129 @@ public class GlobalRestExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.CONFLICT);
     }
 
+    /**
+     * This method handles the EmployeeBadRequestException and returns a ResponseEntity containing an EmployeeErrorResponse object.
+     *
+     * @param ex The EmployeeBadRequestException that was thrown.
+     * @return A ResponseEntity containing an EmployeeErrorResponse object with details about the exception.
+     */
+    @ExceptionHandler(EmployeeBadRequestException.class)
+    public ResponseEntity<EmployeeErrorResponse> handleException(EmployeeBadRequestException ex) {
+
+        badRequestCounter.increment();
+
+        // Log the error asynchronously, without stack trace
+        errorLogger.logExpected(HttpStatus.BAD_REQUEST, ex);
+
+        // create a EmployeeErrorResponse
+        EmployeeErrorResponse error = new EmployeeErrorResponse();
+
+        error.setStatus(HttpStatus.BAD_REQUEST.value());
+        error.setMessage(ex.getMessage());
+        error.setTimeStamp(System.currentTimeMillis());
+
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * This method handles the EmployeePreconditionFailedException and returns a ResponseEntity containing an EmployeeErrorResponse object.
+     *
+     * @param ex The EmployeePreconditionFailedException that was thrown.
+     * @return A ResponseEntity containing an EmployeeErrorResponse object with details about the exception.
+     */
+    @ExceptionHandler(EmployeePreconditionFailedException.class)
+    public ResponseEntity<EmployeeErrorResponse> handleException(EmployeePreconditionFailedException ex) {
+
+        preconditionFailedCounter.increment();
+
+        // Log the error asynchronously, without stack trace
+        errorLogger.logExpected(HttpStatus.PRECONDITION_FAILED, ex);
+
+        // create a EmployeeErrorResponse
+        EmployeeErrorResponse error = new EmployeeErrorResponse();
+
+        error.setStatus(HttpStatus.PRECONDITION_FAILED.value());
+        error.setMessage(ex.getMessage());
+        error.setTimeStamp(System.currentTimeMillis());
+
+        return new ResponseEntity<>(error, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    /**
+     * This method handles the OptimisticLockingFailureException, thrown when an employee is modified by two
+     * requests at the same time, and returns a ResponseEntity containing an EmployeeErrorResponse object.
+     *
+     * @param ex The OptimisticLockingFailureException that was thrown.
+     * @return A ResponseEntity containing an EmployeeErrorResponse object with details about the exception.
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<EmployeeErrorResponse> handleException(OptimisticLockingFailureException ex) {
+
+        optimisticLockingFailureCounter.increment();
+
+        // Log the error asynchronously, without stack trace
+        errorLogger.logExpected(HttpStatus.CONFLICT, ex);
+
+        // create a EmployeeErrorResponse
+        EmployeeErrorResponse error = new EmployeeErrorResponse();
+
+        error.setStatus(HttpStatus.CONFLICT.value());
+        error.setMessage("Employee has been modified by another request, please retry.");
+        error.setTimeStamp(System.currentTimeMillis());
+
+        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    }
+
+    /**
+     * This method handles the RejectedExecutionException, thrown when the executor of the asynchronous endpoints
+     * is saturated, and returns a ResponseEntity containing an EmployeeErrorResponse object and a Retry-After header.
+     *
+     * @param ex The RejectedExecutionException that was thrown.
+     * @return A ResponseEntity containing an EmployeeErrorResponse object with details about the exception.
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<EmployeeErrorResponse> handleException(RejectedExecutionException ex) {
+
+        rejectedCounter.increment();
+
+        // Log the error asynchronously, without stack trace
+        errorLogger.logExpected(HttpStatus.SERVICE_UNAVAILABLE, ex);
+
+        // create a EmployeeErrorResponse
+        EmployeeErrorResponse error = new EmployeeErrorResponse();
+
+        error.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        error.setMessage("Too many requests in progress, please retry later.");
+        error.setTimeStamp(System.currentTimeMillis());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).body(error);
+    }
+
+    /**
+     * This method handles the AsyncRequestTimeoutException, thrown when an asynchronous request does not complete
+     * in time, and returns a ResponseEntity containing an EmployeeErrorResponse object and a Retry-After header.
+     *
+     * @param ex The AsyncRequestTimeoutException that was thrown.
+     * @return A ResponseEntity containing an EmployeeErrorResponse object with details about the exception.
+     */
+    @ExceptionHandler(AsyncRequestTimeoutException.class)
+    public ResponseEntity<EmployeeErrorResponse> handleException(AsyncRequestTimeoutException ex) {
+
+        asyncTimeoutCounter.increment();
+
+        // Log the error asynchronously, without stack trace
+        errorLogger.logExpected(HttpStatus.SERVICE_UNAVAILABLE, ex);
+
+        // create a EmployeeErrorResponse
+        EmployeeErrorResponse error = new EmployeeErrorResponse();
+
+        error.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        error.setMessage("The request timed out, please retry later.");
+        error.setTimeStamp(System.currentTimeMillis());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).body(error);
+    }
+
     /**
      * This method handles generic exceptions and returns a ResponseEntity containing an EmployeeErrorResponse object.
      *
@@ -68,8 +250,10 @@ public class GlobalRestExceptionHandler {
     @ExceptionHandler(Exception.class)
     public ResponseEntity<EmployeeErrorResponse> handleException(Exception ex) {
 
-        // Print stack trace to console
-        ex.printStackTrace();
+        generalErrorCounter.increment();
+
+        // Log the error with its stack trace, asynchronously
+        errorLogger.logUnexpected(HttpStatus.INTERNAL_SERVER_ERROR, ex);
 
         // create a EmployeeErrorResponse
         EmployeeErrorResponse error = new EmployeeErrorResponse();
@@ -80,4 +264,19 @@ public class GlobalRestExceptionHandler {
 
         return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
     }
+
+    /**
+     * Registers the counter of the exceptions handled by one handler.
+     *
+     * @param exceptionType The type of exception handled.
+     * @param status        The status returned by the handler.
+     * @return The counter.
+     */
+    private Counter errorCounter(Class<? extends Exception> exceptionType, HttpStatus status) {
+        return Counter.builder("api.errors")
+                .description("Exceptions handled by GlobalRestExceptionHandler")
+                .tag("exception", exceptionType.getSimpleName())
+                .tag("status", String.valueOf(status.value()))
+                .register(meterRegistry);
+    }
 }
@@ -0,0 +1,49 @@
+package jp.co.axa.apidemo.repositories;
+
+import jp.co.axa.apidemo.entities.EmployeeChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The EmployeeChangeRepository interface provides access to the employee change log.
+ */
+@Repository
+public interface EmployeeChangeRepository extends JpaRepository<EmployeeChange, Long>,
+        EmployeeChangeRepositoryCustom {
+
+    /**
+     * Retrieves the last sequence number reserved.
+     *
+     * @return The last sequence number reserved, 0 if no change was ever recorded.
+     */
+    @Query(value = "SELECT LAST_SEQ FROM EMPLOYEE_CHANGE_COUNTER WHERE ID = 1", nativeQuery = true)
+    Long findLastSequence();
+
+    /**
+     * Retrieves the changes following the given sequence number, in sequence order.
+     *
+     * @param seq      The sequence number after which the changes are retrieved.
+     * @param pageable The number of changes to retrieve, as the size of the page.
+     * @return A list of EmployeeChange objects.
+     */
+    List<EmployeeChange> findBySeqGreaterThanOrderBySeqAsc(Long seq, Pageable pageable);
+
+    /**
+     * Deletes the changes recorded before the given time, in a single statement.
+     *
+     * @param changedAt The time before which the changes are deleted.
+     * @return The number of deleted changes.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from EmployeeChange c where c.changedAt < :changedAt")
+    int deleteByChangedAtBefore(@Param("changedAt") Date changedAt);
+}
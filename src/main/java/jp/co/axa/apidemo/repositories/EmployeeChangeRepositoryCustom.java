@@ -0,0 +1,21 @@
+package jp.co.axa.apidemo.repositories;
+
+/**
+ * The EmployeeChangeRepositoryCustom interface declares the writes to the change counter that Spring Data cannot
+ * declare as native queries without Hibernate invalidating every region of the second-level cache.
+ * It is implemented by {@link EmployeeChangeRepositoryCustomImpl} and exposed through
+ * {@link EmployeeChangeRepository}.
+ */
+public interface EmployeeChangeRepositoryCustom {
+
+    /**
+     * Reserves the given number of sequence numbers, by incrementing the change counter.
+     * <p>
+     * The counter row stays locked until the calling transaction ends, so that the changes of concurrent
+     * transactions are committed in sequence order. It must therefore be the last statement of the transaction.
+     *
+     * @param count The number of sequence numbers to reserve.
+     * @return The number of rows updated, always 1.
+     */
+    int reserveSequences(int count);
+}
@@ -0,0 +1,35 @@
+package jp.co.axa.apidemo.repositories;
+
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * This class is the implementation of the EmployeeChangeRepositoryCustom interface.
+ * <p>
+ * The native statement declares the EMPLOYEE_CHANGE_COUNTER table it writes: no cached region depends on it, so
+ * Hibernate leaves the second-level cache alone, rather than invalidating every region as it does for a native
+ * statement writing unknown tables.
+ */
+public class EmployeeChangeRepositoryCustomImpl implements EmployeeChangeRepositoryCustom {
+
+    private static final String COUNTER_TABLE = "EMPLOYEE_CHANGE_COUNTER";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int reserveSequences(int count) {
+        return entityManager.createNativeQuery(
+                "UPDATE " + COUNTER_TABLE + " SET LAST_SEQ = LAST_SEQ + ?1 WHERE ID = 1")
+                .unwrap(NativeQuery.class)
+                .setParameter(1, count, StandardBasicTypes.INTEGER)
+                .addSynchronizedQuerySpace(COUNTER_TABLE)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,29 @@
+package jp.co.axa.apidemo.repositories;
+
+import jp.co.axa.apidemo.entities.EmployeePendingUpdate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The EmployeePendingUpdateRepository interface provides access to the updates queued in write-behind mode.
+ */
+@Repository
+public interface EmployeePendingUpdateRepository extends JpaRepository<EmployeePendingUpdate, Long>,
+        EmployeePendingUpdateRepositoryCustom {
+
+    /**
+     * Deletes a pending update once written, unless it has been replaced by a newer one meanwhile.
+     *
+     * @param employeeId The ID of the updated employee.
+     * @param version    The version of the written update.
+     * @return The number of deleted rows, 0 if the update has been replaced.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from EmployeePendingUpdate p where p.employeeId = :employeeId and p.version = :version")
+    int deleteWritten(@Param("employeeId") Long employeeId, @Param("version") Long version);
+}
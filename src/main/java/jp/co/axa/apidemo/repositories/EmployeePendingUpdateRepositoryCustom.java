@@ -0,0 +1,22 @@
+package jp.co.axa.apidemo.repositories;
+
+/**
+ * The EmployeePendingUpdateRepositoryCustom interface declares the writes to the write-behind queue that Spring Data
+ * cannot declare as native queries without Hibernate invalidating every region of the second-level cache.
+ * It is implemented by {@link EmployeePendingUpdateRepositoryCustomImpl} and exposed through
+ * {@link EmployeePendingUpdateRepository}.
+ */
+public interface EmployeePendingUpdateRepositoryCustom {
+
+    /**
+     * Queues an update, replacing the pending update of the same employee if any, in a single statement.
+     *
+     * @param employeeId The ID of the updated employee.
+     * @param name       The new name.
+     * @param salary     The new salary.
+     * @param department The new department.
+     * @param version    The version the employee will have once the update is written.
+     * @return The number of rows written, always 1.
+     */
+    int upsert(Long employeeId, String name, Integer salary, String department, Long version);
+}
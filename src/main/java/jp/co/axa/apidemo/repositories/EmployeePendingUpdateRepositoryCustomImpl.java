@@ -0,0 +1,40 @@
+package jp.co.axa.apidemo.repositories;
+
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * This class is the implementation of the EmployeePendingUpdateRepositoryCustom interface.
+ * <p>
+ * The native statement declares the EMPLOYEE_PENDING_UPDATE table it writes: Hibernate then leaves the cached
+ * employees and employee query results alone, rather than invalidating every region as it does for a native
+ * statement writing unknown tables.
+ */
+public class EmployeePendingUpdateRepositoryCustomImpl implements EmployeePendingUpdateRepositoryCustom {
+
+    private static final String PENDING_UPDATE_TABLE = "EMPLOYEE_PENDING_UPDATE";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int upsert(Long employeeId, String name, Integer salary, String department, Long version) {
+        return entityManager.createNativeQuery(
+                "MERGE INTO " + PENDING_UPDATE_TABLE + " "
+                        + "(EMPLOYEE_ID, EMPLOYEE_NAME, EMPLOYEE_SALARY, DEPARTMENT, EMPLOYEE_VERSION, QUEUED_AT) "
+                        + "KEY (EMPLOYEE_ID) VALUES (?1, ?2, ?3, ?4, ?5, CURRENT_TIMESTAMP)")
+                .unwrap(NativeQuery.class)
+                .setParameter(1, employeeId, StandardBasicTypes.LONG)
+                .setParameter(2, name, StandardBasicTypes.STRING)
+                .setParameter(3, salary, StandardBasicTypes.INTEGER)
+                .setParameter(4, department, StandardBasicTypes.STRING)
+                .setParameter(5, version, StandardBasicTypes.LONG)
+                .addSynchronizedQuerySpace(PENDING_UPDATE_TABLE)
+                .executeUpdate();
+    }
+}
@@ -1,13 +1,87 @@
 package jp.co.axa.apidemo.repositories;
 
 import jp.co.axa.apidemo.entities.Employee;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 /**
  * The EmployeeRepository interface defines the contract for interacting with the employee repository.
- * It extends the JpaRepository interface, providing basic CRUD operations for the Employee entity.
+ * It extends the JpaRepository interface, providing basic CRUD operations for the Employee entity,
+ * the JpaSpecificationExecutor interface, used to combine the search criteria of {@link EmployeeSpecifications},
+ * and the EmployeeRepositoryCustom interface, providing single-statement writes.
  */
 @Repository
-public interface EmployeeRepository extends JpaRepository<Employee,Long> {
+public interface EmployeeRepository extends JpaRepository<Employee,Long>, JpaSpecificationExecutor<Employee>,
+        EmployeeRepositoryCustom {
+
+    /**
+     * Retrieves the employees whose ID is greater than the given one (keyset pagination).
+     * <p>
+     * The query seeks on the primary key index instead of skipping rows with OFFSET, and returning a
+     * {@link Slice} means no COUNT query is issued: one extra row is fetched to detect the next batch.
+     *
+     * @param employeeId The ID after which employees are retrieved.
+     * @param pageable   The size and ordering of the batch. The page number should always be 0.
+     * @return A Slice of employees following the given ID.
+     */
+    Slice<Employee> findByIdGreaterThan(Long employeeId, Pageable pageable);
+
+    /**
+     * Streams every employee, ordered by ID, through a forward-only cursor.
+     * <p>
+     * Rows are fetched from the driver {@code fetchSize} at a time and loaded read-only, so no dirty-checking
+     * snapshot is kept. The stream must be consumed inside a transaction and closed afterwards; callers should
+     * detach each entity once processed to keep the persistence context empty.
+     *
+     * @return A Stream of all employees.
+     */
+    @Query("select e from Employee e order by e.id")
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")})
+    Stream<Employee> streamAll();
+
+    /**
+     * Counts the employees of every department by salary, with a GROUP BY query. IX_EMPLOYEE_DEPARTMENT holds
+     * both columns, in the order of the groups, so the index is read rather than the rows of the table.
+     * <p>
+     * Each element is an array of {@code [String department, Integer salary, Long count]}, where the salary is
+     * {@code null} for the employees without one.
+     *
+     * @return The number of employees of every department and salary.
+     */
+    @Query("select e.department, e.salary, count(e) from Employee e group by e.department, e.salary")
+    List<Object[]> countByDepartmentAndSalary();
+
+    /**
+     * Retrieves the version of an employee without loading the entity, to evaluate conditional requests.
+     *
+     * @param employeeId The ID of the employee.
+     * @return The version of the employee, or {@code null} if no employee has this ID.
+     */
+    @Query("select e.version from Employee e where e.id = :employeeId")
+    Long findVersionById(@Param("employeeId") Long employeeId);
+
+    /**
+     * Tells whether an employee exists, from the query cache when possible. Declared again here only to pick
+     * the implementation of {@link EmployeeRepositoryCustom} over the one of Spring Data.
+     *
+     * @param employeeId The ID of the employee.
+     * @return {@code true} if an employee has this ID.
+     */
+    @Override
+    boolean existsById(Long employeeId);
 }
@@ -0,0 +1,137 @@
+package jp.co.axa.apidemo.repositories;
+
+import jp.co.axa.apidemo.entities.Employee;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.Tuple;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The EmployeeRepositoryCustom interface declares the employee write operations that Spring Data cannot derive,
+ * each executed as a single SQL statement whose result tells the caller what happened, and the projection queries
+ * selecting a dynamic set of attributes.
+ * It also overrides the paging and existence queries of {@link EmployeeRepository}, so that their results,
+ * counts included, are kept in the query cache.
+ * It is implemented by {@link EmployeeRepositoryCustomImpl} and exposed through {@link EmployeeRepository}.
+ */
+public interface EmployeeRepositoryCustom {
+
+    /**
+     * Inserts a new employee unless an employee with the given ID already exists, in a single statement.
+     * <p>
+     * The ID of the new employee is generated from EMPLOYEE_SEQ and set on the given employee,
+     * together with its initial version.
+     *
+     * @param employee      The employee to insert.
+     * @param conflictingId The ID that must not exist for the insert to happen.
+     * @return {@code true} if the employee was inserted, {@code false} if the ID already exists.
+     */
+    boolean insertUnlessExists(Employee employee, Long conflictingId);
+
+    /**
+     * Locks the given employees until the end of the transaction and reads their current state, in a single
+     * statement. The values a write replaces are then known, and no concurrent write can change them meanwhile.
+     *
+     * @param employeeIds The IDs of the employees to lock.
+     * @return The employees found, as new instances that are not attached to the persistence context.
+     */
+    List<Employee> lockAllById(Collection<Long> employeeIds);
+
+    /**
+     * Replaces the name, salary and department of an employee and increments its version, in a single statement
+     * returning the row it replaced. Must be called in a transaction.
+     *
+     * @param employeeId      The ID of the employee to update.
+     * @param expectedVersion The version the employee must have, or {@code null} to update any version.
+     * @param name            The new name.
+     * @param salary          The new salary.
+     * @param department      The new department.
+     * @return The employee as it was before the update, or empty if it does not exist or has another version.
+     */
+    Optional<Employee> updateReturningPrevious(Long employeeId, Long expectedVersion, String name, Integer salary,
+                                               String department);
+
+    /**
+     * Updates only the given attributes of an employee and increments its version, in a single statement
+     * returning the row it replaced. Must be called in a transaction.
+     *
+     * @param employeeId      The ID of the employee to update.
+     * @param expectedVersion The version the employee must have, or {@code null} to update any version.
+     * @param changes         The new values, keyed by entity attribute name. Must not be empty.
+     * @return The employee as it was before the update, or empty if it does not exist or has another version.
+     */
+    Optional<Employee> patchReturningPrevious(Long employeeId, Long expectedVersion, Map<String, Object> changes);
+
+    /**
+     * Deletes an employee, in a single statement returning the deleted row. Must be called in a transaction.
+     *
+     * @param employeeId      The ID of the employee to delete.
+     * @param expectedVersion The version the employee must have, or {@code null} to delete any version.
+     * @return The deleted employee, or empty if it does not exist or has another version.
+     */
+    Optional<Employee> deleteReturningPrevious(Long employeeId, Long expectedVersion);
+
+    /**
+     * Writes an update queued in write-behind mode, in a single statement.
+     * <p>
+     * The employee takes the version announced when the update was queued, unless it has been written through
+     * another path meanwhile: its version is then incremented as usual, so that it never goes backwards.
+     *
+     * @param employeeId The ID of the employee to update.
+     * @param name       The new name.
+     * @param salary     The new salary.
+     * @param department The new department.
+     * @param version    The version announced when the update was queued.
+     * @return The number of updated employees, 0 if the employee does not exist anymore.
+     */
+    int writePendingUpdate(Long employeeId, String name, Integer salary, String department, Long version);
+
+    /**
+     * Retrieves a page of employees, from the query cache when possible.
+     *
+     * @param pageable The page to retrieve, and its sort order.
+     * @return A Page of employees.
+     */
+    Page<Employee> findAll(Pageable pageable);
+
+    /**
+     * Retrieves a page of the employees matching the specification, from the query cache when possible.
+     *
+     * @param specification The criteria the employees must match, or {@code null} to match every employee.
+     * @param pageable      The page to retrieve, and its sort order.
+     * @return A Page of the matching employees.
+     */
+    Page<Employee> findAll(Specification<Employee> specification, Pageable pageable);
+
+    /**
+     * Tells whether an employee exists, from the query cache when possible.
+     *
+     * @param employeeId The ID of the employee.
+     * @return {@code true} if an employee has this ID.
+     */
+    boolean existsById(Long employeeId);
+
+    /**
+     * Selects only the given attributes of a page of employees, without hydrating entities.
+     *
+     * @param specification The criteria the employees must match, or {@code null} to match every employee.
+     * @param attributes    The entity attributes to select. Each tuple element is aliased by its attribute name.
+     * @param pageable      The page to retrieve, and its sort order.
+     * @return A Page of tuples holding the selected attributes.
+     */
+    Page<Tuple> findAllAttributes(Specification<Employee> specification, List<String> attributes, Pageable pageable);
+
+    /**
+     * Selects only the given attributes of an employee, without hydrating the entity.
+     *
+     * @param employeeId The ID of the employee.
+     * @param attributes The entity attributes to select. Each tuple element is aliased by its attribute name.
+     * @return The tuple holding the selected attributes, or empty if the employee does not exist.
+     */
+    Optional<Tuple> findAttributesById(Long employeeId, List<String> attributes);
+}
@@ -0,0 +1,489 @@
+package jp.co.axa.apidemo.repositories;
+
+import jp.co.axa.apidemo.config.SecondLevelCacheConfig;
+import jp.co.axa.apidemo.entities.Employee;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.hibernate.type.Type;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+import static org.hibernate.annotations.QueryHints.CACHE_REGION;
+
+/**
+ * This class is the implementation of the EmployeeRepositoryCustom interface.
+ * <p>
+ * Native writes select the rows they write from one of H2's delta tables: updates and deletions read the rows they
+ * replace from the {@code OLD TABLE} of the statement, and the other writes the IDs they write from its
+ * {@code FINAL TABLE}. Hibernate takes such a statement for a query, so it does not evict the whole entity region
+ * as it does for a bulk write. The invalidation it performs for the write of an entity is registered instead: the
+ * written employees alone leave the second-level cache, and the cached results of the queries reading the
+ * EMPLOYEE table are invalidated.
+ */
+public class EmployeeRepositoryCustomImpl implements EmployeeRepositoryCustom {
+
+    // Initial version of an employee, as seeded by Hibernate on persist.
+    private static final long INITIAL_VERSION = 0L;
+
+    private static final String EMPLOYEE_TABLE = "EMPLOYEE";
+
+    private static final String EMPLOYEE_COLUMNS = "ID, EMPLOYEE_NAME, EMPLOYEE_SALARY, DEPARTMENT, VERSION";
+
+    // Columns and types of the attributes a patch may change, keyed by entity attribute name.
+    private static final Map<String, String> PATCHABLE_COLUMNS = new HashMap<>();
+
+    private static final Map<String, Type> PATCHABLE_TYPES = new HashMap<>();
+
+    static {
+        PATCHABLE_COLUMNS.put("name", "EMPLOYEE_NAME");
+        PATCHABLE_TYPES.put("name", StandardBasicTypes.STRING);
+        PATCHABLE_COLUMNS.put("salary", "EMPLOYEE_SALARY");
+        PATCHABLE_TYPES.put("salary", StandardBasicTypes.INTEGER);
+        PATCHABLE_COLUMNS.put("department", "DEPARTMENT");
+        PATCHABLE_TYPES.put("department", StandardBasicTypes.STRING);
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Inserts a new employee unless an employee with the given ID already exists.
+     * <p>
+     * The ID is taken from the entity's own pooled generator, so it never collides with IDs handed out to
+     * persisted entities, and the existence check is folded into the INSERT with a NOT EXISTS clause.
+     *
+     * @param employee      The employee to insert.
+     * @param conflictingId The ID that must not exist for the insert to happen.
+     * @return {@code true} if the employee was inserted, {@code false} if the ID already exists.
+     */
+    @Override
+    @Transactional
+    public boolean insertUnlessExists(Employee employee, Long conflictingId) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        Long employeeId = (Long) session.getFactory().getMetamodel().entityPersister(Employee.class)
+                .getIdentifierGenerator().generate(session, employee);
+
+        List<?> inserted = entityManager.createNativeQuery(
+                "SELECT ID FROM FINAL TABLE (INSERT INTO EMPLOYEE (ID, EMPLOYEE_NAME, EMPLOYEE_SALARY, DEPARTMENT, "
+                        + "VERSION) SELECT ?1, ?2, ?3, ?4, ?5 FROM DUAL "
+                        + "WHERE NOT EXISTS (SELECT 1 FROM EMPLOYEE WHERE ID = ?6))")
+                .unwrap(NativeQuery.class)
+                .setParameter(1, employeeId, StandardBasicTypes.LONG)
+                .setParameter(2, employee.getName(), StandardBasicTypes.STRING)
+                .setParameter(3, employee.getSalary(), StandardBasicTypes.INTEGER)
+                .setParameter(4, employee.getDepartment(), StandardBasicTypes.STRING)
+                .setParameter(5, INITIAL_VERSION, StandardBasicTypes.LONG)
+                .setParameter(6, conflictingId, StandardBasicTypes.LONG)
+                .addSynchronizedEntityClass(Employee.class)
+                .getResultList();
+        if (inserted.isEmpty()) {
+            return false;
+        }
+        invalidateEmployees(Collections.emptyList());
+        employee.setId(employeeId);
+        employee.setVersion(INITIAL_VERSION);
+        return true;
+    }
+
+    /**
+     * Locks the given employees with a native {@code SELECT ... FOR UPDATE}, and maps the rows by hand so that
+     * the persistence context does not keep them: a bulk write following the lock would leave it stale.
+     *
+     * @param employeeIds The IDs of the employees to lock.
+     * @return The employees found, as new instances that are not attached to the persistence context.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Employee> lockAllById(Collection<Long> employeeIds) {
+        if (employeeIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        NativeQuery<?> query = employeeQuery("SELECT " + EMPLOYEE_COLUMNS + " FROM " + EMPLOYEE_TABLE
+                + " WHERE ID IN (?1) FOR UPDATE");
+        query.setParameterList(1, employeeIds, StandardBasicTypes.LONG);
+        return readEmployees(query);
+    }
+
+    /**
+     * Replaces the name, salary and department of an employee, as a patch of these three attributes.
+     *
+     * @param employeeId      The ID of the employee to update.
+     * @param expectedVersion The version the employee must have, or {@code null} to update any version.
+     * @param name            The new name.
+     * @param salary          The new salary.
+     * @param department      The new department.
+     * @return The employee as it was before the update, or empty if it does not exist or has another version.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<Employee> updateReturningPrevious(Long employeeId, Long expectedVersion, String name,
+                                                      Integer salary, String department) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("name", name);
+        changes.put("salary", salary);
+        changes.put("department", department);
+        return patchReturningPrevious(employeeId, expectedVersion, changes);
+    }
+
+    /**
+     * Updates only the given attributes of an employee and increments its version, with a native UPDATE whose
+     * SET clause lists the changed columns alone, selected from its {@code OLD TABLE}.
+     * <p>
+     * The transaction is mandatory: H2 does not commit such a statement on its own in auto-commit mode.
+     *
+     * @param employeeId      The ID of the employee to update.
+     * @param expectedVersion The version the employee must have, or {@code null} to update any version.
+     * @param changes         The new values, keyed by entity attribute name. Must not be empty.
+     * @return The employee as it was before the update, or empty if it does not exist or has another version.
+     * @throws IllegalArgumentException if an attribute cannot be patched.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<Employee> patchReturningPrevious(Long employeeId, Long expectedVersion,
+                                                     Map<String, Object> changes) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(EMPLOYEE_COLUMNS)
+                .append(" FROM OLD TABLE (UPDATE ").append(EMPLOYEE_TABLE).append(" SET ");
+        int position = 1;
+        for (String attribute : changes.keySet()) {
+            String column = PATCHABLE_COLUMNS.get(attribute);
+            if (column == null) {
+                throw new IllegalArgumentException("Employee attribute " + attribute + " cannot be patched");
+            }
+            sql.append(column).append(" = ?").append(position++).append(", ");
+        }
+        sql.append("VERSION = VERSION + 1").append(whereIdAndVersion(position, expectedVersion)).append(')');
+
+        NativeQuery<?> query = employeeQuery(sql.toString());
+        position = 1;
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            query.setParameter(position++, change.getValue(), PATCHABLE_TYPES.get(change.getKey()));
+        }
+        return writeEmployee(bindIdAndVersion(query, position, employeeId, expectedVersion));
+    }
+
+    /**
+     * Deletes an employee with a native DELETE, selected from its {@code OLD TABLE}.
+     *
+     * @param employeeId      The ID of the employee to delete.
+     * @param expectedVersion The version the employee must have, or {@code null} to delete any version.
+     * @return The deleted employee, or empty if it does not exist or has another version.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<Employee> deleteReturningPrevious(Long employeeId, Long expectedVersion) {
+        NativeQuery<?> query = employeeQuery("SELECT " + EMPLOYEE_COLUMNS + " FROM OLD TABLE (DELETE FROM "
+                + EMPLOYEE_TABLE + whereIdAndVersion(1, expectedVersion) + ")");
+        return writeEmployee(bindIdAndVersion(query, 1, employeeId, expectedVersion));
+    }
+
+    /**
+     * Writes an update queued in write-behind mode, with a native statement taking the greater of the announced
+     * and the incremented versions.
+     *
+     * @param employeeId The ID of the employee to update.
+     * @param name       The new name.
+     * @param salary     The new salary.
+     * @param department The new department.
+     * @param version    The version announced when the update was queued.
+     * @return The number of updated employees, 0 if the employee does not exist anymore.
+     */
+    @Override
+    @Transactional
+    public int writePendingUpdate(Long employeeId, String name, Integer salary, String department, Long version) {
+        List<?> updated = entityManager.createNativeQuery(
+                "SELECT ID FROM FINAL TABLE (UPDATE EMPLOYEE SET EMPLOYEE_NAME = ?1, EMPLOYEE_SALARY = ?2, "
+                        + "DEPARTMENT = ?3, VERSION = GREATEST(VERSION + 1, ?4) WHERE ID = ?5)")
+                .unwrap(NativeQuery.class)
+                .setParameter(1, name, StandardBasicTypes.STRING)
+                .setParameter(2, salary, StandardBasicTypes.INTEGER)
+                .setParameter(3, department, StandardBasicTypes.STRING)
+                .setParameter(4, version, StandardBasicTypes.LONG)
+                .setParameter(5, employeeId, StandardBasicTypes.LONG)
+                .addSynchronizedEntityClass(Employee.class)
+                .getResultList();
+        if (!updated.isEmpty()) {
+            invalidateEmployees(Collections.singletonList(employeeId));
+        }
+        return updated.size();
+    }
+
+    /**
+     * Retrieves a page of employees, with cacheable queries.
+     *
+     * @param pageable The page to retrieve, and its sort order.
+     * @return A Page of employees.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Employee> findAll(Pageable pageable) {
+        return findAll(null, pageable);
+    }
+
+    /**
+     * Retrieves a page of the employees matching the specification, as Spring Data does, except that both the
+     * query and its COUNT query are cacheable. A cached page only holds the IDs of its employees, which are then
+     * read from the second-level cache, or from the database one by one if they are no longer cached.
+     *
+     * @param specification The criteria the employees must match, or {@code null} to match every employee.
+     * @param pageable      The page to retrieve, and its sort order.
+     * @return A Page of the matching employees.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Employee> findAll(Specification<Employee> specification, Pageable pageable) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Employee> query = builder.createQuery(Employee.class);
+        Root<Employee> root = query.from(Employee.class);
+
+        query.select(root);
+        where(query, root, builder, specification);
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, builder));
+
+        TypedQuery<Employee> typedQuery = cacheable(entityManager.createQuery(query));
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(typedQuery.getResultList(), pageable, () -> count(specification));
+    }
+
+    /**
+     * Tells whether an employee exists, with a cacheable query selecting its ID alone.
+     *
+     * @param employeeId The ID of the employee.
+     * @return {@code true} if an employee has this ID.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public boolean existsById(Long employeeId) {
+        return !cacheable(entityManager.createQuery(
+                "select e.id from Employee e where e.id = :employeeId", Long.class))
+                .setParameter("employeeId", employeeId)
+                .getResultList()
+                .isEmpty();
+    }
+
+    /**
+     * Selects the given attributes of the employees matching the specification, as a criteria query returning
+     * tuples: the rows are scalar values, so no entity is hydrated nor enters the persistence context.
+     * The COUNT query is skipped when the page tells the total by itself, and is cacheable.
+     *
+     * @param specification The criteria the employees must match, or {@code null} to match every employee.
+     * @param attributes    The entity attributes to select, each aliased by its name.
+     * @param pageable      The page to retrieve, and its sort order.
+     * @return A Page of tuples holding the selected attributes.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Tuple> findAllAttributes(Specification<Employee> specification, List<String> attributes,
+                                         Pageable pageable) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Employee> root = query.from(Employee.class);
+
+        query.multiselect(select(root, attributes));
+        where(query, root, builder, specification);
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, builder));
+
+        List<Tuple> rows = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+
+        return PageableExecutionUtils.getPage(rows, pageable, () -> count(specification));
+    }
+
+    /**
+     * Selects the given attributes of an employee, as a criteria query returning a tuple.
+     *
+     * @param employeeId The ID of the employee.
+     * @param attributes The entity attributes to select, each aliased by its name.
+     * @return The tuple holding the selected attributes, or empty if the employee does not exist.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Tuple> findAttributesById(Long employeeId, List<String> attributes) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Employee> root = query.from(Employee.class);
+
+        query.multiselect(select(root, attributes));
+        query.where(builder.equal(root.get("id"), employeeId));
+
+        return entityManager.createQuery(query).getResultList().stream().findFirst();
+    }
+
+    /**
+     * Creates a native query selecting the columns of employees, mapped as scalars.
+     */
+    private NativeQuery<?> employeeQuery(String sql) {
+        return entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addScalar("ID", StandardBasicTypes.LONG)
+                .addScalar("EMPLOYEE_NAME", StandardBasicTypes.STRING)
+                .addScalar("EMPLOYEE_SALARY", StandardBasicTypes.INTEGER)
+                .addScalar("DEPARTMENT", StandardBasicTypes.STRING)
+                .addScalar("VERSION", StandardBasicTypes.LONG)
+                .addSynchronizedEntityClass(Employee.class);
+    }
+
+    /**
+     * Runs a query selecting the columns of employees, and maps the rows by hand so that the persistence context
+     * does not keep them: a bulk write following the query would leave it stale.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Employee> readEmployees(NativeQuery<?> query) {
+        List<Object[]> rows = (List<Object[]>) query.getResultList();
+        List<Employee> employees = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Employee employee = new Employee();
+            employee.setId((Long) row[0]);
+            employee.setName((String) row[1]);
+            employee.setSalary((Integer) row[2]);
+            employee.setDepartment((String) row[3]);
+            employee.setVersion((Long) row[4]);
+            employees.add(employee);
+        }
+        return employees;
+    }
+
+    /**
+     * Runs a write selected from its {@code OLD TABLE}, and invalidates the written employee if a row was written.
+     */
+    private Optional<Employee> writeEmployee(NativeQuery<?> query) {
+        List<Employee> previous = readEmployees(query);
+        if (previous.isEmpty()) {
+            return Optional.empty();
+        }
+        invalidateEmployees(Collections.singletonList(previous.get(0).getId()));
+        return Optional.of(previous.get(0));
+    }
+
+    /**
+     * Invalidates the second-level cache after a native write of employees, as Hibernate does when it writes an
+     * entity: each written employee is soft-locked in the entity region, so that it is neither read nor cached
+     * again until the transaction completes, and the timestamp of the table of employees is moved forward, so
+     * that no cached query result reading it is used anymore. The other employees stay cached.
+     *
+     * @param employeeIds The IDs of the employees written, empty for an insertion.
+     */
+    private void invalidateEmployees(Collection<Long> employeeIds) {
+        EventSource session = entityManager.unwrap(EventSource.class);
+        SessionFactoryImplementor factory = session.getFactory();
+        EntityPersister persister = factory.getMetamodel().entityPersister(Employee.class);
+        // Named by the physical naming strategy, which may not keep the case of the table name
+        String[] spaces = Arrays.stream(persister.getQuerySpaces()).map(String::valueOf).toArray(String[]::new);
+        TimestampsCache timestamps = factory.getSessionFactoryOptions().isQueryCacheEnabled()
+                ? factory.getCache().getTimestampsCache() : null;
+        if (timestamps != null) {
+            timestamps.preInvalidate(spaces, session);
+        }
+
+        EntityDataAccess access = persister.canWriteToCache() ? persister.getCacheAccessStrategy() : null;
+        Map<Object, SoftLock> locks = new HashMap<>();
+        if (access != null) {
+            for (Long employeeId : employeeIds) {
+                Object key = access.generateCacheKey(employeeId, persister, factory, session.getTenantIdentifier());
+                locks.put(key, access.lockItem(session, key, null));
+            }
+        }
+        session.getActionQueue().registerProcess((success, completedSession) -> {
+            locks.forEach((key, lock) -> access.unlockItem(completedSession, key, lock));
+            if (timestamps != null) {
+                timestamps.invalidate(spaces, completedSession);
+            }
+        });
+    }
+
+    /**
+     * Builds the WHERE clause matching an employee by ID, and by version if one is expected.
+     */
+    private static String whereIdAndVersion(int position, Long expectedVersion) {
+        return " WHERE ID = ?" + position + (expectedVersion == null ? "" : " AND VERSION = ?" + (position + 1));
+    }
+
+    /**
+     * Binds the parameters of {@link #whereIdAndVersion(int, Long)}.
+     */
+    private static NativeQuery<?> bindIdAndVersion(NativeQuery<?> query, int position, Long employeeId,
+                                                   Long expectedVersion) {
+        query.setParameter(position, employeeId, StandardBasicTypes.LONG);
+        if (expectedVersion != null) {
+            query.setParameter(position + 1, expectedVersion, StandardBasicTypes.LONG);
+        }
+        return query;
+    }
+
+    /**
+     * Counts the employees matching the specification, from the query cache when possible.
+     */
+    private long count(Specification<Employee> specification) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> count = builder.createQuery(Long.class);
+        Root<Employee> root = count.from(Employee.class);
+        count.select(builder.count(root));
+        where(count, root, builder, specification);
+        return cacheable(entityManager.createQuery(count)).getSingleResult();
+    }
+
+    /**
+     * Keeps the results of a query in the query cache of employees, until a write to the EMPLOYEE table.
+     */
+    private static <T> TypedQuery<T> cacheable(TypedQuery<T> query) {
+        return query.setHint(CACHEABLE, true)
+                .setHint(CACHE_REGION, SecondLevelCacheConfig.EMPLOYEE_QUERY_REGION);
+    }
+
+    /**
+     * Builds the selection of the given attributes, each aliased by its name.
+     */
+    private static List<Selection<?>> select(Root<Employee> root, List<String> attributes) {
+        List<Selection<?>> selections = new ArrayList<>(attributes.size());
+        for (String attribute : attributes) {
+            selections.add(root.get(attribute).alias(attribute));
+        }
+        return selections;
+    }
+
+    /**
+     * Restricts a query to the employees matching the specification, if any.
+     */
+    private static void where(CriteriaQuery<?> query, Root<Employee> root, CriteriaBuilder builder,
+                              Specification<Employee> specification) {
+        Predicate predicate = specification == null ? null : specification.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package jp.co.axa.apidemo.repositories;
+
+import jp.co.axa.apidemo.entities.Employee;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Search criteria on the Employee entity, to be combined with {@link Specification#and(Specification)}.
+ * <p>
+ * Every criterion is written so that it can be served by one of the EMPLOYEE indexes declared in schema.sql.
+ */
+public final class EmployeeSpecifications {
+
+    private EmployeeSpecifications() {
+    }
+
+    /**
+     * Matches employees of the given department. Served by IX_EMPLOYEE_DEPARTMENT.
+     *
+     * @param department The exact name of the department.
+     * @return The specification.
+     */
+    public static Specification<Employee> hasDepartment(String department) {
+        return (root, query, builder) -> builder.equal(root.get("department"), department);
+    }
+
+    /**
+     * Matches employees earning at least the given salary. Served by IX_EMPLOYEE_SALARY, or by
+     * IX_EMPLOYEE_DEPARTMENT when combined with {@link #hasDepartment(String)}.
+     *
+     * @param minSalary The lowest salary, inclusive.
+     * @return The specification.
+     */
+    public static Specification<Employee> salaryAtLeast(Integer minSalary) {
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get("salary"), minSalary);
+    }
+
+    /**
+     * Matches employees earning at most the given salary. Served by IX_EMPLOYEE_SALARY, or by
+     * IX_EMPLOYEE_DEPARTMENT when combined with {@link #hasDepartment(String)}.
+     *
+     * @param maxSalary The highest salary, inclusive.
+     * @return The specification.
+     */
+    public static Specification<Employee> salaryAtMost(Integer maxSalary) {
+        return (root, query, builder) -> builder.lessThanOrEqualTo(root.get("salary"), maxSalary);
+    }
+
+    /**
+     * Matches employees whose name starts with the given prefix, ignoring case. Served by IX_EMPLOYEE_NAME.
+     * <p>
+     * The prefix is expressed as the range {@code [prefix, prefix + U+FFFF)} rather than {@code LIKE 'prefix%'},
+     * because H2 only turns a LIKE into an index range when the pattern is a literal, not a bind parameter.
+     * Case is ignored by the VARCHAR_IGNORECASE type of the EMPLOYEE_NAME column.
+     *
+     * @param prefix The beginning of the name.
+     * @return The specification.
+     */
+    public static Specification<Employee> nameStartsWith(String prefix) {
+        return (root, query, builder) -> builder.and(
+                builder.greaterThanOrEqualTo(root.get("name"), prefix),
+                builder.lessThan(root.get("name"), prefix + Character.MAX_VALUE));
+    }
+}
@@ -0,0 +1,132 @@
+package jp.co.axa.apidemo.security;
+
+import jp.co.axa.apidemo.config.CacheConfig;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * An {@link AuthenticationProvider} that remembers successful username/password verifications.
+ * <p>
+ * Verifying a bcrypt password costs hundreds of milliseconds, so after the delegate has accepted a
+ * username/password pair, a keyed hash (HMAC-SHA256 with a random per-process key) of the pair is kept in
+ * the "credentials" cache for a short time. Later requests carrying the same credentials are authenticated
+ * by comparing hashes, without querying the database or running bcrypt. The plain password is never stored.
+ * <p>
+ * Entries expire with the cache TTL and are evicted by {@link CachingUserDetailsManager} when the user changes.
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final AuthenticationProvider delegate;
+
+    private final Cache credentialsCache;
+
+    private final ThreadLocal<Mac> mac;
+
+    /**
+     * Creates a new CachingAuthenticationProvider.
+     *
+     * @param delegate     The provider performing the actual verification on a cache miss.
+     * @param cacheManager The cache manager providing the "credentials" cache.
+     */
+    public CachingAuthenticationProvider(AuthenticationProvider delegate, CacheManager cacheManager) {
+        this.delegate = delegate;
+        this.credentialsCache = cacheManager.getCache(CacheConfig.CREDENTIALS_CACHE);
+
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        SecretKeySpec secretKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(HMAC_ALGORITHM);
+                instance.init(secretKey);
+                return instance;
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException(HMAC_ALGORITHM + " is not available", ex);
+            }
+        });
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        Object credentials = authentication.getCredentials();
+        if (credentials == null) {
+            return delegate.authenticate(authentication);
+        }
+
+        String key = CachingUserDetailsManager.cacheKey(authentication.getName());
+        byte[] digest = digest(authentication.getName(), credentials.toString());
+
+        VerifiedCredentials verified = credentialsCache.get(key, VerifiedCredentials.class);
+        if (verified != null && MessageDigest.isEqual(verified.digest, digest)) {
+            return createSuccessAuthentication(authentication, verified.principal);
+        }
+
+        Authentication result = delegate.authenticate(authentication);
+        if (result != null && result.getPrincipal() instanceof UserDetails) {
+            credentialsCache.put(key, new VerifiedCredentials(digest, (UserDetails) result.getPrincipal()));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+
+    /**
+     * Creates a new authenticated token for a request served from the cache.
+     *
+     * @param authentication The authentication request.
+     * @param principal      The user verified earlier with the same credentials.
+     * @return The authenticated token.
+     */
+    private Authentication createSuccessAuthentication(Authentication authentication, UserDetails principal) {
+        UsernamePasswordAuthenticationToken result =
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        result.setDetails(authentication.getDetails());
+        return result;
+    }
+
+    /**
+     * Computes the keyed hash of a username/password pair.
+     *
+     * @param username The username as sent by the client.
+     * @param password The password as sent by the client.
+     * @return The HMAC of the pair.
+     */
+    private byte[] digest(String username, String password) {
+        Mac instance = mac.get();
+        instance.update(username.getBytes(StandardCharsets.UTF_8));
+        instance.update((byte) 0);
+        return instance.doFinal(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A successful verification kept in the "credentials" cache.
+     */
+    private static final class VerifiedCredentials {
+
+        private final byte[] digest;
+
+        private final UserDetails principal;
+
+        private VerifiedCredentials(byte[] digest, UserDetails principal) {
+            this.digest = digest;
+            this.principal = principal;
+        }
+    }
+}
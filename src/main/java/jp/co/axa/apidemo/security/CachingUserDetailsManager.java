@@ -0,0 +1,154 @@
+package jp.co.axa.apidemo.security;
+
+import jp.co.axa.apidemo.config.CacheConfig;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.provisioning.JdbcUserDetailsManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A {@link JdbcUserDetailsManager} that caches the users and authorities rows it loads.
+ * <p>
+ * Every change made through the {@link org.springframework.security.provisioning.UserDetailsManager} or
+ * {@link org.springframework.security.provisioning.GroupManager} methods evicts the affected users from
+ * both the "userDetails" cache and the "credentials" cache used by {@link CachingAuthenticationProvider},
+ * so a changed password or a disabled user takes effect on the next request.
+ */
+public class CachingUserDetailsManager extends JdbcUserDetailsManager {
+
+    private final Cache userDetailsCache;
+
+    private final Cache credentialsCache;
+
+    /**
+     * Creates a new CachingUserDetailsManager.
+     *
+     * @param dataSource   The data source holding the users and authorities tables.
+     * @param cacheManager The cache manager providing the "userDetails" and "credentials" caches.
+     */
+    public CachingUserDetailsManager(DataSource dataSource, CacheManager cacheManager) {
+        super(dataSource);
+        this.userDetailsCache = cacheManager.getCache(CacheConfig.USER_DETAILS_CACHE);
+        this.credentialsCache = cacheManager.getCache(CacheConfig.CREDENTIALS_CACHE);
+    }
+
+    /**
+     * Loads a user and their authorities, from the cache when possible.
+     * <p>
+     * A copy of the cached user is returned, because the authentication process erases the password of
+     * the principal it is given.
+     *
+     * @param username The username to look up.
+     * @return The user details.
+     */
+    @Override
+    public UserDetails loadUserByUsername(String username) {
+        String key = cacheKey(username);
+        UserDetails user = userDetailsCache.get(key, UserDetails.class);
+        if (user == null) {
+            user = super.loadUserByUsername(username);
+            userDetailsCache.put(key, user);
+        }
+        return User.withUserDetails(user).build();
+    }
+
+    @Override
+    public void createUser(UserDetails user) {
+        super.createUser(user);
+        evictUser(user.getUsername());
+    }
+
+    @Override
+    public void updateUser(UserDetails user) {
+        super.updateUser(user);
+        evictUser(user.getUsername());
+    }
+
+    @Override
+    public void deleteUser(String username) {
+        super.deleteUser(username);
+        evictUser(username);
+    }
+
+    @Override
+    public void changePassword(String oldPassword, String newPassword) {
+        Authentication currentUser = SecurityContextHolder.getContext().getAuthentication();
+        super.changePassword(oldPassword, newPassword);
+        if (currentUser != null) {
+            evictUser(currentUser.getName());
+        }
+    }
+
+    @Override
+    public void addUserToGroup(String username, String groupName) {
+        super.addUserToGroup(username, groupName);
+        evictUser(username);
+    }
+
+    @Override
+    public void removeUserFromGroup(String username, String groupName) {
+        super.removeUserFromGroup(username, groupName);
+        evictUser(username);
+    }
+
+    @Override
+    public void deleteGroup(String groupName) {
+        super.deleteGroup(groupName);
+        evictAllUsers();
+    }
+
+    @Override
+    public void addGroupAuthority(String groupName, GrantedAuthority authority) {
+        super.addGroupAuthority(groupName, authority);
+        evictAllUsers();
+    }
+
+    @Override
+    public void removeGroupAuthority(String groupName, GrantedAuthority authority) {
+        super.removeGroupAuthority(groupName, authority);
+        evictAllUsers();
+    }
+
+    @Override
+    public void createGroup(String groupName, List<GrantedAuthority> authorities) {
+        super.createGroup(groupName, authorities);
+        evictAllUsers();
+    }
+
+    /**
+     * Returns the cache key of a username. Usernames are case-insensitive in the users table.
+     *
+     * @param username The username.
+     * @return The cache key.
+     */
+    static String cacheKey(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Evicts a single user from the user details and credentials caches.
+     *
+     * @param username The username to evict.
+     */
+    private void evictUser(String username) {
+        String key = cacheKey(username);
+        userDetailsCache.evict(key);
+        credentialsCache.evict(key);
+    }
+
+    /**
+     * Evicts every user, used when a group change may affect an unknown set of users.
+     */
+    private void evictAllUsers() {
+        userDetailsCache.clear();
+        credentialsCache.clear();
+    }
+}
@@ -0,0 +1,136 @@
+package jp.co.axa.apidemo.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The ConcurrencyLimitFilter class sheds the requests arriving while too many are already in progress, answering
+ * them with 503 (Service Unavailable) right away rather than letting them queue for threads and connections.
+ * <p>
+ * It runs ahead of Spring Security, so that the shed requests cost neither authentication nor database access.
+ * An asynchronous request stays in progress until it completes, not only while it holds a servlet thread.
+ * <p>
+ * Streams of Server-Sent Events, whose path ends with {@value #STREAM_PATH_SUFFIX}, stay open for up to half an
+ * hour while holding no thread: they are counted against a limit of their own, so that their subscribers cannot
+ * use up the slots of the short requests.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final String STREAM_PATH_SUFFIX = "/stream";
+
+    private final Limit requests;
+
+    private final Limit streams;
+
+    /**
+     * Creates a new ConcurrencyLimitFilter.
+     *
+     * @param maxConcurrentRequests The maximum number of requests in progress, streams excluded.
+     * @param maxConcurrentStreams  The maximum number of open streams.
+     * @param meterRegistry         The registry the in-flight gauges and the rejection counters are registered with.
+     */
+    public ConcurrencyLimitFilter(int maxConcurrentRequests, int maxConcurrentStreams, MeterRegistry meterRegistry) {
+        AtomicInteger inFlightRequests = new AtomicInteger();
+        Gauge.builder("api.requests.in-flight", inFlightRequests, AtomicInteger::get)
+                .description("API requests in progress, streams excluded")
+                .register(meterRegistry);
+        this.requests = new Limit(maxConcurrentRequests, inFlightRequests, Counter.builder("api.requests.rejected")
+                .description("API requests rejected before reaching the controllers")
+                .tag("reason", "overloaded")
+                .register(meterRegistry), "Too many requests in progress, please retry later.");
+        AtomicInteger openStreams = new AtomicInteger();
+        Gauge.builder("api.streams.open", openStreams, AtomicInteger::get)
+                .description("API event streams open")
+                .register(meterRegistry);
+        this.streams = new Limit(maxConcurrentStreams, openStreams, Counter.builder("api.requests.rejected")
+                .description("API requests rejected before reaching the controllers")
+                .tag("reason", "too-many-streams")
+                .register(meterRegistry), "Too many event streams open, please retry later.");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Limit limit = request.getServletPath().endsWith(STREAM_PATH_SUFFIX) ? streams : requests;
+        if (limit.inFlight.incrementAndGet() > limit.max) {
+            limit.inFlight.decrementAndGet();
+            limit.rejectedCounter.increment();
+            OverloadResponses.reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1, limit.rejectionMessage);
+            return;
+        }
+        boolean released = true;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(limit));
+                released = false;
+            }
+        } finally {
+            if (released) {
+                limit.inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * A number of requests in progress and its maximum.
+     */
+    private static final class Limit {
+
+        private final int max;
+
+        private final AtomicInteger inFlight;
+
+        private final Counter rejectedCounter;
+
+        private final String rejectionMessage;
+
+        private Limit(int max, AtomicInteger inFlight, Counter rejectedCounter, String rejectionMessage) {
+            this.max = max;
+            this.inFlight = inFlight;
+            this.rejectedCounter = rejectedCounter;
+            this.rejectionMessage = rejectionMessage;
+        }
+    }
+
+    /**
+     * Ends an asynchronous request. Completion is notified after errors and timeouts too.
+     */
+    private static final class ReleasingListener implements AsyncListener {
+
+        private final Limit limit;
+
+        private ReleasingListener(Limit limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limit.inFlight.decrementAndGet();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package jp.co.axa.apidemo.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The FailedAuthenticationRateLimitFilter class limits the rate of the failed authentications of every username
+ * with a {@link TokenBucket}, answering the requests over the limit with 429 (Too Many Requests) and a Retry-After
+ * header.
+ * <p>
+ * It runs in the security filter chain, right before the basic authentication, so that a flood of wrong passwords
+ * is rejected before reaching the database and bcrypt. The bucket is chosen by the username claimed in the
+ * Authorization header, whether or not it exists, in lower case since usernames are compared ignoring case. A
+ * token is only taken once the authentication has failed: users sending the right password are never limited by
+ * this filter, but by {@link PrincipalRateLimitFilter}.
+ * Requests racing the failure that empties a bucket may still reach bcrypt, up to the concurrency limit.
+ */
+public class FailedAuthenticationRateLimitFilter extends OncePerRequestFilter {
+
+    private static final String API_PATH = "/api/";
+
+    private static final String BASIC_SCHEME = "basic ";
+
+    private final double failuresPerSecond;
+
+    private final int burst;
+
+    private final Cache<String, TokenBucket> buckets = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+
+    private final Counter rejectedCounter;
+
+    /**
+     * Creates a new FailedAuthenticationRateLimitFilter.
+     *
+     * @param failuresPerSecond The sustained number of failed authentications per second of a username.
+     * @param burst             The number of failed authentications accepted at once after an idle period.
+     * @param meterRegistry     The registry the rejection counter is registered with.
+     */
+    public FailedAuthenticationRateLimitFilter(double failuresPerSecond, int burst, MeterRegistry meterRegistry) {
+        this.failuresPerSecond = failuresPerSecond;
+        this.burst = burst;
+        this.rejectedCounter = Counter.builder("api.requests.rejected")
+                .description("API requests rejected before reaching the controllers")
+                .tag("reason", "authentication-rate-limited")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getServletPath().startsWith(API_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String username = claimedUsername(request.getHeader(HttpHeaders.AUTHORIZATION));
+        if (username == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        TokenBucket bucket = buckets.getIfPresent(username);
+        long waitNanos = bucket == null ? 0 : bucket.peek(System.nanoTime());
+        if (waitNanos > 0) {
+            rejectedCounter.increment();
+            OverloadResponses.reject(response, HttpStatus.TOO_MANY_REQUESTS,
+                    (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1),
+                    "Too many failed authentications, please slow down.");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+        if (response.getStatus() == HttpStatus.UNAUTHORIZED.value()) {
+            buckets.get(username, key -> new TokenBucket(failuresPerSecond, burst)).tryAcquire(System.nanoTime());
+        }
+    }
+
+    /**
+     * Extracts the username from the Authorization header of a basic authentication.
+     *
+     * @param authorization The value of the Authorization header, or {@code null} if missing.
+     * @return The claimed username in lower case, or {@code null} if the header does not hold basic credentials.
+     */
+    private static String claimedUsername(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, BASIC_SCHEME, 0, BASIC_SCHEME.length())) {
+            return null;
+        }
+        String credentials;
+        try {
+            credentials = new String(Base64.getDecoder().decode(authorization.substring(BASIC_SCHEME.length()).trim()),
+                    StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            // Rejected by the basic authentication without any password verification
+            return null;
+        }
+        int separator = credentials.indexOf(':');
+        return separator < 0 ? null : credentials.substring(0, separator).toLowerCase(Locale.ROOT);
+    }
+}
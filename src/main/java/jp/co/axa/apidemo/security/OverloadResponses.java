@@ -0,0 +1,41 @@
+package jp.co.axa.apidemo.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the responses of the requests rejected by {@link ConcurrencyLimitFilter} and {@link PrincipalRateLimitFilter}.
+ * <p>
+ * The body has the fields of {@link jp.co.axa.apidemo.exception.EmployeeErrorResponse}, but is written directly,
+ * without going through an exception, a message converter or the error log, so that rejecting costs next to nothing.
+ */
+final class OverloadResponses {
+
+    private OverloadResponses() {
+    }
+
+    /**
+     * Writes a rejection.
+     *
+     * @param response          The response to write.
+     * @param status            The status of the rejection, 429 or 503.
+     * @param retryAfterSeconds The number of seconds after which the client may retry, at least 1.
+     * @param message           The message of the body. Must not need JSON escaping.
+     * @throws IOException if writing the response fails.
+     */
+    static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds, String message)
+            throws IOException {
+        byte[] body = ("{\"status\":" + status.value() + ",\"message\":\"" + message + "\",\"timeStamp\":"
+                + System.currentTimeMillis() + "}").getBytes(StandardCharsets.UTF_8);
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(retryAfterSeconds, 1)));
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
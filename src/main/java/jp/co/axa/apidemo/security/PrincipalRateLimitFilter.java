@@ -0,0 +1,132 @@
+package jp.co.axa.apidemo.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The PrincipalRateLimitFilter class limits the rate of the API requests of every user with a {@link TokenBucket},
+ * answering the requests over the limit with 429 (Too Many Requests) and a Retry-After header.
+ * <p>
+ * It runs in the security filter chain, right after the basic authentication, so that the bucket is chosen by
+ * username and the limit by role: a user with several roles gets the limit of the highest one. Buckets idle for a
+ * minute are dropped, and rejecting a request neither throws nor reaches the database.
+ */
+public class PrincipalRateLimitFilter extends OncePerRequestFilter {
+
+    private static final Map<String, Role> ROLES_BY_AUTHORITY = new HashMap<>();
+
+    static {
+        for (Role role : Role.values()) {
+            ROLES_BY_AUTHORITY.put("ROLE_" + role.name(), role);
+        }
+    }
+
+    private static final String API_PATH = "/api/";
+
+    private final Map<Role, Limit> limits;
+
+    private final Cache<String, TokenBucket> buckets = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterAccess(1, TimeUnit.MINUTES)
+            .build();
+
+    private final Counter rejectedCounter;
+
+    /**
+     * Creates a new PrincipalRateLimitFilter.
+     *
+     * @param limits        The limit of every role. Users whose highest role has no limit are not limited.
+     * @param meterRegistry The registry the rejection counter is registered with.
+     */
+    public PrincipalRateLimitFilter(Map<Role, Limit> limits, MeterRegistry meterRegistry) {
+        this.limits = new EnumMap<>(limits);
+        this.rejectedCounter = Counter.builder("api.requests.rejected")
+                .description("API requests rejected before reaching the controllers")
+                .tag("reason", "rate-limited")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getServletPath().startsWith(API_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Role role = authentication == null || !authentication.isAuthenticated() ? null : highestRole(authentication);
+        Limit limit = role == null ? null : limits.get(role);
+        if (limit == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        TokenBucket bucket = buckets.get(authentication.getName() + '/' + role,
+                key -> new TokenBucket(limit.requestsPerSecond, limit.burst));
+        long waitNanos = bucket.tryAcquire(System.nanoTime());
+        if (waitNanos > 0) {
+            rejectedCounter.increment();
+            OverloadResponses.reject(response, HttpStatus.TOO_MANY_REQUESTS,
+                    (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1),
+                    "Too many requests, please slow down.");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Finds the highest role granted to a user.
+     *
+     * @param authentication The authentication of the user.
+     * @return The highest role, or {@code null} if the user has none.
+     */
+    private static Role highestRole(Authentication authentication) {
+        Role highest = null;
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            Role role = ROLES_BY_AUTHORITY.get(authority.getAuthority());
+            if (role != null && (highest == null || role.compareTo(highest) > 0)) {
+                highest = role;
+            }
+        }
+        return highest;
+    }
+
+    /**
+     * The rate limit of a role.
+     */
+    public static final class Limit {
+
+        private final double requestsPerSecond;
+
+        private final int burst;
+
+        /**
+         * Creates a new Limit.
+         *
+         * @param requestsPerSecond The sustained number of requests per second.
+         * @param burst             The number of requests accepted at once after an idle period.
+         */
+        public Limit(double requestsPerSecond, int burst) {
+            this.requestsPerSecond = requestsPerSecond;
+            this.burst = burst;
+        }
+    }
+}
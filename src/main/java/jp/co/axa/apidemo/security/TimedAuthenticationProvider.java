@@ -0,0 +1,67 @@
+package jp.co.axa.apidemo.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link AuthenticationProvider} that records the duration of the authentications performed by its delegate.
+ * <p>
+ * One timer per outcome ({@code result=success} or {@code result=failure}) is registered up front, so that
+ * recording a duration allocates nothing.
+ */
+public class TimedAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+
+    private final Timer successTimer;
+
+    private final Timer failureTimer;
+
+    /**
+     * Creates a new TimedAuthenticationProvider.
+     *
+     * @param delegate      The provider performing the authentication.
+     * @param meterRegistry The registry the timers are registered with.
+     * @param name          The name of the timers.
+     * @param description   The description of the timers.
+     */
+    public TimedAuthenticationProvider(AuthenticationProvider delegate, MeterRegistry meterRegistry,
+                                       String name, String description) {
+        this.delegate = delegate;
+        this.successTimer = buildTimer(meterRegistry, name, description, "success");
+        this.failureTimer = buildTimer(meterRegistry, name, description, "failure");
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        long start = System.nanoTime();
+        try {
+            Authentication result = delegate.authenticate(authentication);
+            if (result != null) {
+                successTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            return result;
+        } catch (AuthenticationException ex) {
+            failureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw ex;
+        }
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+
+    private static Timer buildTimer(MeterRegistry meterRegistry, String name, String description, String result) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
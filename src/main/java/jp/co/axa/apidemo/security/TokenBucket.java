@@ -0,0 +1,64 @@
+package jp.co.axa.apidemo.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket, refilled at a constant rate up to its capacity.
+ * <p>
+ * The bucket is implemented as the generic cell rate algorithm: instead of a token count and a refill timestamp,
+ * it only holds the time at which it will be full again, updated with a compare-and-set. Taking a token pushes
+ * that time one refill interval further, and is refused when it would end up more than a full bucket ahead.
+ */
+public final class TokenBucket {
+
+    // Time for one token to be refilled.
+    private final long intervalNanos;
+
+    // Time for an empty bucket to be refilled entirely.
+    private final long capacityNanos;
+
+    // Time at which the bucket is full again, relative to System.nanoTime().
+    private final AtomicLong fullAt;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param tokensPerSecond The refill rate.
+     * @param capacity        The maximum number of tokens, which is also the largest burst accepted.
+     */
+    public TokenBucket(double tokensPerSecond, int capacity) {
+        this.intervalNanos = (long) (1_000_000_000L / tokensPerSecond);
+        this.capacityNanos = intervalNanos * capacity;
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes one token.
+     *
+     * @param nowNanos The current value of {@link System#nanoTime()}.
+     * @return 0 if a token was taken, otherwise the number of nanoseconds until one is available.
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current - nowNanos, 0) + intervalNanos;
+            if (next > capacityNanos) {
+                return next - capacityNanos;
+            }
+            if (fullAt.compareAndSet(current, nowNanos + next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Tells whether a token is available, without taking it.
+     *
+     * @param nowNanos The current value of {@link System#nanoTime()}.
+     * @return 0 if a token is available, otherwise the number of nanoseconds until one is.
+     */
+    public long peek(long nowNanos) {
+        long next = Math.max(fullAt.get() - nowNanos, 0) + intervalNanos;
+        return next > capacityNanos ? next - capacityNanos : 0;
+    }
+}
@@ -0,0 +1,55 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.dto.DepartmentStats;
+import jp.co.axa.apidemo.dto.DepartmentStatsReconciliation;
+import jp.co.axa.apidemo.entities.Employee;
+
+import java.util.List;
+
+/**
+ * The DepartmentStatsService interface establishes a contract for the per-department salary statistics.
+ * <p>
+ * The statistics are kept in memory and updated by the write paths of the employee services, so reading them
+ * never queries the EMPLOYEE table.
+ */
+public interface DepartmentStatsService {
+
+    /**
+     * Retrieves the statistics of every department.
+     *
+     * @return The statistics of every department, ordered by department name.
+     */
+    public List<DepartmentStats> getAllStats();
+
+    /**
+     * Retrieves the statistics of a single department.
+     *
+     * @param department The name of the department.
+     * @return The statistics of the department.
+     */
+    public DepartmentStats getStats(String department);
+
+    /**
+     * Records a write of an employee, from its state before and after the write. The previous state must have
+     * been returned by the write itself, under its row lock, so that concurrent writes of the same employee
+     * chain up.
+     * When called inside a transaction, the change is applied once the transaction commits.
+     *
+     * @param previous The employee as it was before the write, or {@code null} if it has been created.
+     * @param current  The employee as written to the database, or {@code null} if it has been deleted.
+     */
+    public void employeeChanged(Employee previous, Employee current);
+
+    /**
+     * Rebuilds the statistics from the EMPLOYEE table.
+     */
+    public void rebuild();
+
+    /**
+     * Compares the statistics with a GROUP BY query on the EMPLOYEE table, and replaces them with its result if
+     * they differ.
+     *
+     * @return A DepartmentStatsReconciliation describing the differences found.
+     */
+    public DepartmentStatsReconciliation reconcile();
+}
@@ -0,0 +1,351 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.dto.DepartmentStats;
+import jp.co.axa.apidemo.dto.DepartmentStatsReconciliation;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.exception.EmployeeNotFoundException;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class is an implementation of the DepartmentStatsService interface.
+ * <p>
+ * It keeps one aggregate per department: headcount, salary count and sum, and the number of employees earning each
+ * salary, so its memory grows with the number of distinct salaries of each department, not of employees. Every
+ * write is recorded as a delta between the previous state of the employee, returned by the write under its row
+ * lock, and its new state. Concurrent writes of the same employee are ordered by that lock, each one starting from
+ * the state the previous one left, and since counts and sums commute their deltas can be applied after commit in
+ * any order. Min and max are the lowest and highest salaries still counted, so reading the statistics never
+ * queries the database.
+ * <p>
+ * The statistics are built once at startup and can be reconciled against a GROUP BY query at any time. Writers
+ * hold a shared lock from before their commit until their delta is applied, and the query runs under the
+ * exclusive lock: no write commits while the table is read, and none is counted twice or missed.
+ */
+@Service
+public class DepartmentStatsServiceImpl implements DepartmentStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DepartmentStatsServiceImpl.class);
+
+    // Key standing for a null department, since ConcurrentHashMap does not accept null keys.
+    private static final String NO_DEPARTMENT = "\u0000";
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Aggregates by department key, replaced as a whole by a rebuild.
+    private volatile ConcurrentHashMap<String, Aggregate> aggregates = new ConcurrentHashMap<>();
+
+    // Writers share the read lock from before their commit until their delta is applied; reading the table
+    // takes the write lock.
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+
+    private final AtomicBoolean initialized = new AtomicBoolean();
+
+    /**
+     * Builds the statistics when the application context is first refreshed, before requests are served.
+     *
+     * @param event The context refreshed event.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void onContextRefreshed(ContextRefreshedEvent event) {
+        if (initialized.compareAndSet(false, true)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Retrieves the statistics of every department, from memory.
+     *
+     * @return The statistics of every department, ordered by department name.
+     */
+    @Override
+    public List<DepartmentStats> getAllStats() {
+        Map<String, Aggregate> current = aggregates;
+        List<DepartmentStats> stats = new ArrayList<>(current.size());
+        current.forEach((key, aggregate) -> {
+            DepartmentStats snapshot = aggregate.snapshot(toDepartment(key));
+            if (snapshot != null) {
+                stats.add(snapshot);
+            }
+        });
+        stats.sort(Comparator.comparing(DepartmentStats::getDepartment, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return stats;
+    }
+
+    /**
+     * Retrieves the statistics of a single department, from memory.
+     *
+     * @param department The name of the department.
+     * @return The statistics of the department.
+     * @throws EmployeeNotFoundException if no employee belongs to the department.
+     */
+    @Override
+    public DepartmentStats getStats(String department) {
+        Aggregate aggregate = aggregates.get(toKey(department));
+        DepartmentStats snapshot = aggregate == null ? null : aggregate.snapshot(department);
+        if (snapshot == null) {
+            throw new EmployeeNotFoundException("No employee could be found in this department");
+        }
+        return snapshot;
+    }
+
+    @Override
+    public void employeeChanged(Employee previous, Employee current) {
+        if (previous != null && current != null
+                && Objects.equals(previous.getDepartment(), current.getDepartment())
+                && Objects.equals(previous.getSalary(), current.getSalary())) {
+            return;
+        }
+        // Taken now, since the caller may modify the employees once the call returns
+        String previousKey = previous == null ? null : toKey(previous.getDepartment());
+        Integer previousSalary = previous == null ? null : previous.getSalary();
+        String currentKey = current == null ? null : toKey(current.getDepartment());
+        Integer currentSalary = current == null ? null : current.getSalary();
+        afterCommit(() -> {
+            if (previousKey != null) {
+                apply(previousKey, previousSalary, -1);
+            }
+            if (currentKey != null) {
+                apply(currentKey, currentSalary, 1);
+            }
+        });
+    }
+
+    /**
+     * Rebuilds the statistics from a GROUP BY query on the EMPLOYEE table. Writers wait to commit while the table
+     * is read.
+     */
+    @Override
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        commitLock.writeLock().lock();
+        try {
+            aggregates = load();
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+        logger.info("Department statistics built for {} departments in {} ms",
+                aggregates.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Compares the statistics with a GROUP BY query on the EMPLOYEE table, and replaces them with the result of
+     * the query if they differ. Writers wait to commit meanwhile, so any difference is a real one.
+     *
+     * @return A DepartmentStatsReconciliation describing the differences found.
+     */
+    @Override
+    public DepartmentStatsReconciliation reconcile() {
+        long start = System.currentTimeMillis();
+        List<String> mismatched = new ArrayList<>();
+        commitLock.writeLock().lock();
+        try {
+            ConcurrentHashMap<String, Aggregate> expected = load();
+            Map<String, Aggregate> actual = aggregates;
+            Set<String> keys = new HashSet<>(expected.keySet());
+            keys.addAll(actual.keySet());
+            for (String key : keys) {
+                Aggregate expectedAggregate = expected.get(key);
+                Aggregate actualAggregate = actual.get(key);
+                if (expectedAggregate == null || actualAggregate == null
+                        || !expectedAggregate.sameAs(actualAggregate)) {
+                    mismatched.add(toDepartment(key));
+                }
+            }
+            if (!mismatched.isEmpty()) {
+                aggregates = expected;
+            }
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+
+        DepartmentStatsReconciliation reconciliation = new DepartmentStatsReconciliation();
+        reconciliation.setConsistent(mismatched.isEmpty());
+        reconciliation.setMismatchedDepartments(mismatched);
+        if (!mismatched.isEmpty()) {
+            logger.warn("Department statistics differed from the database for {}; rebuilt", mismatched);
+            reconciliation.setRebuilt(true);
+        }
+        reconciliation.setElapsedMillis(System.currentTimeMillis() - start);
+        return reconciliation;
+    }
+
+    /**
+     * Reads the aggregates of every department from the EMPLOYEE table. Must be called under the write lock.
+     *
+     * @return The aggregates by department key.
+     */
+    private ConcurrentHashMap<String, Aggregate> load() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        List<Object[]> rows = transactionTemplate.execute(status -> employeeRepository.countByDepartmentAndSalary());
+        ConcurrentHashMap<String, Aggregate> loaded = new ConcurrentHashMap<>();
+        for (Object[] row : rows) {
+            loaded.computeIfAbsent(toKey((String) row[0]), key -> new Aggregate()).add((Integer) row[1], (Long) row[2]);
+        }
+        return loaded;
+    }
+
+    /**
+     * Runs the given action once the current transaction commits, or immediately if there is none. The read lock
+     * is held from before the commit until the action has run, so that the table is never read between the two.
+     *
+     * @param action The action to run.
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                private boolean locked;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    commitLock.readLock().lock();
+                    locked = true;
+                }
+
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (locked) {
+                        locked = false;
+                        commitLock.readLock().unlock();
+                    }
+                }
+            });
+        } else {
+            commitLock.readLock().lock();
+            try {
+                action.run();
+            } finally {
+                commitLock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Adds or removes an employee from the aggregate of a department. An aggregate back to zero is removed.
+     *
+     * @param departmentKey The key of the department.
+     * @param salary        The salary of the employee, or {@code null} if it has none.
+     * @param count         1 to add the employee, -1 to remove it.
+     */
+    private void apply(String departmentKey, Integer salary, long count) {
+        aggregates.compute(departmentKey, (key, aggregate) -> {
+            Aggregate result = aggregate == null ? new Aggregate() : aggregate;
+            result.add(salary, count);
+            return result.isEmpty() ? null : result;
+        });
+    }
+
+    private static String toKey(String department) {
+        return department == null ? NO_DEPARTMENT : department;
+    }
+
+    private static String toDepartment(String key) {
+        return NO_DEPARTMENT.equals(key) ? null : key;
+    }
+
+    /**
+     * The running statistics of one department. Updated and read under its own monitor, so that readers never see
+     * a half-applied delta.
+     * <p>
+     * The deltas of successive writes of an employee may be applied out of order, leaving a count briefly
+     * negative: such an aggregate or salary is kept but not reported.
+     */
+    private static final class Aggregate {
+
+        private long headcount;
+
+        private long salaryCount;
+
+        private long totalSalary;
+
+        // Number of employees by salary, for min and max.
+        private final TreeMap<Integer, Long> salaries = new TreeMap<>();
+
+        /**
+         * Adds employees with the given salary, or removes them if the count is negative.
+         */
+        private synchronized void add(Integer salary, long count) {
+            headcount += count;
+            if (salary != null) {
+                salaryCount += count;
+                totalSalary += salary * count;
+                salaries.merge(salary, count, (current, delta) -> current + delta == 0 ? null : current + delta);
+            }
+        }
+
+        private synchronized boolean isEmpty() {
+            return headcount == 0 && salaryCount == 0 && totalSalary == 0 && salaries.isEmpty();
+        }
+
+        private synchronized boolean sameAs(Aggregate other) {
+            synchronized (other) {
+                return headcount == other.headcount && salaryCount == other.salaryCount
+                        && totalSalary == other.totalSalary && salaries.equals(other.salaries);
+            }
+        }
+
+        /**
+         * Builds the statistics of the department.
+         *
+         * @param department The name of the department.
+         * @return The statistics of the department, or {@code null} if it has no employee.
+         */
+        private synchronized DepartmentStats snapshot(String department) {
+            if (headcount <= 0) {
+                return null;
+            }
+            DepartmentStats stats = new DepartmentStats();
+            stats.setDepartment(department);
+            stats.setHeadcount(headcount);
+            stats.setTotalSalary(totalSalary);
+            if (salaryCount > 0) {
+                stats.setMinSalary(firstCounted(salaries));
+                stats.setMaxSalary(firstCounted(salaries.descendingMap()));
+                stats.setAverageSalary((double) totalSalary / salaryCount);
+            }
+            return stats;
+        }
+
+        private static Integer firstCounted(Map<Integer, Long> salaries) {
+            for (Map.Entry<Integer, Long> entry : salaries.entrySet()) {
+                if (entry.getValue() > 0) {
+                    return entry.getKey();
+                }
+            }
+            return null;
+        }
+    }
+}
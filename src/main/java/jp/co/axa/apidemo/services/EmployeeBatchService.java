@@ -0,0 +1,40 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.dto.EmployeeBatchItemResult;
+import jp.co.axa.apidemo.dto.EmployeeBatchResult;
+import jp.co.axa.apidemo.entities.Employee;
+
+import java.util.List;
+
+/**
+ * The EmployeeBatchService interface establishes a contract for writing many Employee entities at once.
+ * Items are validated one by one and written in chunked transactions using JDBC batching.
+ */
+public interface EmployeeBatchService {
+
+    /**
+     * Creates the given employees.
+     *
+     * @param employees The employees to be created. Their IDs must not be set.
+     * @return An EmployeeBatchResult reporting the outcome of every item.
+     */
+    public EmployeeBatchResult createEmployees(List<Employee> employees);
+
+    /**
+     * Updates the given employees.
+     *
+     * @param employees The updated employees. Their IDs must be set.
+     * @return An EmployeeBatchResult reporting the outcome of every item.
+     */
+    public EmployeeBatchResult updateEmployees(List<Employee> employees);
+
+    /**
+     * Writes the given, already validated, employees in a single transaction.
+     * Employees without an ID are inserted, the others are updated. If the transaction fails, the employees are
+     * written again one by one, so that only those failing alone are reported as failed.
+     *
+     * @param employees The employees to be written.
+     * @return The outcome of every employee, in order. Item indexes are positions within the given list.
+     */
+    public List<EmployeeBatchItemResult> writeChunk(List<Employee> employees);
+}
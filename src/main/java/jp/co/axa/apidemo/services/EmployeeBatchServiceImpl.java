@@ -0,0 +1,300 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.config.CacheConfig;
+import jp.co.axa.apidemo.dto.EmployeeBatchItemResult;
+import jp.co.axa.apidemo.dto.EmployeeBatchResult;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.exception.EmployeeBadRequestException;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * This class is an implementation of the EmployeeBatchService interface.
+ * <p>
+ * Every item is validated on its own, then the valid items are written in chunks of {@code batch.chunk-size},
+ * each chunk in its own transaction. Within a chunk, Hibernate groups the statements into JDBC batches
+ * (see {@code hibernate.jdbc.batch_size}). A failed chunk is retried one item at a time, so that only the items
+ * failing on their own are reported as failed.
+ */
+@Service
+public class EmployeeBatchServiceImpl implements EmployeeBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmployeeBatchServiceImpl.class);
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EmployeeValidator employeeValidator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private DepartmentStatsService departmentStatsService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private EmployeeChangeService employeeChangeService;
+
+    @Autowired
+    private EmployeeWriteBehindService employeeWriteBehindService;
+
+    @Value("${batch.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${batch.max-items:10000}")
+    private int maxItems;
+
+    @Value("${error.message.general}")
+    private String generalError;
+
+    /**
+     * Creates the given employees using batched inserts.
+     *
+     * @param employees The employees to be created. Their IDs must not be set.
+     * @return An EmployeeBatchResult reporting the outcome of every item.
+     * @throws EmployeeBadRequestException if the request holds more than {@code batch.max-items} items.
+     */
+    @Override
+    public EmployeeBatchResult createEmployees(List<Employee> employees) {
+        checkSize(employees);
+        EmployeeBatchItemResult[] results = new EmployeeBatchItemResult[employees.size()];
+
+        List<Integer> accepted = new ArrayList<>();
+        for (int index = 0; index < employees.size(); index++) {
+            Employee employee = employees.get(index);
+            String error = employee != null && employee.getId() != null
+                    ? "id must not be set when creating employees" : employeeValidator.validate(employee);
+            if (error != null) {
+                results[index] = itemResult(index, null, HttpStatus.BAD_REQUEST, error);
+            } else {
+                accepted.add(index);
+            }
+        }
+
+        writeChunks(employees, accepted, results);
+        return toBatchResult(results);
+    }
+
+    /**
+     * Updates the given employees using batched updates.
+     *
+     * @param employees The updated employees. Their IDs must be set.
+     * @return An EmployeeBatchResult reporting the outcome of every item.
+     * @throws EmployeeBadRequestException if the request holds more than {@code batch.max-items} items.
+     */
+    @Override
+    public EmployeeBatchResult updateEmployees(List<Employee> employees) {
+        checkSize(employees);
+        EmployeeBatchItemResult[] results = new EmployeeBatchItemResult[employees.size()];
+
+        List<Integer> accepted = new ArrayList<>();
+        for (int index = 0; index < employees.size(); index++) {
+            Employee employee = employees.get(index);
+            String error = employee != null && employee.getId() == null
+                    ? "id is mandatory when updating employees" : employeeValidator.validate(employee);
+            if (error != null) {
+                results[index] = itemResult(index, employee == null ? null : employee.getId(),
+                        HttpStatus.BAD_REQUEST, error);
+            } else {
+                accepted.add(index);
+            }
+        }
+
+        writeChunks(employees, accepted, results);
+        return toBatchResult(results);
+    }
+
+    /**
+     * Writes the given, already validated, employees in a single transaction.
+     * <p>
+     * Employees to update are loaded with a single {@code WHERE ID IN (...)} query and the changes are applied
+     * to the managed entities. New employees are persisted, and a single flush issues both the inserts
+     * and the updates as JDBC batches, before the changes are recorded in the change log. If the transaction fails,
+     * each item of the chunk is written again in a transaction of its own, and only the items failing alone are
+     * reported as failed (500). Updates pending in write-behind mode for the same employees are written first, so
+     * that they do not overwrite the chunk later.
+     * <p>
+     * The loaded state of the updated employees is kept for the department statistics: the version check of the
+     * flush guarantees that it is the state the updates replace.
+     *
+     * @param employees The employees to be written.
+     * @return The outcome of every employee, in order. Item indexes are positions within the given list.
+     */
+    @Override
+    public List<EmployeeBatchItemResult> writeChunk(List<Employee> employees) {
+        EmployeeBatchItemResult[] results = new EmployeeBatchItemResult[employees.size()];
+        Employee[] previous = new Employee[employees.size()];
+        List<Long> ids = employees.stream().map(Employee::getId).filter(Objects::nonNull).collect(Collectors.toList());
+        boolean[] creating = new boolean[employees.size()];
+        for (int index = 0; index < employees.size(); index++) {
+            creating[index] = employees.get(index).getId() == null;
+        }
+
+        try {
+            employeeWriteBehindService.flush(ids);
+            transactionTemplate.execute(status -> {
+                Map<Long, Employee> managed = new HashMap<>();
+                List<Employee> created = new ArrayList<>();
+                List<Employee> updated = new ArrayList<>();
+                if (!ids.isEmpty()) {
+                    for (Employee employee : employeeRepository.findAllById(ids)) {
+                        managed.put(employee.getId(), employee);
+                    }
+                }
+                for (int index = 0; index < employees.size(); index++) {
+                    Employee source = employees.get(index);
+                    if (source.getId() == null) {
+                        entityManager.persist(source);
+                        created.add(source);
+                        results[index] = itemResult(index, source.getId(), HttpStatus.CREATED, null);
+                        continue;
+                    }
+                    Employee target = managed.get(source.getId());
+                    if (target == null) {
+                        results[index] = itemResult(index, source.getId(), HttpStatus.NOT_FOUND,
+                                "Employee could not be found");
+                    } else {
+                        previous[index] = copyOf(target);
+                        target.setName(source.getName());
+                        target.setSalary(source.getSalary());
+                        target.setDepartment(source.getDepartment());
+                        updated.add(target);
+                        results[index] = itemResult(index, source.getId(), HttpStatus.OK, null);
+                    }
+                }
+                // Flush first, so that the change log gets the new versions and locks its counter last
+                entityManager.flush();
+                employeeChangeService.employeesWritten(created, updated);
+                return null;
+            });
+            Cache missingCache = cacheManager.getCache(CacheConfig.EMPLOYEE_MISSING_CACHE);
+            for (int index = 0; index < employees.size(); index++) {
+                HttpStatus status = HttpStatus.valueOf(results[index].getStatus());
+                if (status.is2xxSuccessful()) {
+                    departmentStatsService.employeeChanged(previous[index], employees.get(index));
+                }
+                if (status == HttpStatus.CREATED) {
+                    missingCache.evict(employees.get(index).getId());
+                }
+            }
+        } catch (RuntimeException ex) {
+            for (int index = 0; index < employees.size(); index++) {
+                if (creating[index]) {
+                    // Forget the ID and version assigned by the rolled back persist
+                    employees.get(index).setId(null);
+                    employees.get(index).setVersion(null);
+                }
+            }
+            if (employees.size() == 1) {
+                logger.error("Failed to write employee {}", ids.isEmpty() ? "(new)" : ids.get(0), ex);
+                results[0] = itemResult(0, ids.isEmpty() ? null : ids.get(0),
+                        HttpStatus.INTERNAL_SERVER_ERROR, generalError);
+            } else {
+                logger.warn("Failed to write a chunk of {} employees, writing them one by one", employees.size(), ex);
+                for (int index = 0; index < employees.size(); index++) {
+                    results[index] = writeChunk(Collections.singletonList(employees.get(index))).get(0);
+                    results[index].setIndex(index);
+                }
+            }
+        }
+
+        Cache cache = cacheManager.getCache(CacheConfig.EMPLOYEE_CACHE);
+        ids.forEach(cache::evict);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Writes the accepted items in chunks of {@code batch.chunk-size}, and records their outcome.
+     *
+     * @param employees The items of the request.
+     * @param accepted  The indexes of the items that passed validation.
+     * @param results   The outcome of every item, filled in by this method for the accepted ones.
+     */
+    private void writeChunks(List<Employee> employees, List<Integer> accepted, EmployeeBatchItemResult[] results) {
+        for (int from = 0; from < accepted.size(); from += chunkSize) {
+            List<Integer> chunk = accepted.subList(from, Math.min(from + chunkSize, accepted.size()));
+            List<Employee> chunkEmployees = chunk.stream().map(employees::get).collect(Collectors.toList());
+
+            List<EmployeeBatchItemResult> chunkResults = writeChunk(chunkEmployees);
+            for (int position = 0; position < chunk.size(); position++) {
+                EmployeeBatchItemResult result = chunkResults.get(position);
+                result.setIndex(chunk.get(position));
+                results[chunk.get(position)] = result;
+            }
+        }
+    }
+
+    /**
+     * Rejects requests holding more items than allowed.
+     *
+     * @param employees The items of the request.
+     * @throws EmployeeBadRequestException if there are no items or too many of them.
+     */
+    private void checkSize(List<Employee> employees) {
+        if (employees == null || employees.isEmpty() || employees.size() > maxItems) {
+            throw new EmployeeBadRequestException("A batch must contain between 1 and " + maxItems + " employees.");
+        }
+    }
+
+    /**
+     * Copies the fields of a managed employee before they are changed.
+     */
+    private static Employee copyOf(Employee employee) {
+        Employee copy = new Employee();
+        copy.setId(employee.getId());
+        copy.setName(employee.getName());
+        copy.setSalary(employee.getSalary());
+        copy.setDepartment(employee.getDepartment());
+        copy.setVersion(employee.getVersion());
+        return copy;
+    }
+
+    private static EmployeeBatchItemResult itemResult(int index, Long id, HttpStatus status, String message) {
+        EmployeeBatchItemResult result = new EmployeeBatchItemResult();
+        result.setIndex(index);
+        result.setId(id);
+        result.setStatus(status.value());
+        result.setMessage(message);
+        return result;
+    }
+
+    private static EmployeeBatchResult toBatchResult(EmployeeBatchItemResult[] results) {
+        EmployeeBatchResult batchResult = new EmployeeBatchResult();
+        int succeeded = 0;
+        for (EmployeeBatchItemResult result : results) {
+            if (HttpStatus.valueOf(result.getStatus()).is2xxSuccessful()) {
+                succeeded++;
+            }
+        }
+        batchResult.setSucceeded(succeeded);
+        batchResult.setFailed(results.length - succeeded);
+        batchResult.setItems(Arrays.asList(results));
+        return batchResult;
+    }
+}
@@ -0,0 +1,78 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.dto.EmployeeChangePage;
+import jp.co.axa.apidemo.dto.EmployeePatch;
+import jp.co.axa.apidemo.entities.Employee;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+/**
+ * The EmployeeChangeService interface establishes a contract for the employee change log.
+ * <p>
+ * The write paths of the employee services record their changes in the transaction of the write, so that a
+ * change is logged if and only if the write commits. Consumers read the log from a sequence number onwards,
+ * either by batches or as a stream of Server-Sent Events.
+ */
+public interface EmployeeChangeService {
+
+    /**
+     * Records the creation of an employee. Must be called inside the transaction of the write, after it.
+     *
+     * @param employee The employee as written to the database, with its ID and version.
+     */
+    public void employeeCreated(Employee employee);
+
+    /**
+     * Records the update of every field of an employee. Must be called inside the transaction of the write, after it.
+     *
+     * @param employee The employee as written to the database, with its ID and new version.
+     */
+    public void employeeUpdated(Employee employee);
+
+    /**
+     * Records a partial update of an employee. Must be called inside the transaction of the write, after it.
+     *
+     * @param employeeId The ID of the updated employee.
+     * @param version    The new version of the employee.
+     * @param patch      The fields written to the database.
+     */
+    public void employeePatched(Long employeeId, Long version, EmployeePatch patch);
+
+    /**
+     * Records the deletion of an employee. Must be called inside the transaction of the write, after it.
+     *
+     * @param employeeId The ID of the deleted employee.
+     */
+    public void employeeDeleted(Long employeeId);
+
+    /**
+     * Records the creations and updates of a batch write. Must be called inside the transaction of the write,
+     * after it has been flushed.
+     *
+     * @param created The employees created, with their ID and version.
+     * @param updated The employees updated, with their new version.
+     */
+    public void employeesWritten(List<Employee> created, List<Employee> updated);
+
+    /**
+     * Retrieves a batch of the changes following the given sequence number.
+     *
+     * @param since The sequence number after which the changes are retrieved, 0 for the whole log.
+     * @param limit The maximum number of changes to retrieve. Must be between 1 and {@code changes.max-limit}.
+     * @return An EmployeeChangePage containing the changes and the sequence number to continue from.
+     * @throws jp.co.axa.apidemo.exception.EmployeeBadRequestException if since or limit is invalid.
+     */
+    public EmployeeChangePage getChanges(long since, int limit);
+
+    /**
+     * Streams the changes following the given sequence number as Server-Sent Events, whose IDs are the
+     * sequence numbers of the changes.
+     *
+     * @param since The sequence number after which the changes are streamed, or {@code null} to only stream
+     *              the changes recorded from now on.
+     * @return The SseEmitter sending the changes.
+     * @throws jp.co.axa.apidemo.exception.EmployeeBadRequestException if since is negative.
+     */
+    public SseEmitter streamChanges(Long since);
+}
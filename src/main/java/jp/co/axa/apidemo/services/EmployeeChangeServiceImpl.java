@@ -0,0 +1,350 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.dto.EmployeeChangePage;
+import jp.co.axa.apidemo.dto.EmployeePatch;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.entities.EmployeeChange;
+import jp.co.axa.apidemo.exception.EmployeeBadRequestException;
+import jp.co.axa.apidemo.repositories.EmployeeChangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class is an implementation of the EmployeeChangeService interface.
+ * <p>
+ * Sequence numbers are reserved by incrementing the single row of EMPLOYEE_CHANGE_COUNTER, as the last write of
+ * the transaction. The row lock is held until commit, so concurrent writers commit their changes one after the
+ * other, in sequence order: a consumer that has read up to a sequence number can never later see a lower one.
+ * <p>
+ * Streams are fed by a single dispatcher thread, woken after each commit that recorded changes and every
+ * {@code changes.stream.poll-interval-ms} to pick up the changes committed by other instances. It reads the log
+ * once for all the subscribers, from the lowest sequence number they have received.
+ * <p>
+ * The same thread deletes the changes older than {@code changes.retention-hours}, every
+ * {@code changes.prune-interval-ms}: consumers must read the log more often than that, or miss changes.
+ */
+@Service
+public class EmployeeChangeServiceImpl implements EmployeeChangeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmployeeChangeServiceImpl.class);
+
+    // Fields carried by the creations and full updates.
+    private static final String ALL_FIELDS = "name,salary,department";
+
+    private static final String EVENT_NAME = "employee-change";
+
+    @Value("${changes.max-limit:1000}")
+    private int maxLimit;
+
+    @Value("${changes.stream.poll-interval-ms:1000}")
+    private long pollIntervalMillis;
+
+    @Value("${changes.stream.timeout-ms:1800000}")
+    private long streamTimeoutMillis;
+
+    @Value("${changes.retention-hours:168}")
+    private long retentionHours;
+
+    @Value("${changes.prune-interval-ms:3600000}")
+    private long pruneIntervalMillis;
+
+    @Autowired
+    private EmployeeChangeRepository employeeChangeRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean dispatchRequested = new AtomicBoolean();
+
+    private ScheduledExecutorService dispatcher;
+
+    /**
+     * Starts the dispatcher thread of the streams, which also prunes the log.
+     */
+    @PostConstruct
+    public void start() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "employee-change-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleWithFixedDelay(this::dispatch, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        dispatcher.scheduleWithFixedDelay(this::prune, pruneIntervalMillis, pruneIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the dispatcher thread and completes the open streams.
+     */
+    @PreDestroy
+    public void stop() {
+        dispatcher.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void employeeCreated(Employee employee) {
+        record(Collections.singletonList(change(employee.getId(), EmployeeChange.Operation.CREATED,
+                employee.getVersion(), ALL_FIELDS, employee.getName(), employee.getSalary(), employee.getDepartment())));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void employeeUpdated(Employee employee) {
+        record(Collections.singletonList(change(employee.getId(), EmployeeChange.Operation.UPDATED,
+                employee.getVersion(), ALL_FIELDS, employee.getName(), employee.getSalary(), employee.getDepartment())));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void employeePatched(Long employeeId, Long version, EmployeePatch patch) {
+        record(Collections.singletonList(change(employeeId, EmployeeChange.Operation.UPDATED, version,
+                String.join(",", patch.getChanges().keySet()), patch.getName(), patch.getSalary(), patch.getDepartment())));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void employeeDeleted(Long employeeId) {
+        record(Collections.singletonList(change(employeeId, EmployeeChange.Operation.DELETED,
+                null, "", null, null, null)));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void employeesWritten(List<Employee> created, List<Employee> updated) {
+        List<EmployeeChange> changes = new ArrayList<>(created.size() + updated.size());
+        for (Employee employee : created) {
+            changes.add(change(employee.getId(), EmployeeChange.Operation.CREATED, employee.getVersion(),
+                    ALL_FIELDS, employee.getName(), employee.getSalary(), employee.getDepartment()));
+        }
+        for (Employee employee : updated) {
+            changes.add(change(employee.getId(), EmployeeChange.Operation.UPDATED, employee.getVersion(),
+                    ALL_FIELDS, employee.getName(), employee.getSalary(), employee.getDepartment()));
+        }
+        record(changes);
+    }
+
+    /**
+     * Retrieves a batch of the changes following the given sequence number.
+     * <p>
+     * One more change than requested is read, to tell whether more are available without a COUNT query.
+     *
+     * @param since The sequence number after which the changes are retrieved, 0 for the whole log.
+     * @param limit The maximum number of changes to retrieve. Must be between 1 and {@code changes.max-limit}.
+     * @return An EmployeeChangePage containing the changes and the sequence number to continue from.
+     * @throws EmployeeBadRequestException if since or limit is invalid.
+     */
+    @Override
+    public EmployeeChangePage getChanges(long since, int limit) {
+        if (since < 0) {
+            throw new EmployeeBadRequestException("since must not be negative.");
+        }
+        if (limit < 1 || limit > maxLimit) {
+            throw new EmployeeBadRequestException("limit must be between 1 and " + maxLimit + ".");
+        }
+        List<EmployeeChange> changes = employeeChangeRepository.findBySeqGreaterThanOrderBySeqAsc(since,
+                PageRequest.of(0, limit + 1));
+
+        EmployeeChangePage page = new EmployeeChangePage();
+        page.setHasMore(changes.size() > limit);
+        page.setChanges(page.isHasMore() ? changes.subList(0, limit) : changes);
+        page.setNextSince(page.getChanges().isEmpty() ? since
+                : page.getChanges().get(page.getChanges().size() - 1).getSeq());
+        return page;
+    }
+
+    /**
+     * Streams the changes following the given sequence number as Server-Sent Events named
+     * {@value #EVENT_NAME}, whose IDs are the sequence numbers of the changes.
+     *
+     * @param since The sequence number after which the changes are streamed, or {@code null} to only stream
+     *              the changes recorded from now on.
+     * @return The SseEmitter sending the changes, completed after {@code changes.stream.timeout-ms}.
+     * @throws EmployeeBadRequestException if since is negative.
+     */
+    @Override
+    public SseEmitter streamChanges(Long since) {
+        if (since != null && since < 0) {
+            throw new EmployeeBadRequestException("since must not be negative.");
+        }
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter,
+                since != null ? since : employeeChangeRepository.findLastSequence());
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        requestDispatch();
+        return emitter;
+    }
+
+    /**
+     * Numbers the given changes and persists them, then wakes the dispatcher once the transaction commits.
+     *
+     * @param changes The changes to record.
+     */
+    private void record(List<EmployeeChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        employeeChangeRepository.reserveSequences(changes.size());
+        long seq = employeeChangeRepository.findLastSequence() - changes.size();
+        Date now = new Date();
+        for (EmployeeChange change : changes) {
+            change.setSeq(++seq);
+            change.setChangedAt(now);
+            entityManager.persist(change);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                requestDispatch();
+            }
+        });
+    }
+
+    /**
+     * Wakes the dispatcher, unless it is already about to run.
+     */
+    private void requestDispatch() {
+        if (subscribers.isEmpty() || !dispatchRequested.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dispatcher.execute(this::dispatch);
+        } catch (RejectedExecutionException ex) {
+            // The application is shutting down
+        }
+    }
+
+    /**
+     * Sends the changes the subscribers have not received yet, reading the log by batches of
+     * {@code changes.max-limit} changes. Subscribers whose connection has failed are removed.
+     */
+    private void dispatch() {
+        dispatchRequested.set(false);
+        try {
+            while (true) {
+                long since = subscribers.stream().mapToLong(subscriber -> subscriber.lastSeq).min().orElse(-1);
+                if (since < 0) {
+                    return;
+                }
+                List<EmployeeChange> changes = employeeChangeRepository.findBySeqGreaterThanOrderBySeqAsc(since,
+                        PageRequest.of(0, maxLimit));
+                for (Subscriber subscriber : subscribers) {
+                    if (!subscriber.send(changes)) {
+                        subscribers.remove(subscriber);
+                    }
+                }
+                if (changes.size() < maxLimit) {
+                    return;
+                }
+            }
+        } catch (RuntimeException ex) {
+            // Keep the dispatcher scheduled, the next run will try again
+            logger.error("Failed to dispatch employee changes", ex);
+        }
+    }
+
+    /**
+     * Deletes the changes older than {@code changes.retention-hours}.
+     */
+    private void prune() {
+        try {
+            int deleted = employeeChangeRepository.deleteByChangedAtBefore(
+                    new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(retentionHours)));
+            if (deleted > 0) {
+                logger.info("Deleted {} employee changes older than {} hours", deleted, retentionHours);
+            }
+        } catch (RuntimeException ex) {
+            // Keep the pruning scheduled, the next run will try again
+            logger.error("Failed to delete old employee changes", ex);
+        }
+    }
+
+    /**
+     * Creates a change, not numbered yet.
+     */
+    private static EmployeeChange change(Long employeeId, EmployeeChange.Operation operation, Long version,
+                                         String changedFields, String name, Integer salary, String department) {
+        EmployeeChange change = new EmployeeChange();
+        change.setEmployeeId(employeeId);
+        change.setOperation(operation);
+        change.setVersion(version);
+        change.setChangedFields(changedFields);
+        change.setName(name);
+        change.setSalary(salary);
+        change.setDepartment(department);
+        return change;
+    }
+
+    /**
+     * A stream and the sequence number of the last change it was sent. Only used by the dispatcher thread
+     * once subscribed.
+     */
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private long lastSeq;
+
+        private Subscriber(SseEmitter emitter, long lastSeq) {
+            this.emitter = emitter;
+            this.lastSeq = lastSeq;
+        }
+
+        /**
+         * Sends the given changes that follow the last one sent.
+         *
+         * @param changes Changes in sequence order.
+         * @return false if the stream is closed.
+         */
+        private boolean send(List<EmployeeChange> changes) {
+            try {
+                for (EmployeeChange change : changes) {
+                    if (change.getSeq() > lastSeq) {
+                        emitter.send(SseEmitter.event()
+                                .id(String.valueOf(change.getSeq()))
+                                .name(EVENT_NAME)
+                                .data(change, MediaType.APPLICATION_JSON));
+                        lastSeq = change.getSeq();
+                    }
+                }
+                return true;
+            } catch (IOException | IllegalStateException ex) {
+                emitter.completeWithError(ex);
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.exception.EmployeeBadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes and decodes the opaque cursors used by keyset pagination.
+ * <p>
+ * A cursor wraps the ID of the last employee of a batch, so clients must not rely on its format.
+ */
+final class EmployeeCursors {
+
+    private EmployeeCursors() {
+    }
+
+    /**
+     * Encodes the given employee ID into an opaque cursor.
+     *
+     * @param employeeId The ID of the last employee returned.
+     * @return The URL-safe cursor string.
+     */
+    static String encode(Long employeeId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(employeeId.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor previously produced by {@link #encode(Long)}.
+     *
+     * @param cursor The cursor received from the client.
+     * @return The employee ID wrapped by the cursor.
+     * @throws EmployeeBadRequestException if the cursor is malformed
+     */
+    static Long decode(String cursor) {
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException ex) {
+            throw new EmployeeBadRequestException("Invalid cursor.", ex);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.dto.EmployeeCursorPage;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.exception.EmployeePreconditionFailedException;
+import org.springframework.data.domain.Page;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds and compares the entity tags (ETags) of employee representations.
+ * <p>
+ * The ETag of an employee is derived from its ID and version, so it can be computed without loading the
+ * employee. The ETag of a page is a digest of the IDs and versions of its employees and of its position,
+ * so it changes whenever any employee of the page is updated, added or removed.
+ * <p>
+ * The version of an employee may not be part of a sparse fieldset, so the ETag of a fieldset is a digest of
+ * the values it holds instead: it only changes when one of the selected fields does.
+ * <p>
+ * All the ETags are strong. The JSON, CBOR and Smile encodings of a representation are different sequences of
+ * bytes, so the encoding negotiated from the Accept header is part of the ETag: {@code "1-3"} in JSON, the
+ * default, and {@code "1-3-cbor"} or {@code "1-3-smile"} otherwise. If-None-Match is compared weakly and If-Match
+ * strongly, as RFC 7232 requires; If-Match accepts the ETag of any encoding of the current version.
+ */
+public final class EmployeeETags {
+
+    // Value of a conditional header matching any current representation.
+    private static final String ANY = "*";
+
+    // Prefix of a weak entity tag.
+    private static final String WEAK_PREFIX = "W/";
+
+    // Suffixes of the ETags of the binary encodings, by media type, in the order of the message converters.
+    private static final Map<MediaType, String> ENCODING_SUFFIXES = new LinkedHashMap<>();
+
+    static {
+        ENCODING_SUFFIXES.put(MediaType.APPLICATION_JSON, "");
+        ENCODING_SUFFIXES.put(MediaType.valueOf("application/cbor"), "-cbor");
+        ENCODING_SUFFIXES.put(MediaType.valueOf("application/x-jackson-smile"), "-smile");
+    }
+
+    private EmployeeETags() {
+    }
+
+    /**
+     * Builds the ETag of an employee.
+     *
+     * @param employee The employee.
+     * @return The ETag of the JSON encoding.
+     */
+    public static String of(Employee employee) {
+        return of(employee.getId(), employee.getVersion());
+    }
+
+    /**
+     * Builds the ETag of an employee from its ID and version.
+     *
+     * @param employeeId The ID of the employee.
+     * @param version    The version of the employee.
+     * @return The ETag of the JSON encoding.
+     */
+    public static String of(Long employeeId, Long version) {
+        return quote(employeeId + "-" + version);
+    }
+
+    /**
+     * Builds the ETag of a page of employees.
+     *
+     * @param page The page of employees.
+     * @return The ETag of the JSON encoding.
+     */
+    public static String of(Page<Employee> page) {
+        return digest(page.getNumber() + "/" + page.getSize() + "/" + page.getTotalElements() + "/" + page.getSort(),
+                page.getContent());
+    }
+
+    /**
+     * Builds the ETag of a batch of employees retrieved with keyset pagination.
+     *
+     * @param page The batch of employees.
+     * @return The ETag of the JSON encoding.
+     */
+    public static String of(EmployeeCursorPage page) {
+        return digest(page.getLimit() + "/" + page.getNextCursor(), page.getContent());
+    }
+
+    /**
+     * Builds the ETag of a page of sparse fieldsets.
+     *
+     * @param page   The page of fieldsets.
+     * @param fields The names of the fields.
+     * @return The ETag of the JSON encoding.
+     */
+    public static String ofFields(Page<Map<String, Object>> page, List<String> fields) {
+        StringBuilder builder = new StringBuilder().append(page.getNumber()).append('/').append(page.getSize())
+                .append('/').append(page.getTotalElements()).append('/').append(page.getSort()).append('/').append(fields);
+        for (Map<String, Object> values : page.getContent()) {
+            builder.append(';').append(values.values());
+        }
+        return quote(DigestUtils.md5DigestAsHex(builder.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Builds the ETag of the sparse fieldset of an employee.
+     *
+     * @param values The values of the fieldset, keyed by field name.
+     * @return The ETag of the JSON encoding.
+     */
+    public static String ofFields(Map<String, Object> values) {
+        String digest = values.toString();
+        return quote(DigestUtils.md5DigestAsHex(digest.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Adapts the ETag of the JSON encoding of a representation to the encoding negotiated for an Accept header,
+     * as the message converters do: the first encoding compatible with the most preferred accepted media type.
+     *
+     * @param eTag   The ETag of the JSON encoding.
+     * @param accept The value of the Accept header, possibly {@code null}.
+     * @return The ETag of the negotiated encoding.
+     */
+    public static String encoded(String eTag, String accept) {
+        if (!StringUtils.hasText(accept)) {
+            return eTag;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException ex) {
+            // Rejected with 406 (Not Acceptable) before the body is written.
+            return eTag;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType mediaType : accepted) {
+            for (Map.Entry<MediaType, String> encoding : ENCODING_SUFFIXES.entrySet()) {
+                if (mediaType.isCompatibleWith(encoding.getKey())) {
+                    return eTag.substring(0, eTag.length() - 1) + encoding.getValue() + "\"";
+                }
+            }
+        }
+        return eTag;
+    }
+
+    /**
+     * Tells whether an If-None-Match header matches the given ETag, using the weak comparison of RFC 7232.
+     *
+     * @param ifNoneMatch The value of the If-None-Match header.
+     * @param eTag        The current ETag of the resource.
+     * @return {@code true} if the client already holds the current representation.
+     */
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        String current = stripWeakPrefix(eTag);
+        for (String candidate : StringUtils.commaDelimitedListToStringArray(ifNoneMatch)) {
+            candidate = candidate.trim();
+            if (ANY.equals(candidate) || stripWeakPrefix(candidate).equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extracts the version an update or a deletion is conditioned on from an If-Match header. The strong ETag of
+     * any encoding of the employee is accepted, since they all carry its version; a weak ETag never matches.
+     *
+     * @param employeeId The ID of the employee being modified.
+     * @param ifMatch    The value of the If-Match header, possibly {@code null}.
+     * @return The expected version of the employee, or {@code null} if any version is accepted.
+     * @throws EmployeePreconditionFailedException if no ETag of the header can match the employee.
+     */
+    public static Long expectedVersion(Long employeeId, String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        String prefix = "\"" + employeeId + "-";
+        for (String candidate : StringUtils.commaDelimitedListToStringArray(ifMatch)) {
+            candidate = candidate.trim();
+            if (ANY.equals(candidate)) {
+                return null;
+            }
+            if (candidate.startsWith(prefix) && candidate.endsWith("\"")) {
+                String version = stripEncodingSuffix(candidate.substring(prefix.length(), candidate.length() - 1));
+                try {
+                    return Long.valueOf(version);
+                } catch (NumberFormatException ex) {
+                    // Not one of our ETags, it can never match.
+                }
+            }
+        }
+        throw new EmployeePreconditionFailedException("Employee has been modified since it was retrieved.");
+    }
+
+    /**
+     * Computes an ETag from a scope and the IDs and versions of the given employees.
+     *
+     * @param scope     The position of the employees within the collection.
+     * @param employees The employees.
+     * @return The ETag of the JSON encoding.
+     */
+    private static String digest(String scope, Iterable<Employee> employees) {
+        StringBuilder builder = new StringBuilder(scope);
+        for (Employee employee : employees) {
+            builder.append(';').append(employee.getId()).append('-').append(employee.getVersion());
+        }
+        return quote(DigestUtils.md5DigestAsHex(builder.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Builds a strong ETag.
+     *
+     * @param opaque The opaque part of the ETag, without quotes.
+     * @return The strong ETag.
+     */
+    private static String quote(String opaque) {
+        return "\"" + opaque + "\"";
+    }
+
+    /**
+     * Removes the suffix of a binary encoding from the opaque part of an ETag, if any.
+     *
+     * @param opaque The opaque part of the ETag, without quotes.
+     * @return The opaque part of the ETag of the JSON encoding.
+     */
+    private static String stripEncodingSuffix(String opaque) {
+        for (String suffix : ENCODING_SUFFIXES.values()) {
+            if (!suffix.isEmpty() && opaque.endsWith(suffix)) {
+                return opaque.substring(0, opaque.length() - suffix.length());
+            }
+        }
+        return opaque;
+    }
+
+    /**
+     * Removes the weak indicator of an ETag, if any.
+     *
+     * @param eTag The ETag.
+     * @return The opaque, quoted part of the ETag.
+     */
+    private static String stripWeakPrefix(String eTag) {
+        return eTag.startsWith(WEAK_PREFIX) ? eTag.substring(WEAK_PREFIX.length()) : eTag;
+    }
+}
@@ -0,0 +1,29 @@
+package jp.co.axa.apidemo.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The EmployeeExportService interface establishes a contract for exporting every Employee entity.
+ * Implementations stream the rows straight to the given output, so memory use does not depend on the table size.
+ */
+public interface EmployeeExportService {
+
+    /**
+     * Writes every employee as newline-delimited JSON, one object per line.
+     *
+     * @param out The stream to write to. It is flushed but not closed.
+     * @return The number of employees written.
+     * @throws IOException if writing to the stream fails.
+     */
+    public long exportAsNdjson(OutputStream out) throws IOException;
+
+    /**
+     * Writes every employee as CSV, preceded by a header line.
+     *
+     * @param out The stream to write to. It is flushed but not closed.
+     * @return The number of employees written.
+     * @throws IOException if writing to the stream fails.
+     */
+    public long exportAsCsv(OutputStream out) throws IOException;
+}
@@ -0,0 +1,127 @@
+package jp.co.axa.apidemo.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * This class is an implementation of the EmployeeExportService interface.
+ * <p>
+ * Employees are read through {@link EmployeeRepository#streamAll()} and each entity is detached as soon as it
+ * has been written, so neither the persistence context nor the output buffers grow with the number of rows.
+ */
+@Service
+public class EmployeeExportServiceImpl implements EmployeeExportService {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Writes every employee as newline-delimited JSON, one object per line.
+     *
+     * @param out The stream to write to. It is flushed but not closed.
+     * @return The number of employees written.
+     * @throws IOException if writing to the stream fails.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportAsNdjson(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(Employee.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long count = 0;
+
+        try (Stream<Employee> employees = employeeRepository.streamAll();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            Iterator<Employee> iterator = employees.iterator();
+            while (iterator.hasNext()) {
+                Employee employee = iterator.next();
+                writer.writeValue(generator, employee);
+                generator.writeRaw('\n');
+                entityManager.detach(employee);
+                count++;
+            }
+            generator.flush();
+        }
+        return count;
+    }
+
+    /**
+     * Writes every employee as CSV, preceded by a header line.
+     *
+     * @param out The stream to write to. It is flushed but not closed.
+     * @return The number of employees written.
+     * @throws IOException if writing to the stream fails.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportAsCsv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        long count = 0;
+
+        writer.write("id,name,salary,department\n");
+        try (Stream<Employee> employees = employeeRepository.streamAll()) {
+            Iterator<Employee> iterator = employees.iterator();
+            while (iterator.hasNext()) {
+                Employee employee = iterator.next();
+                writer.write(String.valueOf(employee.getId()));
+                writer.write(',');
+                writeCsvField(writer, employee.getName());
+                writer.write(',');
+                writer.write(employee.getSalary() == null ? "" : employee.getSalary().toString());
+                writer.write(',');
+                writeCsvField(writer, employee.getDepartment());
+                writer.write('\n');
+                entityManager.detach(employee);
+                count++;
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Writes a text field, quoting it when it contains a separator, a quote or a line break.
+     *
+     * @param writer The writer to write to.
+     * @param value  The field value, possibly {@code null}.
+     * @throws IOException if writing fails.
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,103 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.exception.EmployeeBadRequestException;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.Tuple;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses and applies the sparse fieldsets requested with the {@code fields} parameter.
+ * <p>
+ * Field names are the JSON property names of {@link Employee}, which are also its entity attribute names, so
+ * a fieldset can be selected as is by a projection query.
+ */
+public final class EmployeeFields {
+
+    /**
+     * Every field of an employee, in the order they are returned.
+     */
+    public static final List<String> ALL = Collections.unmodifiableList(
+            Arrays.asList("id", "name", "salary", "department", "version"));
+
+    private EmployeeFields() {
+    }
+
+    /**
+     * Parses a comma-separated list of fields.
+     *
+     * @param fields The value of the {@code fields} parameter.
+     * @return The distinct requested fields, in the order of {@link #ALL}.
+     * @throws EmployeeBadRequestException if the list is empty or holds an unknown field.
+     */
+    public static List<String> parse(String fields) {
+        List<String> requested = new ArrayList<>();
+        for (String field : StringUtils.commaDelimitedListToStringArray(fields)) {
+            field = field.trim();
+            if (!ALL.contains(field)) {
+                throw new EmployeeBadRequestException("Unknown field '" + field + "', fields must be among " + ALL + ".");
+            }
+            requested.add(field);
+        }
+        if (requested.isEmpty()) {
+            throw new EmployeeBadRequestException("fields must not be empty.");
+        }
+        List<String> parsed = new ArrayList<>(ALL);
+        parsed.retainAll(requested);
+        return parsed;
+    }
+
+    /**
+     * Copies the given fields of an employee.
+     *
+     * @param employee The employee.
+     * @param fields   The fields to copy.
+     * @return The values of the fields, keyed and ordered by field name.
+     */
+    public static Map<String, Object> toMap(Employee employee, List<String> fields) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String field : fields) {
+            values.put(field, valueOf(employee, field));
+        }
+        return values;
+    }
+
+    /**
+     * Copies the given fields of a projection query row, whose elements are aliased by field name.
+     *
+     * @param row    The row.
+     * @param fields The fields to copy.
+     * @return The values of the fields, keyed and ordered by field name.
+     */
+    public static Map<String, Object> toMap(Tuple row, List<String> fields) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String field : fields) {
+            values.put(field, row.get(field));
+        }
+        return values;
+    }
+
+    /**
+     * Reads one field of an employee.
+     */
+    private static Object valueOf(Employee employee, String field) {
+        switch (field) {
+            case "id":
+                return employee.getId();
+            case "name":
+                return employee.getName();
+            case "salary":
+                return employee.getSalary();
+            case "department":
+                return employee.getDepartment();
+            default:
+                return employee.getVersion();
+        }
+    }
+}
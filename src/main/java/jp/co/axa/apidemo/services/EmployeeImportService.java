@@ -0,0 +1,36 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.dto.EmployeeImportResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The EmployeeImportService interface establishes a contract for importing employees from an uploaded file.
+ * <p>
+ * Rows are parsed incrementally and written in chunks, each chunk in its own transaction: rows without an ID
+ * are inserted and rows with an ID update the existing employee.
+ */
+public interface EmployeeImportService {
+
+    /**
+     * Imports employees from newline-delimited JSON, one employee object per line.
+     *
+     * @param in        The uploaded content.
+     * @param chunkSize The number of rows per transaction, or {@code null} for the configured default.
+     * @return An EmployeeImportResult reporting counters, throughput and row errors.
+     * @throws IOException if reading the content fails.
+     */
+    public EmployeeImportResult importNdjson(InputStream in, Integer chunkSize) throws IOException;
+
+    /**
+     * Imports employees from CSV. The first line is a header naming the columns among
+     * {@code id}, {@code name}, {@code salary} and {@code department}. Quoted fields may span lines.
+     *
+     * @param in        The uploaded content.
+     * @param chunkSize The number of rows per transaction, or {@code null} for the configured default.
+     * @return An EmployeeImportResult reporting counters, throughput and row errors.
+     * @throws IOException if reading the content fails.
+     */
+    public EmployeeImportResult importCsv(InputStream in, Integer chunkSize) throws IOException;
+}
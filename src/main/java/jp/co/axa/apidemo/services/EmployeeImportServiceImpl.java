@@ -0,0 +1,404 @@
+package jp.co.axa.apidemo.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jp.co.axa.apidemo.dto.EmployeeBatchItemResult;
+import jp.co.axa.apidemo.dto.EmployeeImportError;
+import jp.co.axa.apidemo.dto.EmployeeImportResult;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.exception.EmployeeBadRequestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * This class is an implementation of the EmployeeImportService interface.
+ * <p>
+ * The upload is read line by line, so only the current chunk of rows is held in memory. Each row is validated
+ * against the constraints declared on {@link Employee}, and valid rows are handed to
+ * {@link EmployeeBatchService#writeChunk(List)} once a chunk is full. Chunks commit independently: a failed
+ * chunk is reported and the import goes on with the next one.
+ */
+@Service
+public class EmployeeImportServiceImpl implements EmployeeImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmployeeImportServiceImpl.class);
+
+    @Autowired
+    private EmployeeBatchService employeeBatchService;
+
+    @Autowired
+    private EmployeeValidator employeeValidator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${import.chunk-size:1000}")
+    private int defaultChunkSize;
+
+    @Value("${batch.max-items:10000}")
+    private int maxChunkSize;
+
+    @Value("${import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    /**
+     * Imports employees from newline-delimited JSON, one employee object per line. Blank lines are skipped.
+     *
+     * @param in        The uploaded content.
+     * @param chunkSize The number of rows per transaction, or {@code null} for the configured default.
+     * @return An EmployeeImportResult reporting counters, throughput and row errors.
+     * @throws IOException if reading the content fails.
+     */
+    @Override
+    public EmployeeImportResult importNdjson(InputStream in, Integer chunkSize) throws IOException {
+        return importRows(new NdjsonRowReader(newReader(in), objectMapper.readerFor(Employee.class)), chunkSize);
+    }
+
+    /**
+     * Imports employees from CSV. The first line is a header naming the columns among
+     * {@code id}, {@code name}, {@code salary} and {@code department}. Quoted fields may contain commas,
+     * doubled quotes and line breaks, as written by the CSV export; the line breaks are read back as {@code \n}.
+     *
+     * @param in        The uploaded content.
+     * @param chunkSize The number of rows per transaction, or {@code null} for the configured default.
+     * @return An EmployeeImportResult reporting counters, throughput and row errors.
+     * @throws IOException if reading the content fails.
+     * @throws EmployeeBadRequestException if the header is missing or names an unknown column.
+     */
+    @Override
+    public EmployeeImportResult importCsv(InputStream in, Integer chunkSize) throws IOException {
+        return importRows(new CsvRowReader(newReader(in)), chunkSize);
+    }
+
+    /**
+     * Reads, validates and writes every row, one chunk at a time.
+     *
+     * @param rows      The source of rows.
+     * @param chunkSize The number of rows per transaction, or {@code null} for the configured default.
+     * @return An EmployeeImportResult reporting counters, throughput and row errors.
+     * @throws IOException if reading the content fails.
+     */
+    private EmployeeImportResult importRows(RowReader rows, Integer chunkSize) throws IOException {
+        int size = chunkSize == null ? defaultChunkSize : chunkSize;
+        if (size < 1 || size > maxChunkSize) {
+            throw new EmployeeBadRequestException("chunkSize must be between 1 and " + maxChunkSize + ".");
+        }
+
+        EmployeeImportResult result = new EmployeeImportResult();
+        long start = System.nanoTime();
+        List<Row> chunk = new ArrayList<>(size);
+
+        Row row;
+        while ((row = rows.next()) != null) {
+            result.setRowsRead(result.getRowsRead() + 1);
+            String error = row.error != null ? row.error : employeeValidator.validate(row.employee);
+            if (error != null) {
+                addError(result, row, HttpStatus.BAD_REQUEST.value(), error);
+                continue;
+            }
+            chunk.add(row);
+            if (chunk.size() == size) {
+                writeChunk(chunk, result);
+                chunk.clear();
+                logger.info("Import progress: {} rows read, {} imported, {} failed, {} rows/s",
+                        result.getRowsRead(), result.getImported(), result.getFailed(),
+                        (long) rowsPerSecond(result.getRowsRead(), start));
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, result);
+        }
+
+        result.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        result.setRowsPerSecond(rowsPerSecond(result.getRowsRead(), start));
+        logger.info("Import completed: {} rows read, {} imported, {} failed in {} ms ({} rows/s)",
+                result.getRowsRead(), result.getImported(), result.getFailed(), result.getElapsedMillis(),
+                (long) result.getRowsPerSecond());
+        return result;
+    }
+
+    /**
+     * Writes one chunk of valid rows in its own transaction and records the outcome of every row.
+     *
+     * @param chunk  The rows to write.
+     * @param result The import result to update.
+     */
+    private void writeChunk(List<Row> chunk, EmployeeImportResult result) {
+        List<Employee> employees = chunk.stream().map(row -> row.employee).collect(Collectors.toList());
+        List<EmployeeBatchItemResult> itemResults = employeeBatchService.writeChunk(employees);
+
+        boolean chunkFailed = false;
+        for (int index = 0; index < chunk.size(); index++) {
+            EmployeeBatchItemResult itemResult = itemResults.get(index);
+            if (HttpStatus.valueOf(itemResult.getStatus()).is2xxSuccessful()) {
+                result.setImported(result.getImported() + 1);
+            } else {
+                addError(result, chunk.get(index), itemResult.getStatus(), itemResult.getMessage());
+                chunkFailed |= itemResult.getStatus() == HttpStatus.INTERNAL_SERVER_ERROR.value();
+            }
+        }
+        if (chunkFailed) {
+            result.setChunksFailed(result.getChunksFailed() + 1);
+        } else {
+            result.setChunksCommitted(result.getChunksCommitted() + 1);
+        }
+    }
+
+    /**
+     * Records a failed row, keeping at most {@code import.max-reported-errors} errors in the result.
+     *
+     * @param result  The import result to update.
+     * @param row     The failed row.
+     * @param status  The HTTP status code describing the failure.
+     * @param message The error message.
+     */
+    private void addError(EmployeeImportResult result, Row row, int status, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() >= maxReportedErrors) {
+            result.setErrorsTruncated(true);
+            return;
+        }
+        EmployeeImportError error = new EmployeeImportError();
+        error.setLine(row.line);
+        error.setId(row.employee == null ? null : row.employee.getId());
+        error.setStatus(status);
+        error.setMessage(message);
+        result.getErrors().add(error);
+    }
+
+    private static double rowsPerSecond(long rows, long startNanos) {
+        long elapsed = Math.max(System.nanoTime() - startNanos, 1);
+        return rows * 1_000_000_000d / elapsed;
+    }
+
+    private static BufferedReader newReader(InputStream in) {
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A row of the uploaded file: either a parsed employee or a parse error.
+     */
+    private static final class Row {
+
+        private final long line;
+
+        private final Employee employee;
+
+        private final String error;
+
+        private Row(long line, Employee employee, String error) {
+            this.line = line;
+            this.employee = employee;
+            this.error = error;
+        }
+    }
+
+    /**
+     * An incremental source of rows.
+     */
+    private interface RowReader {
+
+        /**
+         * Reads the next row.
+         *
+         * @return The next row, or {@code null} at the end of the content.
+         * @throws IOException if reading the content fails.
+         */
+        Row next() throws IOException;
+    }
+
+    /**
+     * Reads one employee object per line of newline-delimited JSON.
+     */
+    private static final class NdjsonRowReader implements RowReader {
+
+        private final BufferedReader reader;
+
+        private final ObjectReader objectReader;
+
+        private long line;
+
+        private NdjsonRowReader(BufferedReader reader, ObjectReader objectReader) {
+            this.reader = reader;
+            this.objectReader = objectReader;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    return new Row(line, objectReader.readValue(text), null);
+                } catch (JsonProcessingException ex) {
+                    return new Row(line, null, "Malformed JSON: " + ex.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Reads one employee per CSV record, using the header record to locate the columns. A record is one line,
+     * unless a quoted field spans several.
+     */
+    private static final class CsvRowReader implements RowReader {
+
+        private final BufferedReader reader;
+
+        private int idColumn = -1;
+
+        private int nameColumn = -1;
+
+        private int salaryColumn = -1;
+
+        private int departmentColumn = -1;
+
+        private int columnCount;
+
+        private long line;
+
+        private CsvRowReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            if (line == 0) {
+                readHeader();
+            }
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.trim().isEmpty()) {
+                    continue;
+                }
+                long recordLine = line;
+                List<String> fields = parseRecord(text);
+                if (fields == null) {
+                    return new Row(recordLine, null, "Unterminated quoted field");
+                }
+                if (fields.size() != columnCount) {
+                    return new Row(recordLine, null, "Expected " + columnCount + " fields");
+                }
+                try {
+                    Employee employee = new Employee();
+                    employee.setId(idColumn < 0 ? null : parseLong(fields.get(idColumn)));
+                    employee.setName(nameColumn < 0 ? null : emptyToNull(fields.get(nameColumn)));
+                    employee.setSalary(salaryColumn < 0 ? null : parseInteger(fields.get(salaryColumn)));
+                    employee.setDepartment(departmentColumn < 0 ? null : emptyToNull(fields.get(departmentColumn)));
+                    return new Row(recordLine, employee, null);
+                } catch (NumberFormatException ex) {
+                    return new Row(recordLine, null, "Invalid number: " + ex.getMessage());
+                }
+            }
+            return null;
+        }
+
+        private void readHeader() throws IOException {
+            String header = reader.readLine();
+            line++;
+            List<String> columns = header == null ? null : parseRecord(header);
+            if (columns == null) {
+                throw new EmployeeBadRequestException("The CSV header line is missing or malformed.");
+            }
+            columnCount = columns.size();
+            for (int index = 0; index < columns.size(); index++) {
+                String column = columns.get(index).trim().toLowerCase(Locale.ROOT);
+                switch (column) {
+                    case "id":
+                        idColumn = index;
+                        break;
+                    case "name":
+                        nameColumn = index;
+                        break;
+                    case "salary":
+                        salaryColumn = index;
+                        break;
+                    case "department":
+                        departmentColumn = index;
+                        break;
+                    default:
+                        throw new EmployeeBadRequestException("Unknown CSV column: " + column);
+                }
+            }
+        }
+
+        /**
+         * Splits a CSV record into fields, honouring double-quoted fields. The lines following the first one are
+         * read for as long as a quoted field is left open, each line break becoming a {@code \n} in the field.
+         *
+         * @param text The first line of the record.
+         * @return The fields, or {@code null} if a quoted field is not terminated by the end of the content.
+         * @throws IOException if reading the content fails.
+         */
+        private List<String> parseRecord(String text) throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int index = 0;
+            while (index < text.length() || quoted) {
+                if (index == text.length()) {
+                    text = reader.readLine();
+                    if (text == null) {
+                        return null;
+                    }
+                    line++;
+                    field.append('\n');
+                    index = 0;
+                    continue;
+                }
+                char c = text.charAt(index++);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (index < text.length() && text.charAt(index) == '"') {
+                        field.append('"');
+                        index++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private static String emptyToNull(String value) {
+            return value.isEmpty() ? null : value;
+        }
+
+        private static Long parseLong(String value) {
+            return value.trim().isEmpty() ? null : Long.valueOf(value.trim());
+        }
+
+        private static Integer parseInteger(String value) {
+            return value.trim().isEmpty() ? null : Integer.valueOf(value.trim());
+        }
+    }
+}
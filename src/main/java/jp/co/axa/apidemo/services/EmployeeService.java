@@ -1,10 +1,14 @@
 package jp.co.axa.apidemo.services;
 
+import jp.co.axa.apidemo.dto.EmployeeCursorPage;
+import jp.co.axa.apidemo.dto.EmployeeLookupResult;
+import jp.co.axa.apidemo.dto.EmployeePatch;
 import jp.co.axa.apidemo.entities.Employee;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * The EmployeeService interface establishes a contract for the EmployeeService implementation class.
@@ -21,6 +25,54 @@ public interface EmployeeService {
      */
     public Page<Employee> retrieveEmployees(int page, int size);
 
+    /**
+     * Retrieves only the given fields of a page of employees.
+     *
+     * @param page   The number of the page to retrieve.
+     * @param size   The number of employees to retrieve per page.
+     * @param fields The fields to retrieve, as parsed by {@link EmployeeFields#parse(String)}.
+     * @return A Page object containing the fields of the employees for the specified page.
+     */
+    public Page<Map<String, Object>> retrieveEmployeeFields(int page, int size, List<String> fields);
+
+    /**
+     * Retrieves a batch of employees using keyset (cursor) pagination.
+     *
+     * @param cursor The opaque cursor returned with the previous batch, or {@code null} for the first batch.
+     * @param limit  The maximum number of employees to retrieve.
+     * @return An EmployeeCursorPage containing the employees and the cursor of the next batch.
+     */
+    public EmployeeCursorPage retrieveEmployeesAfter(String cursor, int limit);
+
+    /**
+     * Searches employees matching every given criterion, ordered by ID.
+     *
+     * @param department The exact department of the employees, or {@code null} to match any department.
+     * @param minSalary  The lowest salary, inclusive, or {@code null} for no lower bound.
+     * @param maxSalary  The highest salary, inclusive, or {@code null} for no upper bound.
+     * @param namePrefix The case-insensitive beginning of the name, or {@code null} to match any name.
+     * @param page       The number of the page to retrieve.
+     * @param size       The number of employees to retrieve per page.
+     * @return A Page object containing the matching employees for the specified page.
+     */
+    public Page<Employee> searchEmployees(String department, Integer minSalary, Integer maxSalary,
+                                          String namePrefix, int page, int size);
+
+    /**
+     * Searches employees matching every given criterion, ordered by ID, and retrieves only the given fields.
+     *
+     * @param department The exact department of the employees, or {@code null} to match any department.
+     * @param minSalary  The lowest salary, inclusive, or {@code null} for no lower bound.
+     * @param maxSalary  The highest salary, inclusive, or {@code null} for no upper bound.
+     * @param namePrefix The case-insensitive beginning of the name, or {@code null} to match any name.
+     * @param page       The number of the page to retrieve.
+     * @param size       The number of employees to retrieve per page.
+     * @param fields     The fields to retrieve, as parsed by {@link EmployeeFields#parse(String)}.
+     * @return A Page object containing the fields of the matching employees for the specified page.
+     */
+    public Page<Map<String, Object>> searchEmployeeFields(String department, Integer minSalary, Integer maxSalary,
+                                                          String namePrefix, int page, int size, List<String> fields);
+
     /**
      * Retrieve a single employee using its ID.
      *
@@ -29,6 +81,31 @@ public interface EmployeeService {
      */
     public Employee getEmployee(Long employeeId);
 
+    /**
+     * Retrieve only the given fields of a single employee using its ID.
+     *
+     * @param employeeId The ID of the employee to retrieve.
+     * @param fields     The fields to retrieve, as parsed by {@link EmployeeFields#parse(String)}.
+     * @return The fields of the employee, keyed by name.
+     */
+    public Map<String, Object> getEmployeeFields(Long employeeId, List<String> fields);
+
+    /**
+     * Retrieve many employees using their IDs, with at most one database round trip.
+     *
+     * @param employeeIds The IDs of the employees to retrieve, possibly repeated.
+     * @return An EmployeeLookupResult holding one item per requested ID, in request order.
+     */
+    public EmployeeLookupResult getEmployees(List<Long> employeeIds);
+
+    /**
+     * Retrieve the version of an employee, without loading it when it is not cached.
+     *
+     * @param employeeId The ID of the employee.
+     * @return The current version of the employee.
+     */
+    public Long getEmployeeVersion(Long employeeId);
+
     /**
      * Save a new employee to the database.
      *
@@ -40,18 +117,30 @@ public interface EmployeeService {
     /**
      * Delete an employee from the database.
      *
-     * @param employeeId The ID of the employee to be deleted.
+     * @param employeeId      The ID of the employee to be deleted.
+     * @param expectedVersion The version the employee must have, or {@code null} to delete any version.
      * @return A ResponseEntity indicating the status of the operation.
      */
-    public ResponseEntity<?> deleteEmployee(Long employeeId);
+    public ResponseEntity<?> deleteEmployee(Long employeeId, Long expectedVersion);
 
     /**
      * Update an existing employee's information in the database.
      *
-     * @param employee The updated employee entity.
+     * @param employee        The updated employee entity.
+     * @param expectedVersion The version the employee must have, or {@code null} to update any version.
+     * @return A ResponseEntity indicating the status of the operation.
+     */
+    public ResponseEntity<?> updateEmployee(Employee employee, Long expectedVersion);
+
+    /**
+     * Update only the given fields of an existing employee in the database.
+     *
+     * @param employeeId      The ID of the employee to update.
+     * @param patch           The fields to update.
+     * @param expectedVersion The version the employee must have, or {@code null} to update any version.
      * @return A ResponseEntity indicating the status of the operation.
      */
-    public ResponseEntity<?> updateEmployee(Employee employee);
+    public ResponseEntity<?> patchEmployee(Long employeeId, EmployeePatch patch, Long expectedVersion);
 
     /**
      * Checks if an employee with the given ID exists in the database.
@@ -1,34 +1,84 @@
 package jp.co.axa.apidemo.services;
 
+import jp.co.axa.apidemo.config.CacheConfig;
+import jp.co.axa.apidemo.datasource.ReplicaRoutingContext;
+import jp.co.axa.apidemo.dto.EmployeeCursorPage;
+import jp.co.axa.apidemo.dto.EmployeeLookupItem;
+import jp.co.axa.apidemo.dto.EmployeeLookupResult;
+import jp.co.axa.apidemo.dto.EmployeePatch;
 import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.exception.EmployeeBadRequestException;
+import jp.co.axa.apidemo.exception.EmployeeDuplicateException;
 import jp.co.axa.apidemo.exception.EmployeeNotFoundException;
+import jp.co.axa.apidemo.exception.EmployeePreconditionFailedException;
 import jp.co.axa.apidemo.repositories.EmployeeRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
-import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static jp.co.axa.apidemo.repositories.EmployeeSpecifications.hasDepartment;
+import static jp.co.axa.apidemo.repositories.EmployeeSpecifications.nameStartsWith;
+import static jp.co.axa.apidemo.repositories.EmployeeSpecifications.salaryAtLeast;
+import static jp.co.axa.apidemo.repositories.EmployeeSpecifications.salaryAtMost;
 
 /**
  * This class is an implementation of the EmployeeService interface.
  * It provides methods to retrieve, save, update, and delete employees from the employee repository.
+ * <p>
+ * Reads run in read-only transactions, so that they are served by the replica when one is configured
+ * (see {@link jp.co.axa.apidemo.config.ReplicaDataSourceConfig}). The methods always querying the database
+ * declare it; the cached lookups rely on the read-only transactions of the repository, so that cache hits
+ * do not open one. The lookups by ID fill the caches, so they always read from the primary: a row read from a
+ * lagging replica would stay cached after the replica has caught up. For the same reason, lists and searches
+ * only cache their employees when no replica is configured.
  */
 @Service
-@EnableCaching
 public class EmployeeServiceImpl implements EmployeeService {
 
+    // Upper bound of the batch size accepted by keyset pagination.
+    static final int MAX_CURSOR_LIMIT = 1000;
+
+    @Value("${lookup.max-ids:1000}")
+    private int maxLookupIds;
+
+    @Value("${datasource.replica.enabled:false}")
+    private boolean replicaEnabled;
+
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private DepartmentStatsService departmentStatsService;
+
+    @Autowired
+    private EmployeeChangeService employeeChangeService;
+
+    @Autowired
+    private EmployeeWriteBehindService employeeWriteBehindService;
+
     /**
      * Retrieves a page of employees from the database.
      *
@@ -36,59 +86,420 @@ public class EmployeeServiceImpl implements EmployeeService {
      * @param size The number of employees per page. Must be greater than 0.
      * @return A Page of Employee objects.
      */
+    @Transactional(readOnly = true)
     public Page<Employee> retrieveEmployees(int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
         Page<Employee> employees = employeeRepository.findAll(pageable);
-        employees.forEach(employee -> cacheEmployee(employee));
+        cacheListedEmployees(employees);
+        return employees;
+    }
+
+    /**
+     * Retrieves only the given fields of a page of employees from the database.
+     * <p>
+     * Only the columns of the requested fields are selected, into tuples rather than entities: no entity is
+     * hydrated, registered in the persistence context or snapshotted for dirty checking. The results are
+     * therefore not cached either.
+     *
+     * @param page   The page number to retrieve. Must be greater than or equal to 0.
+     * @param size   The number of employees per page. Must be greater than 0.
+     * @param fields The fields to retrieve.
+     * @return A Page of the fields of the employees, each keyed by field name.
+     */
+    @Override
+    public Page<Map<String, Object>> retrieveEmployeeFields(int page, int size, List<String> fields) {
+        return employeeRepository.findAllAttributes(null, fields, PageRequest.of(page, size))
+                .map(row -> EmployeeFields.toMap(row, fields));
+    }
+
+    /**
+     * Retrieves a batch of employees following the given cursor, ordered by ascending ID.
+     * <p>
+     * The query seeks on the primary key, so its cost does not depend on how deep the client pages,
+     * and no COUNT query is issued.
+     *
+     * @param cursor The opaque cursor returned with the previous batch, or {@code null} for the first batch.
+     * @param limit  The maximum number of employees to retrieve. Must be between 1 and {@value #MAX_CURSOR_LIMIT}.
+     * @return An EmployeeCursorPage containing the employees and the cursor of the next batch.
+     * @throws EmployeeBadRequestException if the cursor or the limit is invalid.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public EmployeeCursorPage retrieveEmployeesAfter(String cursor, int limit) {
+        if (limit < 1 || limit > MAX_CURSOR_LIMIT) {
+            throw new EmployeeBadRequestException("limit must be between 1 and " + MAX_CURSOR_LIMIT + ".");
+        }
+        Long afterId = cursor == null || cursor.isEmpty() ? Long.MIN_VALUE : EmployeeCursors.decode(cursor);
+
+        Pageable pageable = PageRequest.of(0, limit, Sort.by(Sort.Direction.ASC, "id"));
+        Slice<Employee> employees = employeeRepository.findByIdGreaterThan(afterId, pageable);
+        cacheListedEmployees(employees);
+
+        EmployeeCursorPage result = new EmployeeCursorPage();
+        result.setContent(employees.getContent());
+        result.setLimit(limit);
+        if (employees.hasNext()) {
+            Employee last = employees.getContent().get(employees.getNumberOfElements() - 1);
+            result.setNextCursor(EmployeeCursors.encode(last.getId()));
+        }
+        return result;
+    }
+
+    /**
+     * Searches employees matching every given criterion, ordered by ID.
+     * <p>
+     * Only the criteria that are provided are added to the query, so that the database can pick the
+     * index matching them: IX_EMPLOYEE_DEPARTMENT for a department with an optional salary range,
+     * IX_EMPLOYEE_SALARY for a salary range alone and IX_EMPLOYEE_NAME for a name prefix.
+     *
+     * @param department The exact department of the employees, or {@code null} to match any department.
+     * @param minSalary  The lowest salary, inclusive, or {@code null} for no lower bound.
+     * @param maxSalary  The highest salary, inclusive, or {@code null} for no upper bound.
+     * @param namePrefix The case-insensitive beginning of the name, or {@code null} to match any name.
+     * @param page       The page number to retrieve. Must be greater than or equal to 0.
+     * @param size       The number of employees per page. Must be greater than 0.
+     * @return A Page of the matching Employee objects.
+     * @throws EmployeeBadRequestException if the salary range is empty.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public Page<Employee> searchEmployees(String department, Integer minSalary, Integer maxSalary,
+                                          String namePrefix, int page, int size) {
+        Specification<Employee> criteria = searchCriteria(department, minSalary, maxSalary, namePrefix);
+        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.ASC, "id"));
+        Page<Employee> employees = employeeRepository.findAll(criteria, pageable);
+        cacheListedEmployees(employees);
         return employees;
     }
 
+    /**
+     * Searches employees matching every given criterion, ordered by ID, and selects only the given fields,
+     * without hydrating entities, as {@link #retrieveEmployeeFields(int, int, List)} does.
+     *
+     * @param department The exact department of the employees, or {@code null} to match any department.
+     * @param minSalary  The lowest salary, inclusive, or {@code null} for no lower bound.
+     * @param maxSalary  The highest salary, inclusive, or {@code null} for no upper bound.
+     * @param namePrefix The case-insensitive beginning of the name, or {@code null} to match any name.
+     * @param page       The page number to retrieve. Must be greater than or equal to 0.
+     * @param size       The number of employees per page. Must be greater than 0.
+     * @param fields     The fields to retrieve.
+     * @return A Page of the fields of the matching employees, each keyed by field name.
+     * @throws EmployeeBadRequestException if the salary range is empty.
+     */
+    @Override
+    public Page<Map<String, Object>> searchEmployeeFields(String department, Integer minSalary, Integer maxSalary,
+                                                          String namePrefix, int page, int size, List<String> fields) {
+        Specification<Employee> criteria = searchCriteria(department, minSalary, maxSalary, namePrefix);
+        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.ASC, "id"));
+        return employeeRepository.findAllAttributes(criteria, fields, pageable)
+                .map(row -> EmployeeFields.toMap(row, fields));
+    }
+
+    /**
+     * Combines the given search criteria. Only the criteria that are provided are added to the query, so that
+     * the database can pick the index matching them.
+     *
+     * @param department The exact department of the employees, or {@code null} to match any department.
+     * @param minSalary  The lowest salary, inclusive, or {@code null} for no lower bound.
+     * @param maxSalary  The highest salary, inclusive, or {@code null} for no upper bound.
+     * @param namePrefix The case-insensitive beginning of the name, or {@code null} to match any name.
+     * @return The specification matching every given criterion.
+     * @throws EmployeeBadRequestException if the salary range is empty.
+     */
+    private static Specification<Employee> searchCriteria(String department, Integer minSalary, Integer maxSalary,
+                                                          String namePrefix) {
+        if (minSalary != null && maxSalary != null && minSalary > maxSalary) {
+            throw new EmployeeBadRequestException("minSalary must not be greater than maxSalary.");
+        }
+
+        Specification<Employee> criteria = Specification.where(null);
+        if (department != null && !department.isEmpty()) {
+            criteria = criteria.and(hasDepartment(department));
+        }
+        if (minSalary != null) {
+            criteria = criteria.and(salaryAtLeast(minSalary));
+        }
+        if (maxSalary != null) {
+            criteria = criteria.and(salaryAtMost(maxSalary));
+        }
+        if (namePrefix != null && !namePrefix.isEmpty()) {
+            criteria = criteria.and(nameStartsWith(namePrefix));
+        }
+
+        return criteria;
+    }
+
     /**
      * Retrieves an Employee based on the provided employeeId.
+     * <p>
+     * The cache is read with {@code sync = true}: concurrent misses for the same ID wait for a single load
+     * instead of all querying the database. IDs matching no employee are remembered for a short time in the
+     * "employeeMissing" cache, so repeated lookups of a missing ID do not query the database either.
+     * An update pending in write-behind mode is returned rather than the employee stored in the database.
      *
      * @param employeeId The ID of the Employee to retrieve.
      * @return The Employee with the specified employeeId.
      * @throws EmployeeNotFoundException if no Employee is found with the given employeeId.
      */
-    @Cacheable(value = "employee", key = "#employeeId")
+    @Cacheable(value = "employee", key = "#employeeId", sync = true)
     public Employee getEmployee(Long employeeId) {
-        return employeeRepository.findById(employeeId)
-                .orElseThrow(() -> new EmployeeNotFoundException("Employee could not be found"));
+        Employee pending = employeeWriteBehindService.getPending(employeeId);
+        if (pending != null) {
+            return pending;
+        }
+        Cache missingCache = cacheManager.getCache(CacheConfig.EMPLOYEE_MISSING_CACHE);
+        if (missingCache.get(employeeId) != null) {
+            throw new EmployeeNotFoundException("Employee could not be found");
+        }
+        return ReplicaRoutingContext.readFromPrimary(() -> employeeRepository.findById(employeeId))
+                .orElseThrow(() -> {
+                    missingCache.put(employeeId, Boolean.TRUE);
+                    return new EmployeeNotFoundException("Employee could not be found");
+                });
+    }
+
+    /**
+     * Retrieves only the given fields of an employee.
+     * <p>
+     * A cached employee is copied from the cache. Otherwise only the requested columns are selected, and the
+     * employee is not cached, since it was not fully loaded.
+     *
+     * @param employeeId The ID of the employee to retrieve.
+     * @param fields     The fields to retrieve.
+     * @return The fields of the employee, keyed by field name.
+     * @throws EmployeeNotFoundException if no Employee is found with the given employeeId.
+     */
+    @Override
+    public Map<String, Object> getEmployeeFields(Long employeeId, List<String> fields) {
+        Employee cached = cacheManager.getCache(CacheConfig.EMPLOYEE_CACHE).get(employeeId, Employee.class);
+        if (cached == null) {
+            cached = employeeWriteBehindService.getPending(employeeId);
+        }
+        if (cached != null) {
+            return EmployeeFields.toMap(cached, fields);
+        }
+        Cache missingCache = cacheManager.getCache(CacheConfig.EMPLOYEE_MISSING_CACHE);
+        if (missingCache.get(employeeId) != null) {
+            throw new EmployeeNotFoundException("Employee could not be found");
+        }
+        return ReplicaRoutingContext.readFromPrimary(
+                () -> employeeRepository.findAttributesById(employeeId, fields))
+                .map(row -> EmployeeFields.toMap(row, fields))
+                .orElseThrow(() -> {
+                    missingCache.put(employeeId, Boolean.TRUE);
+                    return new EmployeeNotFoundException("Employee could not be found");
+                });
+    }
+
+    /**
+     * Retrieves many employees by ID.
+     * <p>
+     * Cached employees are served from the "employee" cache, and all the others are fetched together with a
+     * single {@code WHERE ID IN (...)} query, then put into the cache. IDs recently found missing are not
+     * queried again, and repeated IDs are looked up once.
+     *
+     * @param employeeIds The IDs of the employees to retrieve. At most {@code lookup.max-ids} IDs are accepted.
+     * @return An EmployeeLookupResult holding one item per requested ID, in request order.
+     * @throws EmployeeBadRequestException if no ID, too many IDs or a null ID is given.
+     */
+    @Override
+    public EmployeeLookupResult getEmployees(List<Long> employeeIds) {
+        if (employeeIds == null || employeeIds.isEmpty() || employeeIds.size() > maxLookupIds) {
+            throw new EmployeeBadRequestException("Between 1 and " + maxLookupIds + " employee IDs must be given.");
+        }
+        if (employeeIds.contains(null)) {
+            throw new EmployeeBadRequestException("Employee IDs must not be null.");
+        }
+
+        Cache cache = cacheManager.getCache(CacheConfig.EMPLOYEE_CACHE);
+        Cache missingCache = cacheManager.getCache(CacheConfig.EMPLOYEE_MISSING_CACHE);
+        Set<Long> uniqueIds = new LinkedHashSet<>(employeeIds);
+        Map<Long, Employee> employees = new HashMap<>(uniqueIds.size() * 2);
+        List<Long> misses = new ArrayList<>();
+        for (Long employeeId : uniqueIds) {
+            Employee cached = cache.get(employeeId, Employee.class);
+            if (cached == null) {
+                cached = employeeWriteBehindService.getPending(employeeId);
+            }
+            if (cached != null) {
+                employees.put(employeeId, cached);
+            } else if (missingCache.get(employeeId) == null) {
+                misses.add(employeeId);
+            }
+        }
+        if (!misses.isEmpty()) {
+            List<Employee> loaded =
+                    ReplicaRoutingContext.readFromPrimary(() -> employeeRepository.findAllById(misses));
+            cacheEmployees(loaded);
+            for (Employee employee : loaded) {
+                employees.put(employee.getId(), employee);
+            }
+            for (Long employeeId : misses) {
+                if (!employees.containsKey(employeeId)) {
+                    missingCache.put(employeeId, Boolean.TRUE);
+                }
+            }
+        }
+
+        List<EmployeeLookupItem> items = new ArrayList<>(employeeIds.size());
+        int found = 0;
+        for (Long employeeId : employeeIds) {
+            Employee employee = employees.get(employeeId);
+            EmployeeLookupItem item = new EmployeeLookupItem();
+            item.setId(employeeId);
+            item.setFound(employee != null);
+            item.setEmployee(employee);
+            items.add(item);
+            if (employee != null) {
+                found++;
+            }
+        }
+
+        EmployeeLookupResult result = new EmployeeLookupResult();
+        result.setFound(found);
+        result.setMissing(items.size() - found);
+        result.setItems(items);
+        return result;
+    }
+
+    /**
+     * Retrieves the version of an employee, used to answer conditional requests without loading the employee.
+     * <p>
+     * The version is read from the "employee" cache when possible, and otherwise from a query selecting
+     * only the VERSION column. IDs recently found missing are answered without a query.
+     *
+     * @param employeeId The ID of the employee.
+     * @return The current version of the employee.
+     * @throws EmployeeNotFoundException if no Employee is found with the given employeeId.
+     */
+    @Override
+    public Long getEmployeeVersion(Long employeeId) {
+        Employee cached = cacheManager.getCache(CacheConfig.EMPLOYEE_CACHE).get(employeeId, Employee.class);
+        if (cached == null) {
+            cached = employeeWriteBehindService.getPending(employeeId);
+        }
+        if (cached != null) {
+            return cached.getVersion();
+        }
+        Cache missingCache = cacheManager.getCache(CacheConfig.EMPLOYEE_MISSING_CACHE);
+        Long version = missingCache.get(employeeId) == null
+                ? ReplicaRoutingContext.readFromPrimary(() -> employeeRepository.findVersionById(employeeId)) : null;
+        if (version == null) {
+            missingCache.put(employeeId, Boolean.TRUE);
+            throw new EmployeeNotFoundException("Employee could not be found");
+        }
+        return version;
     }
 
     /**
      * Saves the given employee.
+     * <p>
+     * The ID of the employee is always generated. When the client provides one anyway, it is only checked for
+     * conflicts, and that check is folded into the INSERT so that saving stays a single statement.
+     * The creation is recorded in the change log, in the same transaction.
      *
      * @param employee The employee to be saved.
-     * @return A ResponseEntity object with a success message and HTTP status code 201 (CREATED).
+     * @return A ResponseEntity object with a success message, the ETag of the employee and HTTP status code 201 (CREATED).
+     * @throws EmployeeDuplicateException if an employee with the provided ID already exists.
      */
+    @Transactional
     public ResponseEntity<?> saveEmployee(Employee employee) {
-        employeeRepository.save(employee);
-        return new ResponseEntity<>("Employee has been saved successfully.", HttpStatus.CREATED);
+        Long requestedId = employee.getId();
+        employee.setId(null);
+        employee.setVersion(null);
+
+        Employee saved;
+        if (requestedId == null) {
+            saved = employeeRepository.save(employee);
+        } else if (employeeRepository.insertUnlessExists(employee, requestedId)) {
+            saved = employee;
+        } else {
+            throw new EmployeeDuplicateException("Employee with this ID already exists.");
+        }
+        employeeChangeService.employeeCreated(saved);
+        cacheManager.getCache(CacheConfig.EMPLOYEE_MISSING_CACHE).evict(saved.getId());
+        departmentStatsService.employeeChanged(null, saved);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(EmployeeETags.of(saved))
+                .body("Employee has been saved successfully.");
     }
 
     /**
-     * Deletes an employee with the specified employeeId.
+     * Deletes an employee with the specified employeeId, with a single DELETE statement,
+     * and records the deletion in the change log, in the same transaction. The statement also returns the
+     * deleted row, so that its salary is removed from the statistics of its department.
      *
-     * @param employeeId The ID of the employee to delete.
+     * @param employeeId      The ID of the employee to delete.
+     * @param expectedVersion The version the employee must have, or {@code null} to delete any version.
      * @return A ResponseEntity object with a success message and HTTP status code 200 (OK).
+     * @throws EmployeeNotFoundException           if no Employee is found with the given employeeId.
+     * @throws EmployeePreconditionFailedException if the employee does not have the expected version.
      */
+    @Transactional
     @CacheEvict(value = "employee", key = "#employeeId")
-    public ResponseEntity<?> deleteEmployee(Long employeeId) {
-        employeeRepository.deleteById(employeeId);
+    public ResponseEntity<?> deleteEmployee(Long employeeId, Long expectedVersion) {
+        Employee previous = employeeRepository.deleteReturningPrevious(employeeId, expectedVersion)
+                .orElseThrow(() -> notFoundOrModified(employeeId, expectedVersion));
+        employeeChangeService.employeeDeleted(employeeId);
+        departmentStatsService.employeeChanged(previous, null);
         return new ResponseEntity<>("Employee has been deleted successfully.", HttpStatus.OK);
     }
 
     /**
-     * Updates an employee in the employee repository.
+     * Updates an employee in the employee repository, with a single UPDATE statement,
+     * and records the update in the change log, in the same transaction. The statement also returns the row it
+     * replaces, so that the statistics of the departments get the values the update replaces.
      *
-     * @param employee The employee to be updated.
-     * @return A ResponseEntity object with a success message and HTTP status code 200 (OK).
+     * @param employee        The employee to be updated.
+     * @param expectedVersion The version the employee must have, or {@code null} to update any version.
+     * @return A ResponseEntity object with a success message, the new ETag of the employee, following the
+     *         replaced version, and HTTP status code 200 (OK).
+     * @throws EmployeeNotFoundException           if no Employee is found with the ID of the given employee.
+     * @throws EmployeePreconditionFailedException if the employee does not have the expected version.
      */
+    @Transactional
     @CacheEvict(value = "employee", key = "#employee.id")
-    public ResponseEntity<?> updateEmployee(Employee employee) {
-        employeeRepository.save(employee);
-        return new ResponseEntity<>("Employee has been updated successfully.", HttpStatus.OK);
+    public ResponseEntity<?> updateEmployee(Employee employee, Long expectedVersion) {
+        Long employeeId = employee.getId();
+        Employee previous = employeeRepository.updateReturningPrevious(employeeId, expectedVersion,
+                employee.getName(), employee.getSalary(), employee.getDepartment())
+                .orElseThrow(() -> notFoundOrModified(employeeId, expectedVersion));
+        employee.setVersion(previous.getVersion() + 1);
+        employeeChangeService.employeeUpdated(employee);
+        departmentStatsService.employeeChanged(previous, employee);
+        return updatedResponse(employee);
+    }
+
+    /**
+     * Updates the fields of an employee present in the patch, with a single UPDATE statement
+     * whose SET clause only lists the changed columns, and records the changed fields in the change log,
+     * in the same transaction. The statement returns the row it replaces, as for a full update.
+     *
+     * @param employeeId      The ID of the employee to update.
+     * @param patch           The fields to update.
+     * @param expectedVersion The version the employee must have, or {@code null} to update any version.
+     * @return A ResponseEntity object with a success message, the new ETag of the employee, following the
+     *         replaced version, and HTTP status code 200 (OK).
+     * @throws EmployeeBadRequestException         if the patch is empty or clears the name.
+     * @throws EmployeeNotFoundException           if no Employee is found with the given employeeId.
+     * @throws EmployeePreconditionFailedException if the employee does not have the expected version.
+     */
+    @Override
+    @Transactional
+    @CacheEvict(value = "employee", key = "#employeeId")
+    public ResponseEntity<?> patchEmployee(Long employeeId, EmployeePatch patch, Long expectedVersion) {
+        if (patch.getChanges().isEmpty()) {
+            throw new EmployeeBadRequestException("At least one of name, salary or department must be provided.");
+        }
+        if (patch.hasName() && (patch.getName() == null || patch.getName().trim().isEmpty())) {
+            throw new EmployeeBadRequestException("name is mandatory");
+        }
+
+        Employee previous = employeeRepository.patchReturningPrevious(employeeId, expectedVersion, patch.getChanges())
+                .orElseThrow(() -> notFoundOrModified(employeeId, expectedVersion));
+        Employee current = patched(previous, patch);
+        employeeChangeService.employeePatched(employeeId, current.getVersion(), patch);
+        departmentStatsService.employeeChanged(previous, current);
+        return updatedResponse(current);
     }
 
     /**
@@ -97,19 +508,88 @@ public class EmployeeServiceImpl implements EmployeeService {
      * @param employeeId The ID of the employee to check for existence.
      * @return {@code true} if an employee with the given ID exists, {@code false} otherwise.
      */
+    @Transactional(readOnly = true)
     @Override
     public boolean existsById(Long employeeId) {
         return employeeRepository.existsById(employeeId);
     }
 
     /**
-     * Caches an employee object in the cache.
+     * Puts the given employees into the "employee" cache, so that later calls to {@link #getEmployee(Long)}
+     * are served without querying the database.
+     * <p>
+     * The cache is written directly rather than through a {@link Cacheable} method, because calls made
+     * from inside this class would bypass the caching proxy.
+     * <p>
+     * An employee with an update pending in write-behind mode is cached with its pending update, which the
+     * cache must keep serving until it is written. The pending update is looked up after the put: an update
+     * queued concurrently is either seen then, or puts itself into the cache after this put.
+     *
+     * @param employees The employees to be cached.
+     */
+    private void cacheEmployees(Iterable<Employee> employees) {
+        Cache cache = cacheManager.getCache(CacheConfig.EMPLOYEE_CACHE);
+        for (Employee employee : employees) {
+            cache.put(employee.getId(), employee);
+            Employee pending = employeeWriteBehindService.getPending(employee.getId());
+            if (pending != null) {
+                cache.put(employee.getId(), pending);
+            }
+        }
+    }
+
+    /**
+     * Applies a patch to a copy of an employee, with the version the patch gives it.
      *
-     * @param employee The employee object to be cached.
-     * @return The cached employee object.
+     * @param previous The employee as it was before the patch.
+     * @param patch    The fields written to the database.
+     * @return The employee as written to the database.
      */
-    @Cacheable(value = "employee", key = "#employee.id")
-    private Employee cacheEmployee(Employee employee) {
+    private static Employee patched(Employee previous, EmployeePatch patch) {
+        Employee employee = new Employee();
+        employee.setId(previous.getId());
+        employee.setName(patch.hasName() ? patch.getName() : previous.getName());
+        employee.setSalary(patch.hasSalary() ? patch.getSalary() : previous.getSalary());
+        employee.setDepartment(patch.hasDepartment() ? patch.getDepartment() : previous.getDepartment());
+        employee.setVersion(previous.getVersion() + 1);
         return employee;
     }
-}
\ No newline at end of file
+
+    /**
+     * Puts the employees read by a list or search query into the "employee" cache, unless a replica is
+     * configured: the query may then have been served by the replica, which can lag behind the primary.
+     *
+     * @param employees The employees to be cached.
+     */
+    private void cacheListedEmployees(Iterable<Employee> employees) {
+        if (!replicaEnabled) {
+            cacheEmployees(employees);
+        }
+    }
+
+    /**
+     * Builds the response of a successful update.
+     *
+     * @param employee The updated employee, with its new version.
+     * @return A ResponseEntity object with a success message, the new ETag of the employee and HTTP status
+     *         code 200 (OK).
+     */
+    private static ResponseEntity<?> updatedResponse(Employee employee) {
+        return ResponseEntity.ok().eTag(EmployeeETags.of(employee)).body("Employee has been updated successfully.");
+    }
+
+    /**
+     * Explains why a single-statement write affected no row. Only when the write was conditioned on a version
+     * is a second query needed, to tell a missing employee from a modified one.
+     *
+     * @param employeeId      The ID of the employee.
+     * @param expectedVersion The version the write was conditioned on, or {@code null}.
+     * @return The exception to throw.
+     */
+    private RuntimeException notFoundOrModified(Long employeeId, Long expectedVersion) {
+        if (expectedVersion != null && employeeRepository.existsById(employeeId)) {
+            return new EmployeePreconditionFailedException("Employee has been modified since it was retrieved.");
+        }
+        return new EmployeeNotFoundException("Employee could not be found");
+    }
+}
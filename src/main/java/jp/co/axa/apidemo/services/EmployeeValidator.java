@@ -0,0 +1,41 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.entities.Employee;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The EmployeeValidator class validates the employees written many at once, by the batch endpoints and the
+ * file imports, against the constraints declared on {@link Employee}.
+ * <p>
+ * Invalid items are reported one by one rather than failing the whole request, so the violations are returned
+ * as a message instead of being thrown.
+ */
+@Component
+public class EmployeeValidator {
+
+    @Autowired
+    private Validator validator;
+
+    /**
+     * Validates a single employee against the constraints declared on {@link Employee}.
+     *
+     * @param employee The employee to validate, possibly {@code null}.
+     * @return The violated constraints, sorted and separated by semicolons, or {@code null} when the employee is valid.
+     */
+    public String validate(Employee employee) {
+        if (employee == null) {
+            return "employee is mandatory";
+        }
+        Set<ConstraintViolation<Employee>> violations = validator.validate(employee);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "));
+    }
+}
@@ -0,0 +1,43 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.entities.Employee;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Collection;
+
+/**
+ * The EmployeeWriteBehindService interface establishes a contract for the write-behind mode of employee updates,
+ * where full updates are acknowledged once queued and written later, in batches.
+ */
+public interface EmployeeWriteBehindService {
+
+    /**
+     * Tells whether updates are queued rather than written immediately.
+     *
+     * @return {@code true} if the write-behind mode is enabled.
+     */
+    public boolean isEnabled();
+
+    /**
+     * Queues a full update of an employee, replacing the pending update of the same employee if any.
+     *
+     * @param employee The updated employee, with its ID.
+     * @return A ResponseEntity object with HTTP status code 202 (ACCEPTED) and the ETag the employee will have.
+     */
+    public ResponseEntity<?> queueUpdate(Employee employee);
+
+    /**
+     * Retrieves the pending update of an employee.
+     *
+     * @param employeeId The ID of the employee.
+     * @return The employee as it will be once the update is written, or {@code null} if no update is pending.
+     */
+    public Employee getPending(Long employeeId);
+
+    /**
+     * Writes the pending updates of the given employees now, before they are written through another path.
+     *
+     * @param employeeIds The IDs of the employees.
+     */
+    public void flush(Collection<Long> employeeIds);
+}
@@ -0,0 +1,355 @@
+package jp.co.axa.apidemo.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jp.co.axa.apidemo.config.CacheConfig;
+import jp.co.axa.apidemo.datasource.ReplicaRoutingContext;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.entities.EmployeePendingUpdate;
+import jp.co.axa.apidemo.exception.EmployeeNotFoundException;
+import jp.co.axa.apidemo.repositories.EmployeePendingUpdateRepository;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * This class is an implementation of the EmployeeWriteBehindService interface.
+ * <p>
+ * A queued update is committed to EMPLOYEE_PENDING_UPDATE before it is acknowledged, replacing the pending update
+ * of the same employee, then kept in memory and put into the "employee" cache, so that reads see it right away.
+ * Pending updates are written by a single flusher thread, at most {@code write-behind.flush-size} per transaction,
+ * every {@code write-behind.flush-interval-ms} or as soon as that many are pending. Those still pending at shutdown
+ * are written before the application stops; after a crash, they are reloaded from the table at the next start.
+ * <p>
+ * Each update announces the version the employee will have once written, one more than the pending or current
+ * version, and the flush writes that version. Once {@code write-behind.max-pending} employees have an update
+ * pending, updates of other employees are rejected until the flusher catches up.
+ * <p>
+ * A queued update is only visible on the instance that queued it. Once written, the employee is evicted from the
+ * "employee" cache, so that the other instances, to which the eviction is broadcast, reload it.
+ */
+@Service
+public class EmployeeWriteBehindServiceImpl implements EmployeeWriteBehindService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmployeeWriteBehindServiceImpl.class);
+
+    // Number of locks serializing the updates queued for the same employee. Must be a power of two.
+    private static final int LOCK_STRIPES = 64;
+
+    @Value("${write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${write-behind.max-pending:10000}")
+    private int maxPending;
+
+    @Value("${write-behind.flush-size:500}")
+    private int flushSize;
+
+    @Value("${write-behind.flush-interval-ms:1000}")
+    private long flushIntervalMillis;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EmployeePendingUpdateRepository pendingUpdateRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private DepartmentStatsService departmentStatsService;
+
+    @Autowired
+    private EmployeeChangeService employeeChangeService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Long, EmployeePendingUpdate> pending = new ConcurrentHashMap<>();
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    // Held while writing, so that an update is never written twice by the flusher and a caller of flush.
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private ScheduledExecutorService flusher;
+
+    public EmployeeWriteBehindServiceImpl() {
+        for (int index = 0; index < LOCK_STRIPES; index++) {
+            locks[index] = new Object();
+        }
+    }
+
+    /**
+     * Reloads the updates left pending by the previous run, then starts the flusher thread. When the write-behind
+     * mode is disabled, the reloaded updates are written right away instead.
+     */
+    @PostConstruct
+    public void start() {
+        // Read in a read-write transaction, so that the primary is queried even when a replica is configured
+        List<EmployeePendingUpdate> reloaded = transactionTemplate.execute(status -> pendingUpdateRepository.findAll());
+        for (EmployeePendingUpdate update : reloaded) {
+            pending.put(update.getEmployeeId(), update);
+        }
+        if (!reloaded.isEmpty()) {
+            logger.info("Reloaded {} pending employee updates", reloaded.size());
+        }
+        if (!enabled) {
+            flushPending();
+            return;
+        }
+
+        Gauge.builder("employees.write-behind.pending", pending, Map::size)
+                .description("Employee updates queued and not written yet")
+                .register(meterRegistry);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "employee-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushPending, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the flusher thread, then writes the updates still pending.
+     *
+     * @throws InterruptedException If interrupted while waiting for the flusher thread.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flushPending();
+        if (!pending.isEmpty()) {
+            logger.warn("{} employee updates are left pending, they will be written at the next start", pending.size());
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a full update of an employee.
+     * <p>
+     * The update is committed to EMPLOYEE_PENDING_UPDATE before this method returns, so an acknowledged update
+     * survives a restart.
+     *
+     * @param employee The updated employee, with its ID.
+     * @return A ResponseEntity object with HTTP status code 202 (ACCEPTED) and the ETag the employee will have.
+     * @throws EmployeeNotFoundException  if no Employee is found with the ID of the given employee.
+     * @throws RejectedExecutionException if too many employees already have an update pending.
+     */
+    @Override
+    public ResponseEntity<?> queueUpdate(Employee employee) {
+        Long employeeId = employee.getId();
+        EmployeePendingUpdate update = new EmployeePendingUpdate();
+        synchronized (lockFor(employeeId)) {
+            EmployeePendingUpdate previous = pending.get(employeeId);
+            if (previous == null && pending.size() >= maxPending) {
+                requestFlush();
+                throw new RejectedExecutionException("Too many employee updates are pending.");
+            }
+            update.setEmployeeId(employeeId);
+            update.setName(employee.getName());
+            update.setSalary(employee.getSalary());
+            update.setDepartment(employee.getDepartment());
+            update.setVersion((previous != null ? previous.getVersion() : currentVersion(employeeId)) + 1);
+            update.setQueuedAt(new Date());
+
+            pendingUpdateRepository.upsert(employeeId, update.getName(), update.getSalary(), update.getDepartment(),
+                    update.getVersion());
+            pending.put(employeeId, update);
+            cacheManager.getCache(CacheConfig.EMPLOYEE_CACHE).put(employeeId, toEmployee(update));
+        }
+        if (pending.size() >= flushSize) {
+            requestFlush();
+        }
+        return ResponseEntity.accepted()
+                .eTag(EmployeeETags.of(employeeId, update.getVersion()))
+                .body("Employee update has been queued.");
+    }
+
+    @Override
+    public Employee getPending(Long employeeId) {
+        EmployeePendingUpdate update = pending.get(employeeId);
+        return update == null ? null : toEmployee(update);
+    }
+
+    /**
+     * Writes the pending updates of the given employees now, waiting for the flusher thread if it is writing.
+     *
+     * @param employeeIds The IDs of the employees. Null IDs are ignored.
+     * @throws RuntimeException if the pending updates could not be written.
+     */
+    @Override
+    public void flush(Collection<Long> employeeIds) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            List<EmployeePendingUpdate> updates = employeeIds.stream()
+                    .filter(Objects::nonNull)
+                    .map(pending::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            if (!updates.isEmpty()) {
+                write(updates);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Wakes the flusher thread, unless it is already about to run.
+     */
+    private void requestFlush() {
+        if (flusher == null || !flushRequested.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flusher.execute(this::flushPending);
+        } catch (RejectedExecutionException ex) {
+            // The application is shutting down, stop() writes the pending updates
+        }
+    }
+
+    /**
+     * Writes every pending update, by batches of {@code write-behind.flush-size}. Stops at the first batch that
+     * fails, which is retried on the next run.
+     */
+    private void flushPending() {
+        flushRequested.set(false);
+        while (!pending.isEmpty()) {
+            flushLock.lock();
+            try {
+                write(pending.values().stream().limit(flushSize).collect(Collectors.toList()));
+            } catch (RuntimeException ex) {
+                logger.error("Failed to write pending employee updates, {} left", pending.size(), ex);
+                return;
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the given pending updates in a single transaction, with the change log entries of the employees,
+     * then forgets those that have not been replaced meanwhile and evicts their employees from the cache.
+     * <p>
+     * An update of an employee deleted meanwhile is dropped, and the employee evicted from the cache. The employees
+     * are locked and read first, so that the department statistics get the values the updates replace.
+     *
+     * @param updates The pending updates to write.
+     */
+    private void write(List<EmployeePendingUpdate> updates) {
+        List<Employee> written = new ArrayList<>(updates.size());
+        Map<Long, Employee> previous = new HashMap<>();
+        List<Long> deleted = new ArrayList<>();
+        transactionTemplate.execute(status -> {
+            List<Long> employeeIds = updates.stream().map(EmployeePendingUpdate::getEmployeeId)
+                    .collect(Collectors.toList());
+            for (Employee employee : employeeRepository.lockAllById(employeeIds)) {
+                previous.put(employee.getId(), employee);
+            }
+            for (EmployeePendingUpdate update : updates) {
+                int updated = employeeRepository.writePendingUpdate(update.getEmployeeId(), update.getName(),
+                        update.getSalary(), update.getDepartment(), update.getVersion());
+                if (updated == 0) {
+                    deleted.add(update.getEmployeeId());
+                } else {
+                    written.add(toEmployee(update));
+                }
+                pendingUpdateRepository.deleteWritten(update.getEmployeeId(), update.getVersion());
+            }
+            employeeChangeService.employeesWritten(Collections.emptyList(), written);
+            return null;
+        });
+
+        Cache cache = cacheManager.getCache(CacheConfig.EMPLOYEE_CACHE);
+        for (EmployeePendingUpdate update : updates) {
+            // An update replaced meanwhile is still pending and cached on this instance, it is evicted once written
+            if (pending.remove(update.getEmployeeId(), update)) {
+                cache.evict(update.getEmployeeId());
+            }
+        }
+        for (Employee employee : written) {
+            departmentStatsService.employeeChanged(previous.get(employee.getId()), employee);
+        }
+        if (!deleted.isEmpty()) {
+            logger.warn("Dropped the pending updates of {} deleted employees", deleted.size());
+            deleted.forEach(cache::evict);
+        }
+    }
+
+    /**
+     * Retrieves the current version of an employee with no pending update, from the cache when possible,
+     * otherwise from the primary, since the version of a queued update follows it.
+     *
+     * @param employeeId The ID of the employee.
+     * @return The current version of the employee.
+     * @throws EmployeeNotFoundException if no Employee is found with the given employeeId.
+     */
+    private Long currentVersion(Long employeeId) {
+        Employee cached = cacheManager.getCache(CacheConfig.EMPLOYEE_CACHE).get(employeeId, Employee.class);
+        Long version = cached != null ? cached.getVersion()
+                : ReplicaRoutingContext.readFromPrimary(() -> employeeRepository.findVersionById(employeeId));
+        if (version == null) {
+            throw new EmployeeNotFoundException("Employee could not be found");
+        }
+        return version;
+    }
+
+    private Object lockFor(Long employeeId) {
+        return locks[Long.hashCode(employeeId) & (LOCK_STRIPES - 1)];
+    }
+
+    private static Employee toEmployee(EmployeePendingUpdate update) {
+        Employee employee = new Employee();
+        employee.setId(update.getEmployeeId());
+        employee.setName(update.getName());
+        employee.setSalary(update.getSalary());
+        employee.setDepartment(update.getDepartment());
+        employee.setVersion(update.getVersion());
+        return employee;
+    }
+}
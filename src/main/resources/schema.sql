@@ -1,12 +1,68 @@
 DROP TABLE IF EXISTS `authorities`;
 DROP TABLE IF EXISTS `users`;
 
+-- CREATE EMPLOYEE SEQUENCE (INCREMENT MUST MATCH THE allocationSize OF Employee.id)
+CREATE SEQUENCE EMPLOYEE_SEQ START WITH 100 INCREMENT BY 50;
+
 -- CREATE EMPLOYEE TABLE
+-- EMPLOYEE_NAME IGNORES CASE SO THAT NAME PREFIX SEARCHES ARE CASE-INSENSITIVE AND STILL USE IX_EMPLOYEE_NAME
 CREATE TABLE EMPLOYEE (
-    ID IDENTITY PRIMARY KEY,
+    ID BIGINT PRIMARY KEY,
+    EMPLOYEE_NAME VARCHAR_IGNORECASE(255) NOT NULL,
+    EMPLOYEE_SALARY INT,
+    DEPARTMENT VARCHAR(255),
+    VERSION BIGINT DEFAULT 0 NOT NULL
+);
+
+-- CREATE EMPLOYEE SEARCH INDEXES
+CREATE INDEX IX_EMPLOYEE_DEPARTMENT ON EMPLOYEE (DEPARTMENT, EMPLOYEE_SALARY);
+CREATE INDEX IX_EMPLOYEE_SALARY ON EMPLOYEE (EMPLOYEE_SALARY);
+CREATE INDEX IX_EMPLOYEE_NAME ON EMPLOYEE (EMPLOYEE_NAME);
+
+-- CREATE EMPLOYEE CHANGE LOG
+-- SEQ IS TAKEN FROM THE SINGLE ROW OF EMPLOYEE_CHANGE_COUNTER, WHICH STAYS LOCKED UNTIL THE WRITING TRANSACTION
+-- COMMITS: CHANGES THEREFORE BECOME VISIBLE IN SEQ ORDER, AND A CONSUMER READING PAST A SEQ NEVER MISSES A LOWER ONE
+CREATE TABLE EMPLOYEE_CHANGE_COUNTER (
+    ID INT PRIMARY KEY,
+    LAST_SEQ BIGINT NOT NULL
+);
+
+INSERT INTO EMPLOYEE_CHANGE_COUNTER (ID, LAST_SEQ) VALUES (1, 0);
+
+CREATE TABLE EMPLOYEE_CHANGE (
+    SEQ BIGINT PRIMARY KEY,
+    EMPLOYEE_ID BIGINT NOT NULL,
+    OPERATION VARCHAR(10) NOT NULL,
+    EMPLOYEE_VERSION BIGINT,
+    CHANGED_FIELDS VARCHAR(255),
+    EMPLOYEE_NAME VARCHAR(255),
+    EMPLOYEE_SALARY INT,
+    DEPARTMENT VARCHAR(255),
+    CHANGED_AT TIMESTAMP NOT NULL
+);
+
+-- USED TO DELETE THE CHANGES OLDER THAN changes.retention-hours
+CREATE INDEX IX_EMPLOYEE_CHANGE_CHANGED_AT ON EMPLOYEE_CHANGE (CHANGED_AT);
+
+-- CREATE EMPLOYEE PENDING UPDATES, QUEUED BY THE WRITE-BEHIND MODE AND DELETED ONCE FLUSHED
+-- ONE ROW PER EMPLOYEE: A NEWER UPDATE OF THE SAME EMPLOYEE REPLACES THE PENDING ONE
+CREATE TABLE EMPLOYEE_PENDING_UPDATE (
+    EMPLOYEE_ID BIGINT PRIMARY KEY,
     EMPLOYEE_NAME VARCHAR(255) NOT NULL,
     EMPLOYEE_SALARY INT,
-    DEPARTMENT VARCHAR(255)
+    DEPARTMENT VARCHAR(255),
+    EMPLOYEE_VERSION BIGINT NOT NULL,
+    QUEUED_AT TIMESTAMP NOT NULL
+);
+
+-- CREATE CACHE INVALIDATIONS, EXCHANGED BY THE INSTANCES SHARING THIS DATABASE WITH cache.invalidation.transport=jdbc
+-- A NULL CACHE_KEY CLEARS THE WHOLE CACHE. ROWS ARE DELETED ONCE OLDER THAN cache.invalidation.jdbc.retention-seconds
+CREATE TABLE CACHE_INVALIDATION (
+    ID BIGINT AUTO_INCREMENT PRIMARY KEY,
+    ORIGIN VARCHAR(36) NOT NULL,
+    CACHE_NAME VARCHAR(64) NOT NULL,
+    CACHE_KEY VARCHAR(255),
+    CREATED_AT TIMESTAMP NOT NULL
 );
 
 -- CREATE USERS TABLE
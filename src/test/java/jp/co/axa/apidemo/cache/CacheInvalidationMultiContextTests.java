@@ -0,0 +1,94 @@
+package jp.co.axa.apidemo.cache;
+
+import jp.co.axa.apidemo.ApiDemoApplication;
+import jp.co.axa.apidemo.config.CacheConfig;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeService;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that an update made on one instance evicts the employee from the cache of another, with two instances of
+ * the application started in this JVM on the same in-memory H2 database, exchanging their invalidations through
+ * the CACHE_INVALIDATION table.
+ */
+public class CacheInvalidationMultiContextTests {
+
+    private static final long EMPLOYEE_ID = 1L;
+
+    // Much longer than the poll interval of the instances
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private static ConfigurableApplicationContext first;
+
+    private static ConfigurableApplicationContext second;
+
+    @BeforeClass
+    public static void startInstances() {
+        first = start("spring.datasource.initialization-mode=always");
+        // The first instance has created and filled the shared database
+        second = start("spring.datasource.initialization-mode=never");
+    }
+
+    @AfterClass
+    public static void stopInstances() {
+        if (second != null) {
+            second.close();
+        }
+        if (first != null) {
+            first.close();
+        }
+    }
+
+    @Test
+    public void updateOnOneInstanceEvictsTheEmployeeOnTheOther() throws InterruptedException {
+        EmployeeService firstService = first.getBean(EmployeeService.class);
+        EmployeeService secondService = second.getBean(EmployeeService.class);
+        Cache secondCache = second.getBean(CacheManager.class).getCache(CacheConfig.EMPLOYEE_CACHE);
+
+        Employee before = secondService.getEmployee(EMPLOYEE_ID);
+        assertThat(secondCache.get(EMPLOYEE_ID)).isNotNull();
+
+        Employee update = new Employee();
+        update.setId(EMPLOYEE_ID);
+        update.setName(before.getName() + " Updated");
+        update.setSalary(before.getSalary());
+        update.setDepartment(before.getDepartment());
+        firstService.updateEmployee(update, null);
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (secondCache.get(EMPLOYEE_ID) != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(secondCache.get(EMPLOYEE_ID)).isNull();
+        assertThat(secondService.getEmployee(EMPLOYEE_ID).getName()).isEqualTo(update.getName());
+    }
+
+    /**
+     * Starts an instance. The settings are passed as command line arguments, which take precedence over
+     * application.properties, unlike the default properties of the builder. The devtools shutdown of the
+     * in-memory database is left out, as closing one instance would otherwise close the database of the other.
+     */
+    private static ConfigurableApplicationContext start(String initializationMode) {
+        return new SpringApplicationBuilder(ApiDemoApplication.class)
+                .run("--spring.datasource.url=jdbc:h2:mem:cache-invalidation;DB_CLOSE_DELAY=-1",
+                        "--" + initializationMode,
+                        "--cache.invalidation.transport=jdbc",
+                        "--cache.invalidation.jdbc.poll-interval-ms=50",
+                        "--server.port=0",
+                        "--management.server.port=-1",
+                        "--spring.jmx.enabled=false",
+                        "--spring.devtools.restart.enabled=false",
+                        "--spring.autoconfigure.exclude="
+                                + "org.springframework.boot.devtools.autoconfigure.DevToolsDataSourceAutoConfiguration");
+    }
+}
@@ -0,0 +1,92 @@
+package jp.co.axa.apidemo.cache;
+
+import jp.co.axa.apidemo.dto.EmployeePatch;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.services.EmployeeService;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the native writes of employees only invalidate what they change in the second-level cache: the
+ * written employee and the cached results of the employee queries, not the other employees.
+ * <p>
+ * The context has a database of its own. Employees are read through the repository, below the "employee" cache.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:second-level-cache-tests")
+public class SecondLevelCacheTests {
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Cache secondLevelCache;
+
+    private TransactionTemplate readOnly;
+
+    @Before
+    public void setUp() {
+        secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        secondLevelCache.evictAllRegions();
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @Test
+    public void patchOnlyEvictsThePatchedEmployee() {
+        readSalary(1L);
+        readSalary(2L);
+        assertThat(secondLevelCache.containsEntity(Employee.class, 1L)).isTrue();
+
+        EmployeePatch patch = new EmployeePatch();
+        patch.setSalary(51000);
+        employeeService.patchEmployee(1L, patch, null);
+
+        assertThat(secondLevelCache.containsEntity(Employee.class, 2L)).isTrue();
+        assertThat(readSalary(1L)).isEqualTo(51000);
+    }
+
+    @Test
+    public void insertInvalidatesTheCachedCounts() {
+        long before = countEmployees();
+
+        Employee employee = new Employee();
+        employee.setId(9_000L);
+        employee.setName("Cache Test");
+        employee.setSalary(1000);
+        employee.setDepartment("Caching");
+        employeeService.saveEmployee(employee);
+
+        assertThat(countEmployees()).isEqualTo(before + 1);
+    }
+
+    private Integer readSalary(Long employeeId) {
+        return readOnly.execute(status -> employeeRepository.findById(employeeId).get().getSalary());
+    }
+
+    private long countEmployees() {
+        return readOnly.execute(status -> employeeRepository.findAll(PageRequest.of(0, 1)).getTotalElements());
+    }
+}
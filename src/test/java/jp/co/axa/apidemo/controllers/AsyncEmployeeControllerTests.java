@@ -0,0 +1,61 @@
+package jp.co.axa.apidemo.controllers;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that the asynchronous read endpoints answer like the blocking ones, errors included.
+ * <p>
+ * The controllers are called without the security filters, which are covered by the load test.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class AsyncEmployeeControllerTests {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mockMvc;
+
+    @Before
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    public void existingEmployeeIsFound() throws Exception {
+        mockMvc.perform(asyncDispatch(startRead("/api/v1/async/employees/1")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+    }
+
+    @Test
+    public void missingEmployeeIsNotFound() throws Exception {
+        mockMvc.perform(asyncDispatch(startRead("/api/v1/async/employees/999999")))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.status").value(404));
+    }
+
+    /**
+     * Sends a read to an asynchronous endpoint and waits for its result.
+     */
+    private MvcResult startRead(String url) throws Exception {
+        MvcResult result = mockMvc.perform(get(url)).andExpect(request().asyncStarted()).andReturn();
+        result.getAsyncResult();
+        return result;
+    }
+}
@@ -0,0 +1,92 @@
+package jp.co.axa.apidemo.controllers;
+
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Checks that a subscriber of {@code /api/v1/employees/changes/stream} receives the changes recorded after it
+ * subscribed, as Server-Sent Events.
+ * <p>
+ * The controllers are called without the security filters, which are covered by the load test.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class EmployeeChangeStreamTests {
+
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    private MockMvc mockMvc;
+
+    private Long employeeId;
+
+    @Before
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @After
+    public void tearDown() {
+        if (employeeId != null) {
+            employeeService.deleteEmployee(employeeId, null);
+        }
+    }
+
+    @Test
+    public void subscriberReceivesChangesRecordedAfterSubscribing() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/v1/employees/changes/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        Employee employee = new Employee();
+        employee.setName("Stream Subscriber");
+        employee.setSalary(1000);
+        employee.setDepartment("Streaming");
+        employeeService.saveEmployee(employee);
+        employeeId = employee.getId();
+
+        String events = awaitContent(result.getResponse(), "\"employeeId\":" + employeeId);
+        assertThat(events).contains("event:employee-change");
+        assertThat(events).contains("\"operation\":\"CREATED\"");
+        assertThat(events).contains("\"name\":\"Stream Subscriber\"");
+    }
+
+    /**
+     * Waits for the streamed response to contain the given text, and returns everything streamed so far.
+     */
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        String content = response.getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            content = response.getContentAsString();
+        }
+        assertThat(content).contains(expected);
+        return content;
+    }
+}
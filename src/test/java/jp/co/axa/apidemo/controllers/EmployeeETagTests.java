@@ -0,0 +1,79 @@
+package jp.co.axa.apidemo.controllers;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that every encoding of an employee carries its own strong ETag, that If-None-Match only matches the
+ * ETag of the negotiated encoding, and that If-Match compares strongly.
+ * <p>
+ * The context has a database of its own, and the controllers are called without the security filters.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:etag-tests")
+public class EmployeeETagTests {
+
+    private static final MediaType CBOR = MediaType.valueOf("application/cbor");
+
+    private static final String EMPLOYEE_URL = "/api/v1/employees/1";
+
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mockMvc;
+
+    @Before
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    public void eachEncodingHasItsOwnStrongETag() throws Exception {
+        mockMvc.perform(get(EMPLOYEE_URL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-0\""));
+        mockMvc.perform(get(EMPLOYEE_URL).accept(CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(CBOR))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-0-cbor\""));
+        mockMvc.perform(get(EMPLOYEE_URL).header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/cbor"))
+                .andExpect(content().contentTypeCompatibleWith(CBOR))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-0-cbor\""));
+    }
+
+    @Test
+    public void ifNoneMatchOnlyMatchesTheNegotiatedEncoding() throws Exception {
+        mockMvc.perform(get(EMPLOYEE_URL).accept(CBOR).header(HttpHeaders.IF_NONE_MATCH, "\"1-0-cbor\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get(EMPLOYEE_URL).accept(CBOR).header(HttpHeaders.IF_NONE_MATCH, "\"1-0\""))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(CBOR));
+    }
+
+    @Test
+    public void ifMatchComparesStrongly() throws Exception {
+        mockMvc.perform(patch("/api/v1/employees/2").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"salary\":60001}").header(HttpHeaders.IF_MATCH, "W/\"2-0\""))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(patch("/api/v1/employees/2").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"salary\":60001}").header(HttpHeaders.IF_MATCH, "\"2-0-cbor\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2-1\""));
+    }
+}
@@ -0,0 +1,139 @@
+package jp.co.axa.apidemo.datasource;
+
+import jp.co.axa.apidemo.config.CacheConfig;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.exception.EmployeeNotFoundException;
+import jp.co.axa.apidemo.services.EmployeeService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the routing of {@link ReplicaRoutingDataSource} with two local H2 databases standing in for the
+ * primary and the replica. As nothing replicates between them, a row inserted in only one of them shows
+ * which database served a read.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("replica")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary",
+        "datasource.replica.url=jdbc:h2:mem:routing-replica"
+})
+public class ReplicaRoutingDataSourceTests {
+
+    private static final long REPLICA_ONLY_ID = 9001L;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    private JdbcTemplate primary;
+
+    private JdbcTemplate replica;
+
+    // ID generated for the employee saved by the test, if any
+    private Long createdId;
+
+    @Before
+    public void setUp() {
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        replica.update("INSERT INTO EMPLOYEE (ID, EMPLOYEE_NAME, EMPLOYEE_SALARY, DEPARTMENT) VALUES (?, ?, ?, ?)",
+                REPLICA_ONLY_ID, "Replica Only", 1000, "Engineering");
+    }
+
+    @After
+    public void tearDown() {
+        ReplicaRoutingContext.end();
+        replica.update("DELETE FROM EMPLOYEE WHERE ID = ?", REPLICA_ONLY_ID);
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        if (createdId != null) {
+            primary.update("DELETE FROM EMPLOYEE WHERE ID = ?", createdId);
+        }
+    }
+
+    @Test
+    public void readOnlyMethodsReadFromReplica() {
+        assertThat(employeeService.existsById(REPLICA_ONLY_ID)).isTrue();
+        assertThat(employeeService.retrieveEmployees(0, 1000).getContent())
+                .extracting(Employee::getId).contains(REPLICA_ONLY_ID);
+    }
+
+    @Test
+    public void lookupsByIdReadFromPrimary() {
+        assertThatThrownBy(() -> employeeService.getEmployee(REPLICA_ONLY_ID))
+                .isInstanceOf(EmployeeNotFoundException.class);
+        assertThat(employeeService.getEmployees(Collections.singletonList(REPLICA_ONLY_ID)).getFound()).isZero();
+    }
+
+    @Test
+    public void listsReadFromReplicaAreNotCached() {
+        employeeService.retrieveEmployees(0, 1000);
+
+        assertThat(cacheManager.getCache(CacheConfig.EMPLOYEE_CACHE).get(REPLICA_ONLY_ID)).isNull();
+    }
+
+    @Test
+    public void writesGoToPrimary() {
+        saveEmployee();
+
+        assertThat(count(primary, createdId)).isEqualTo(1);
+        assertThat(count(replica, createdId)).isZero();
+        assertThat(employeeService.existsById(createdId)).isFalse();
+    }
+
+    @Test
+    public void readsFollowingWriteOfRequestReadFromPrimary() {
+        ReplicaRoutingContext.begin();
+
+        assertThat(employeeService.existsById(REPLICA_ONLY_ID)).isTrue();
+
+        saveEmployee();
+
+        assertThat(employeeService.existsById(createdId)).isTrue();
+        assertThat(employeeService.existsById(REPLICA_ONLY_ID)).isFalse();
+    }
+
+    /**
+     * Saves a new employee through the service, and remembers the ID it was given for the assertions and the
+     * cleanup: the service always generates the ID.
+     */
+    private void saveEmployee() {
+        Employee employee = new Employee();
+        employee.setName("Primary Only");
+        employee.setSalary(2000);
+        employee.setDepartment("Engineering");
+        employeeService.saveEmployee(employee);
+        createdId = employee.getId();
+    }
+
+    private static int count(JdbcTemplate jdbcTemplate, long employeeId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM EMPLOYEE WHERE ID = ?", Integer.class, employeeId);
+    }
+}
@@ -0,0 +1,48 @@
+package jp.co.axa.apidemo.loadtest;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the whole stack (security filter chain, controllers, exception handler and H2) over HTTP with the mix
+ * of requests described by {@link LoadTestSettings}, then writes a latency and throughput report per endpoint.
+ * <p>
+ * The per-user rate limits are disabled, as the test drives a few users far above them on purpose.
+ * This test is excluded from the default build; run it with {@code mvn -Ploadtest test -Dloadtest.password=...}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "rate-limit.enabled=false")
+public class EmployeeApiLoadTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void generateLoad() throws Exception {
+        LoadTestSettings settings = new LoadTestSettings();
+        Assume.assumeTrue("loadtest.password must be set to the password of the data.sql users",
+                settings.password != null);
+
+        LoadGenerator generator = new LoadGenerator(settings, "http://localhost:" + port);
+        System.out.println("Load test: " + settings);
+
+        // Warms up the JIT, the caches and the connection pools; these results are discarded.
+        generator.run(settings.warmupSeconds);
+
+        LoadResults results = generator.run(settings.durationSeconds);
+        Path report = results.write(settings, Paths.get(settings.reportDirectory));
+        System.out.println(results.summary());
+        System.out.println("Load test report written to " + report.toAbsolutePath());
+
+        assertThat(results.unexpectedStatuses()).as("requests answered with an unexpected status").isZero();
+    }
+}
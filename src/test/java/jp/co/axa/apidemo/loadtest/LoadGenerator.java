@@ -0,0 +1,143 @@
+package jp.co.axa.apidemo.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Issues the configured mix of requests against a running application and records their latencies.
+ * <p>
+ * In {@link LoadTestSettings.Mode#RATE} mode, request {@code i} is due at {@code start + i / rate} and its latency
+ * is measured from that due time rather than from the moment it was actually sent. When the server falls behind
+ * and every worker is busy, the waiting time is therefore counted, instead of being hidden by the load generator
+ * slowing down with the server (coordinated omission).
+ */
+final class LoadGenerator {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    private final LoadTestSettings settings;
+
+    private final String baseUrl;
+
+    // Operations repeated according to their weight, picked uniformly.
+    private final Operation[] weightedOperations;
+
+    LoadGenerator(LoadTestSettings settings, String baseUrl) {
+        this.settings = settings;
+        this.baseUrl = baseUrl;
+
+        List<Operation> operations = new ArrayList<>();
+        for (Map.Entry<Operation, Integer> entry : settings.mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                operations.add(entry.getKey());
+            }
+        }
+        this.weightedOperations = operations.toArray(new Operation[0]);
+    }
+
+    /**
+     * Generates load for the given duration.
+     *
+     * @param seconds The duration of the run.
+     * @return The latencies and statuses recorded during the run.
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    LoadResults run(int seconds) throws InterruptedException {
+        LoadResults results = new LoadResults(settings.mix.keySet());
+        ExecutorService workers = Executors.newFixedThreadPool(settings.concurrency);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, settings.rate);
+        AtomicLong sequence = new AtomicLong();
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        for (int worker = 0; worker < settings.concurrency; worker++) {
+            workers.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (true) {
+                    long dueTime;
+                    if (settings.mode == LoadTestSettings.Mode.RATE) {
+                        dueTime = start + sequence.getAndIncrement() * intervalNanos;
+                        if (dueTime >= end) {
+                            return;
+                        }
+                        long wait = dueTime - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    } else {
+                        dueTime = System.nanoTime();
+                        if (dueTime >= end) {
+                            return;
+                        }
+                    }
+                    Operation operation = weightedOperations[random.nextInt(weightedOperations.length)];
+                    int status = execute(operation.next(settings, random));
+                    results.record(operation, status, System.nanoTime() - dueTime);
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(seconds + READ_TIMEOUT_MILLIS / 1000 + 60, TimeUnit.SECONDS);
+        results.setElapsedNanos(System.nanoTime() - start);
+        return results;
+    }
+
+    /**
+     * Sends a request and reads the whole response, so that the connection is reused by the next request.
+     *
+     * @param request The request to send.
+     * @return The response status, or -1 if the request failed.
+     */
+    private int execute(Operation.Request request) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + request.path).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+            connection.setRequestMethod(request.method);
+            connection.setRequestProperty("Authorization", authorization(request.username));
+            connection.setRequestProperty("Accept", "application/json");
+            if (request.body != null) {
+                byte[] body = request.body.getBytes(StandardCharsets.UTF_8);
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setFixedLengthStreamingMode(body.length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body);
+                }
+            }
+            int status = connection.getResponseCode();
+            try (InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+                if (in != null) {
+                    byte[] buffer = new byte[8192];
+                    while (in.read(buffer) != -1) {
+                        // Drains the response.
+                    }
+                }
+            }
+            return status;
+        } catch (IOException ex) {
+            return -1;
+        }
+    }
+
+    private String authorization(String username) {
+        String credentials = username + ":" + settings.password;
+        return "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    }
+}
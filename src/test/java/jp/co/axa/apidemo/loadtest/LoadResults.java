@@ -0,0 +1,144 @@
+package jp.co.axa.apidemo.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies, in microseconds, and unexpected statuses recorded per operation during a load test run.
+ */
+final class LoadResults {
+
+    // Significant decimal digits kept by the histograms.
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+
+    private final Map<Operation, LongAdder> unexpectedStatuses = new EnumMap<>(Operation.class);
+
+    private long elapsedNanos;
+
+    LoadResults(Collection<Operation> operations) {
+        for (Operation operation : operations) {
+            latencies.put(operation, new ConcurrentHistogram(SIGNIFICANT_DIGITS));
+            unexpectedStatuses.put(operation, new LongAdder());
+        }
+    }
+
+    void record(Operation operation, int status, long latencyNanos) {
+        latencies.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        if (status != operation.expectedStatus) {
+            unexpectedStatuses.get(operation).increment();
+        }
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    long unexpectedStatuses() {
+        return unexpectedStatuses.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * Writes {@code report.json}, holding the settings and the statistics of every endpoint, and one
+     * {@code <operation>.hgrm} percentile distribution per operation, to the given directory.
+     *
+     * @param settings  The settings of the run.
+     * @param directory The report directory, created if needed.
+     * @return The path of the JSON report.
+     * @throws IOException if the report cannot be written
+     */
+    Path write(LoadTestSettings settings, Path directory) throws IOException {
+        Files.createDirectories(directory);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("mode", settings.mode.toString());
+        report.put("concurrency", settings.concurrency);
+        if (settings.mode == LoadTestSettings.Mode.RATE) {
+            report.put("rate", settings.rate);
+        }
+        report.put("readPrefix", settings.readPrefix);
+        report.put("durationSeconds", settings.durationSeconds);
+        report.put("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+
+        Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+        long totalErrors = 0;
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (Map.Entry<Operation, Histogram> entry : latencies.entrySet()) {
+            Operation operation = entry.getKey();
+            Histogram histogram = entry.getValue();
+            long errors = unexpectedStatuses.get(operation).sum();
+            endpoints.put(operation.endpoint, statistics(histogram, errors));
+            total.add(histogram);
+            totalErrors += errors;
+
+            try (PrintStream out = new PrintStream(directory.resolve(operation.shortName + ".hgrm").toFile(), "UTF-8")) {
+                histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+        report.put("endpoints", endpoints);
+        report.put("total", statistics(total, totalErrors));
+
+        Path reportFile = directory.resolve("report.json");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile.toFile(), report);
+        return reportFile;
+    }
+
+    /**
+     * Summarizes the run in a few lines, for the console.
+     *
+     * @return The summary.
+     */
+    String summary() {
+        StringBuilder summary = new StringBuilder(String.format("%-36s %8s %8s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        latencies.forEach((operation, histogram) -> summary.append(String.format(
+                "%-36s %8d %8d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                operation.endpoint, histogram.getTotalCount(), unexpectedStatuses.get(operation).sum(),
+                throughput(histogram),
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()))));
+        return summary.toString();
+    }
+
+    private Map<String, Object> statistics(Histogram histogram, long errors) {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("count", histogram.getTotalCount());
+        statistics.put("unexpectedStatuses", errors);
+        statistics.put("throughputPerSecond", round(throughput(histogram)));
+        statistics.put("meanMillis", round(histogram.getMean() / MICROS_PER_MILLI));
+        statistics.put("p50Millis", millis(histogram.getValueAtPercentile(50)));
+        statistics.put("p90Millis", millis(histogram.getValueAtPercentile(90)));
+        statistics.put("p99Millis", millis(histogram.getValueAtPercentile(99)));
+        statistics.put("p999Millis", millis(histogram.getValueAtPercentile(99.9)));
+        statistics.put("maxMillis", millis(histogram.getMaxValue()));
+        return statistics;
+    }
+
+    private double throughput(Histogram histogram) {
+        return elapsedNanos == 0 ? 0 : histogram.getTotalCount() * 1e9 / elapsedNanos;
+    }
+
+    private static double millis(long micros) {
+        return round(micros / MICROS_PER_MILLI);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,69 @@
+package jp.co.axa.apidemo.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of a load test run, read from system properties so that they can be given on the Maven command line,
+ * e.g. {@code mvn -Ploadtest test -Dloadtest.password=... -Dloadtest.mode=rate -Dloadtest.rate=500}.
+ */
+final class LoadTestSettings {
+
+    /**
+     * How requests are issued.
+     */
+    enum Mode {
+        // A fixed number of workers issue requests back to back (closed model).
+        CONCURRENCY,
+        // Requests are issued on a fixed schedule, whatever the response times (open model).
+        RATE
+    }
+
+    final Mode mode = Mode.valueOf(property("loadtest.mode", "concurrency").toUpperCase());
+
+    // Number of workers, which is also the maximum number of requests in flight in RATE mode.
+    final int concurrency = Integer.parseInt(property("loadtest.concurrency", "16"));
+
+    // Requests per second issued in RATE mode.
+    final int rate = Integer.parseInt(property("loadtest.rate", "200"));
+
+    final int warmupSeconds = Integer.parseInt(property("loadtest.warmup-seconds", "5"));
+
+    final int durationSeconds = Integer.parseInt(property("loadtest.duration-seconds", "30"));
+
+    // Prefix of the read requests: /api/v1 for the blocking endpoints, /api/v1/async for the asynchronous ones.
+    final String readPrefix = "async".equals(property("loadtest.api", "blocking")) ? "/api/v1/async" : "/api/v1";
+
+    // Relative weights of the operations, as comma-separated name=weight pairs.
+    final Map<Operation, Integer> mix = parseMix(property("loadtest.mix", "get=50,page=20,missing=10,create=10,update=10"));
+
+    // Password shared by the users of data.sql. Not defaulted, so that it never ends up in the sources.
+    final String password = System.getProperty("loadtest.password");
+
+    final String reader = property("loadtest.reader", "applegate");
+
+    final String manager = property("loadtest.manager", "smith");
+
+    final String admin = property("loadtest.admin", "su");
+
+    final String reportDirectory = property("loadtest.report-directory", "target/loadtest");
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty(name, defaultValue);
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split("=");
+            weights.put(Operation.named(pair[0].trim()), Integer.valueOf(pair[1].trim()));
+        }
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        return "mode=" + mode + ", concurrency=" + concurrency + (mode == Mode.RATE ? ", rate=" + rate : "")
+                + ", reads=" + readPrefix + ", warmup=" + warmupSeconds + "s, duration=" + durationSeconds + "s, mix=" + mix;
+    }
+}
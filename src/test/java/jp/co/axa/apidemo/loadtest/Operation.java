@@ -0,0 +1,108 @@
+package jp.co.axa.apidemo.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The requests issued by the load test, each reported as a separate endpoint.
+ */
+enum Operation {
+
+    GET("get", "GET /api/v1/employees/{id}", 200) {
+        @Override
+        Request next(LoadTestSettings settings, ThreadLocalRandom random) {
+            return new Request("GET", settings.readPrefix + "/employees/" + sampleId(random), null, settings.reader);
+        }
+    },
+
+    PAGE("page", "GET /api/v1/employees?page&size", 200) {
+        @Override
+        Request next(LoadTestSettings settings, ThreadLocalRandom random) {
+            return new Request("GET", settings.readPrefix + "/employees?page=" + random.nextInt(5) + "&size=10", null, settings.reader);
+        }
+    },
+
+    MISSING("missing", "GET /api/v1/employees/{id} (404)", 404) {
+        @Override
+        Request next(LoadTestSettings settings, ThreadLocalRandom random) {
+            return new Request("GET", settings.readPrefix + "/employees/" + (1_000_000_000L + random.nextInt(1_000_000)), null,
+                    settings.reader);
+        }
+    },
+
+    CREATE("create", "POST /api/v1/employees", 201) {
+        @Override
+        Request next(LoadTestSettings settings, ThreadLocalRandom random) {
+            return new Request("POST", "/api/v1/employees", body(random), settings.manager);
+        }
+    },
+
+    UPDATE("update", "PUT /api/v1/employees/{id}", 200) {
+        @Override
+        Request next(LoadTestSettings settings, ThreadLocalRandom random) {
+            return new Request("PUT", "/api/v1/employees/" + sampleId(random), body(random), settings.admin);
+        }
+    };
+
+    // Number of employees inserted by data.sql, with IDs 1 to SAMPLE_SIZE.
+    private static final int SAMPLE_SIZE = 10;
+
+    final String shortName;
+
+    final String endpoint;
+
+    final int expectedStatus;
+
+    Operation(String shortName, String endpoint, int expectedStatus) {
+        this.shortName = shortName;
+        this.endpoint = endpoint;
+        this.expectedStatus = expectedStatus;
+    }
+
+    /**
+     * Builds the next request of this operation.
+     *
+     * @param settings The settings of the run.
+     * @param random   The random generator of the calling thread.
+     * @return The request to issue.
+     */
+    abstract Request next(LoadTestSettings settings, ThreadLocalRandom random);
+
+    static Operation named(String shortName) {
+        for (Operation operation : values()) {
+            if (operation.shortName.equals(shortName)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown load test operation: " + shortName);
+    }
+
+    private static long sampleId(ThreadLocalRandom random) {
+        return 1 + random.nextInt(SAMPLE_SIZE);
+    }
+
+    private static String body(ThreadLocalRandom random) {
+        return "{\"name\":\"Load Test " + random.nextInt(1_000_000) + "\",\"salary\":" + (30000 + random.nextInt(70000))
+                + ",\"department\":\"Load Testing\"}";
+    }
+
+    /**
+     * An HTTP request to issue.
+     */
+    static final class Request {
+
+        final String method;
+
+        final String path;
+
+        final String body;
+
+        final String username;
+
+        Request(String method, String path, String body, String username) {
+            this.method = method;
+            this.path = path;
+            this.body = body;
+            this.username = username;
+        }
+    }
+}
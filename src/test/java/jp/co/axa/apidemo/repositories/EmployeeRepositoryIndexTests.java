@@ -0,0 +1,130 @@
+package jp.co.axa.apidemo.repositories;
+
+import jp.co.axa.apidemo.entities.Employee;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static jp.co.axa.apidemo.repositories.EmployeeSpecifications.hasDepartment;
+import static jp.co.axa.apidemo.repositories.EmployeeSpecifications.nameStartsWith;
+import static jp.co.axa.apidemo.repositories.EmployeeSpecifications.salaryAtLeast;
+import static jp.co.axa.apidemo.repositories.EmployeeSpecifications.salaryAtMost;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the search criteria of {@link EmployeeSpecifications} are served by the EMPLOYEE indexes.
+ * <p>
+ * Each search runs through {@link EmployeeRepository#findAll(Specification, org.springframework.data.domain.Pageable)},
+ * and the SQL Hibernate generates for it is captured by a statement inspector, then explained as it is. Its bind
+ * parameters are left null, because H2 chooses the plan when the statement is prepared, before the parameters
+ * are known.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        // A context of its own, with a database of its own: schema.sql cannot run twice on the same one
+        "spring.datasource.url=jdbc:h2:mem:index-tests",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "jp.co.axa.apidemo.repositories.EmployeeRepositoryIndexTests$CapturingStatementInspector"
+})
+public class EmployeeRepositoryIndexTests {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() {
+        // A cached page would be served without running the query
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+        CapturingStatementInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    public void departmentSearchUsesDepartmentIndex() {
+        String plan = explainSearch(hasDepartment("Engineering"));
+
+        assertThat(plan).contains("IX_EMPLOYEE_DEPARTMENT");
+    }
+
+    @Test
+    public void departmentAndSalarySearchUsesDepartmentIndex() {
+        String plan = explainSearch(Specification.where(hasDepartment("Engineering"))
+                .and(salaryAtLeast(1000)).and(salaryAtMost(9000)));
+
+        assertThat(plan).contains("IX_EMPLOYEE_DEPARTMENT");
+    }
+
+    @Test
+    public void salarySearchUsesSalaryIndex() {
+        String plan = explainSearch(Specification.where(salaryAtLeast(1000)).and(salaryAtMost(9000)));
+
+        assertThat(plan).contains("IX_EMPLOYEE_SALARY");
+    }
+
+    @Test
+    public void namePrefixSearchUsesNameIndex() {
+        String plan = explainSearch(nameStartsWith("jo"));
+
+        assertThat(plan).contains("IX_EMPLOYEE_NAME");
+    }
+
+    @Test
+    public void namePrefixSearchIgnoresCase() {
+        long count = employeeRepository.count(nameStartsWith("A"));
+        long lowerCaseCount = employeeRepository.count(nameStartsWith("a"));
+
+        assertThat(count).isPositive();
+        assertThat(lowerCaseCount).isEqualTo(count);
+    }
+
+    /**
+     * Runs a search as the service does, ordered by ID, and explains the SELECT of the page it issued.
+     */
+    private String explainSearch(Specification<Employee> criteria) {
+        employeeRepository.findAll(criteria, PageRequest.of(0, 20, Sort.by(Sort.Direction.ASC, "id")));
+
+        String sql = CapturingStatementInspector.STATEMENTS.stream()
+                .filter(statement -> statement.contains(" order by "))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No page query captured in "
+                        + CapturingStatementInspector.STATEMENTS));
+        int parameterCount = (int) sql.chars().filter(c -> c == '?').count();
+        return jdbcTemplate.query("EXPLAIN " + sql, statement -> {
+            for (int index = 1; index <= parameterCount; index++) {
+                statement.setObject(index, null);
+            }
+        }, resultSet -> resultSet.next() ? resultSet.getString(1) : null);
+    }
+
+    /**
+     * Records the SQL of every statement Hibernate prepares, unchanged.
+     */
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
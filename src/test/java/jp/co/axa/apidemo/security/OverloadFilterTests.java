@@ -0,0 +1,75 @@
+package jp.co.axa.apidemo.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the admission filters that run before the controllers: event streams held open do not take the slots of
+ * the short requests, and failed authentications are limited per username whatever its case.
+ * <p>
+ * The filters are called directly, with mock requests and filter chains standing for the rest of the chain.
+ */
+public class OverloadFilterTests {
+
+    @Test
+    public void openStreamsDoNotTakeTheSlotsOfShortRequests() throws Exception {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, 1, new SimpleMeterRegistry());
+
+        MockHttpServletRequest stream = request("/api/v1/employees/changes/stream");
+        stream.setAsyncSupported(true);
+        filter.doFilter(stream, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+        assertThat(stream.isAsyncStarted()).isTrue();
+
+        MockHttpServletResponse shortResponse = new MockHttpServletResponse();
+        filter.doFilter(request("/api/v1/employees/1"), shortResponse, new MockFilterChain());
+        assertThat(shortResponse.getStatus()).isEqualTo(HttpStatus.OK.value());
+
+        MockHttpServletResponse secondStream = new MockHttpServletResponse();
+        filter.doFilter(request("/api/v1/employees/changes/stream"), secondStream, new MockFilterChain());
+        assertThat(secondStream.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+
+        stream.getAsyncContext().complete();
+        MockHttpServletResponse thirdStream = new MockHttpServletResponse();
+        filter.doFilter(request("/api/v1/employees/changes/stream"), thirdStream, new MockFilterChain());
+        assertThat(thirdStream.getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    @Test
+    public void failedAuthenticationsOfAUsernameShareABucketWhateverTheCase() throws Exception {
+        FailedAuthenticationRateLimitFilter filter =
+                new FailedAuthenticationRateLimitFilter(0.001, 1, new SimpleMeterRegistry());
+
+        MockHttpServletResponse failed = new MockHttpServletResponse();
+        filter.doFilter(basic("admin"), failed,
+                (request, response) -> ((HttpServletResponse) response).setStatus(HttpStatus.UNAUTHORIZED.value()));
+        assertThat(failed.getStatus()).isEqualTo(HttpStatus.UNAUTHORIZED.value());
+
+        MockHttpServletResponse limited = new MockHttpServletResponse();
+        filter.doFilter(basic("ADMIN"), limited, new MockFilterChain());
+        assertThat(limited.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        return request;
+    }
+
+    private static MockHttpServletRequest basic(String username) {
+        MockHttpServletRequest request = request("/api/v1/employees");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Basic " + Base64.getEncoder()
+                .encodeToString((username + ":wrong").getBytes(StandardCharsets.UTF_8)));
+        return request;
+    }
+}
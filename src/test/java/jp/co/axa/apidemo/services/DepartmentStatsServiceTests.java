@@ -0,0 +1,106 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.dto.DepartmentStats;
+import jp.co.axa.apidemo.dto.EmployeePatch;
+import jp.co.axa.apidemo.entities.Employee;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the department statistics follow the writes of the employee service, min and max included, and
+ * that rebuilding them while employees are written counts every write exactly once.
+ * <p>
+ * The context has a database of its own, and every test writes a department of its own.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:department-stats-tests")
+public class DepartmentStatsServiceTests {
+
+    private static final int WRITERS = 4;
+
+    private static final int WRITES_PER_WRITER = 50;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private DepartmentStatsService departmentStatsService;
+
+    @Test
+    public void minAndMaxFollowRemovedSalaries() {
+        Long lowest = saveEmployee("Range", 100);
+        saveEmployee("Range", 200);
+        Long highest = saveEmployee("Range", 300);
+        assertRange("Range", 100, 300);
+
+        employeeService.deleteEmployee(lowest, null);
+        assertRange("Range", 200, 300);
+
+        EmployeePatch patch = new EmployeePatch();
+        patch.setSalary(50);
+        employeeService.patchEmployee(highest, patch, null);
+        assertRange("Range", 50, 200);
+        assertThat(departmentStatsService.getStats("Range").getHeadcount()).isEqualTo(2);
+    }
+
+    @Test
+    public void rebuildsRacingWritesCountEveryWriteOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + 1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int writer = 0; writer < WRITERS; writer++) {
+                int salary = 1000 * (writer + 1);
+                writers.add(executor.submit(() -> {
+                    for (int write = 0; write < WRITES_PER_WRITER; write++) {
+                        saveEmployee("Racing", salary + write);
+                    }
+                }));
+            }
+            Future<?> rebuilder = executor.submit(() -> {
+                while (writing.get()) {
+                    departmentStatsService.rebuild();
+                }
+            });
+            for (Future<?> writer : writers) {
+                writer.get(1, TimeUnit.MINUTES);
+            }
+            writing.set(false);
+            rebuilder.get(1, TimeUnit.MINUTES);
+        } finally {
+            writing.set(false);
+            executor.shutdownNow();
+        }
+
+        assertThat(departmentStatsService.getStats("Racing").getHeadcount()).isEqualTo(WRITERS * WRITES_PER_WRITER);
+        assertThat(departmentStatsService.reconcile().isConsistent()).isTrue();
+    }
+
+    private Long saveEmployee(String department, int salary) {
+        Employee employee = new Employee();
+        employee.setName("Stats Test");
+        employee.setSalary(salary);
+        employee.setDepartment(department);
+        employeeService.saveEmployee(employee);
+        return employee.getId();
+    }
+
+    private void assertRange(String department, int minSalary, int maxSalary) {
+        DepartmentStats stats = departmentStatsService.getStats(department);
+        assertThat(stats.getMinSalary()).isEqualTo(minSalary);
+        assertThat(stats.getMaxSalary()).isEqualTo(maxSalary);
+    }
+}
@@ -0,0 +1,70 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.dto.EmployeeBatchItemResult;
+import jp.co.axa.apidemo.dto.EmployeeBatchResult;
+import jp.co.axa.apidemo.entities.Employee;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that a chunk failing in the database only fails the items that cannot be written on their own, and
+ * that invalid items are rejected before any chunk is written.
+ * <p>
+ * The context has a database of its own, and the rows are read back with plain JDBC, bypassing every cache.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:batch-tests")
+public class EmployeeBatchServiceTests {
+
+    @Autowired
+    private EmployeeBatchService employeeBatchService;
+
+    @Autowired
+    private DepartmentStatsService departmentStatsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void failedChunkOnlyFailsTheFailingItem() {
+        // Valid for the bean constraints, but longer than the EMPLOYEE_NAME column
+        String tooLong = String.join("", Collections.nCopies(300, "x"));
+        EmployeeBatchResult result = employeeBatchService.createEmployees(Arrays.asList(
+                employee("Batch First"), employee(tooLong), employee("Batch Third")));
+
+        assertThat(result.getItems()).extracting(EmployeeBatchItemResult::getStatus).containsExactly(201, 500, 201);
+        assertThat(result.getItems()).extracting(EmployeeBatchItemResult::getIndex).containsExactly(0, 1, 2);
+        assertThat(result.getItems().get(1).getId()).isNull();
+        assertThat(result.getSucceeded()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM EMPLOYEE WHERE DEPARTMENT = 'Batching'",
+                Long.class)).isEqualTo(2);
+        assertThat(departmentStatsService.reconcile().isConsistent()).isTrue();
+    }
+
+    @Test
+    public void invalidItemsAreRejectedOneByOne() {
+        EmployeeBatchResult result = employeeBatchService.createEmployees(Arrays.asList(
+                employee(" "), null, employee("Batch Valid")));
+
+        assertThat(result.getItems()).extracting(EmployeeBatchItemResult::getStatus).containsExactly(400, 400, 201);
+        assertThat(result.getItems()).extracting(EmployeeBatchItemResult::getMessage)
+                .containsExactly("name is mandatory", "employee is mandatory", null);
+    }
+
+    private static Employee employee(String name) {
+        Employee employee = new Employee();
+        employee.setName(name);
+        employee.setSalary(1000);
+        employee.setDepartment("Batching");
+        return employee;
+    }
+}
@@ -0,0 +1,78 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.dto.EmployeeImportError;
+import jp.co.axa.apidemo.dto.EmployeeImportResult;
+import jp.co.axa.apidemo.entities.Employee;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the CSV import reads back what the CSV export writes, quoted fields spanning lines included, and
+ * that errors report the line on which their record starts.
+ * <p>
+ * The context has a database of its own, and the rows are read back with plain JDBC, bypassing every cache.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:import-tests")
+public class EmployeeImportServiceTests {
+
+    @Autowired
+    private EmployeeImportService employeeImportService;
+
+    @Autowired
+    private EmployeeExportService employeeExportService;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void exportedCsvIsImportedBackUnchanged() throws Exception {
+        Employee employee = new Employee();
+        employee.setName("Import \"Test\",\nSecond line");
+        employee.setSalary(1000);
+        employee.setDepartment("Importing");
+        employeeService.saveEmployee(employee);
+
+        ByteArrayOutputStream export = new ByteArrayOutputStream();
+        long exported = employeeExportService.exportAsCsv(export);
+        EmployeeImportResult result = employeeImportService.importCsv(
+                new ByteArrayInputStream(export.toByteArray()), null);
+
+        assertThat(result.getErrors()).isEmpty();
+        assertThat(result.getRowsRead()).isEqualTo(exported);
+        assertThat(result.getImported()).isEqualTo(exported);
+        assertThat(jdbcTemplate.queryForObject("SELECT EMPLOYEE_NAME FROM EMPLOYEE WHERE ID = ?", String.class,
+                employee.getId())).isEqualTo("Import \"Test\",\nSecond line");
+    }
+
+    @Test
+    public void errorsReportTheFirstLineOfTheirRecord() throws Exception {
+        String csv = "name,salary,department\n"
+                + "\"Multi\n"
+                + "Line\",1000,Importing\n"
+                + "Bad Salary,lots,Importing\n"
+                + "\"Unterminated,1000,Importing\n";
+        EmployeeImportResult result = employeeImportService.importCsv(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), null);
+
+        assertThat(result.getRowsRead()).isEqualTo(3);
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting(EmployeeImportError::getLine).containsExactly(4L, 5L);
+        assertThat(result.getErrors().get(1).getMessage()).isEqualTo("Unterminated quoted field");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM EMPLOYEE WHERE EMPLOYEE_NAME = ?", Long.class,
+                "Multi\nLine")).isEqualTo(1);
+    }
+}
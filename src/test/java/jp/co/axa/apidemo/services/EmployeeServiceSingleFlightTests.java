@@ -0,0 +1,155 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.config.CacheConfig;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.exception.EmployeeNotFoundException;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that concurrent cache misses on {@link EmployeeServiceImpl#getEmployee(Long)} are coalesced into a single
+ * repository call, and that missing IDs are cached.
+ * <p>
+ * Only the caches and the service are loaded; the repository is a mock whose lookups are slow enough for all the
+ * threads to miss the cache at the same time.
+ */
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = {CacheConfig.class, EmployeeServiceImpl.class})
+public class EmployeeServiceSingleFlightTests {
+
+    private static final int THREADS = 16;
+
+    // Time the mocked repository takes to answer, much longer than it takes to start every thread.
+    private static final long LOAD_MILLIS = 300;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockBean
+    private EmployeeRepository employeeRepository;
+
+    @MockBean
+    private DepartmentStatsService departmentStatsService;
+
+    @MockBean
+    private EmployeeChangeService employeeChangeService;
+
+    @MockBean
+    private EmployeeWriteBehindService employeeWriteBehindService;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentMissesForTheSameIdShareOneRepositoryCall() throws Exception {
+        Employee employee = employee(42L);
+        when(employeeRepository.findById(42L)).thenAnswer(invocation -> {
+            Thread.sleep(LOAD_MILLIS);
+            return Optional.of(employee);
+        });
+
+        List<Future<Employee>> results = runConcurrently(() -> employeeService.getEmployee(42L));
+
+        for (Future<Employee> result : results) {
+            assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(employee);
+        }
+        verify(employeeRepository, times(1)).findById(42L);
+    }
+
+    @Test
+    public void concurrentMissesForAMissingIdShareOneRepositoryCall() throws Exception {
+        when(employeeRepository.findById(43L)).thenAnswer(invocation -> {
+            Thread.sleep(LOAD_MILLIS);
+            return Optional.empty();
+        });
+
+        List<Future<Employee>> results = runConcurrently(() -> employeeService.getEmployee(43L));
+
+        for (Future<Employee> result : results) {
+            assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(EmployeeNotFoundException.class);
+        }
+        assertThatThrownBy(() -> employeeService.getEmployee(43L)).isInstanceOf(EmployeeNotFoundException.class);
+        verify(employeeRepository, times(1)).findById(43L);
+    }
+
+    @Test
+    public void creatingAnEmployeeForgetsThatItsIdWasMissing() {
+        Employee employee = employee(44L);
+        when(employeeRepository.findById(44L)).thenReturn(Optional.empty(), Optional.of(employee));
+        when(employeeRepository.save(any(Employee.class))).thenReturn(employee);
+
+        assertThatThrownBy(() -> employeeService.getEmployee(44L)).isInstanceOf(EmployeeNotFoundException.class);
+        employeeService.saveEmployee(new Employee());
+
+        assertThat(employeeService.getEmployee(44L)).isSameAs(employee);
+        verify(employeeRepository, times(2)).findById(44L);
+    }
+
+    /**
+     * Runs the given task on every thread, releasing them all at once.
+     */
+    private <T> List<Future<T>> runConcurrently(Callable<T> task) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> {
+                ready.countDown();
+                start.await();
+                return task.call();
+            }));
+        }
+        ready.await();
+        start.countDown();
+        return results;
+    }
+
+    private static Employee employee(Long employeeId) {
+        Employee employee = new Employee();
+        employee.setId(employeeId);
+        employee.setName("Employee " + employeeId);
+        employee.setVersion(0L);
+        return employee;
+    }
+}
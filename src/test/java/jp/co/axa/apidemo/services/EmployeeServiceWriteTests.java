@@ -0,0 +1,104 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.dto.EmployeePatch;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.exception.EmployeeNotFoundException;
+import jp.co.axa.apidemo.exception.EmployeePreconditionFailedException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that the single-statement writes of {@link EmployeeServiceImpl} are applied to the database, return
+ * the new version of the employee, and feed the department statistics with the values they replace.
+ * <p>
+ * The context has a database of its own, and the rows are read back with plain JDBC, bypassing every cache.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:write-tests")
+public class EmployeeServiceWriteTests {
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private DepartmentStatsService departmentStatsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long employeeId;
+
+    @Before
+    public void setUp() {
+        Employee employee = new Employee();
+        employee.setName("Write Test");
+        employee.setSalary(1000);
+        employee.setDepartment("Writing");
+        employeeService.saveEmployee(employee);
+        employeeId = employee.getId();
+    }
+
+    @Test
+    public void updateAndPatchAreAppliedAndMoveTheStatistics() {
+        Employee update = new Employee();
+        update.setId(employeeId);
+        update.setName("Write Test Updated");
+        update.setSalary(2000);
+        update.setDepartment("Rewriting");
+        assertThat(employeeService.updateEmployee(update, null).getHeaders().getETag()).contains(employeeId + "-1");
+
+        EmployeePatch patch = new EmployeePatch();
+        patch.setSalary(3000);
+        assertThat(employeeService.patchEmployee(employeeId, patch, 1L).getHeaders().getETag())
+                .contains(employeeId + "-2");
+
+        Map<String, Object> row = readRow();
+        assertThat(row.get("EMPLOYEE_NAME")).isEqualTo("Write Test Updated");
+        assertThat(row.get("EMPLOYEE_SALARY")).isEqualTo(3000);
+        assertThat(row.get("DEPARTMENT")).isEqualTo("Rewriting");
+        assertThat(row.get("VERSION")).isEqualTo(2L);
+        assertThat(departmentStatsService.reconcile().isConsistent()).isTrue();
+    }
+
+    @Test
+    public void writesConditionedOnAnotherVersionFailWithoutWriting() {
+        EmployeePatch patch = new EmployeePatch();
+        patch.setName("Write Test Stale");
+        assertThatThrownBy(() -> employeeService.patchEmployee(employeeId, patch, 5L))
+                .isInstanceOf(EmployeePreconditionFailedException.class);
+        assertThatThrownBy(() -> employeeService.deleteEmployee(employeeId, 5L))
+                .isInstanceOf(EmployeePreconditionFailedException.class);
+
+        Map<String, Object> row = readRow();
+        assertThat(row.get("EMPLOYEE_NAME")).isEqualTo("Write Test");
+        assertThat(row.get("VERSION")).isEqualTo(0L);
+    }
+
+    @Test
+    public void deleteRemovesTheEmployeeAndItsSalary() {
+        employeeService.deleteEmployee(employeeId, 0L);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM EMPLOYEE WHERE ID = ?", Long.class, employeeId))
+                .isZero();
+        assertThat(departmentStatsService.reconcile().isConsistent()).isTrue();
+        assertThatThrownBy(() -> employeeService.deleteEmployee(employeeId, null))
+                .isInstanceOf(EmployeeNotFoundException.class);
+    }
+
+    /**
+     * Reads the row of the employee under test.
+     */
+    private Map<String, Object> readRow() {
+        return jdbcTemplate.queryForMap("SELECT * FROM EMPLOYEE WHERE ID = ?", employeeId);
+    }
+}